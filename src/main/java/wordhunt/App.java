@@ -16,7 +16,9 @@ limitations under the License.
 package wordhunt;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Map.Entry;
@@ -32,6 +34,8 @@ class App {
     private static final ProcessLog consoleLog = line -> System.out.println(line);
 
     public static final int MIN_FIND_ARGUMENT_COUNT = 3;
+    // time given to watch command for finishing index update when it is stopped
+    private static final long WATCH_SHUTDOWN_TIMEOUT_MILLIS = 10000;
 
     private App() {}
 
@@ -71,6 +75,8 @@ class App {
     private static boolean processCommand(String[] args) {
         var command = args[0];
         var simpleMode = !command.equals("--index")
+                && !command.equals("--update")
+                && !command.equals("--watch")
                 && !command.equals("--find")
                 && !command.equals("--help")
                 && !command.equals("--version");
@@ -80,11 +86,17 @@ class App {
                 processFindCommand(args, false, args[1], 2);
                 return true;
             }
-        } else if (command.equals("--index")) {
+        } else if (command.equals("--index") || command.equals("--update")) {
             if (args.length >= 2) {
                 validateDir(args[1]);
                 var config = parseOptions(args, false, args[1], 2);
-                performIndex(config);
+                performIndex(config, command.equals("--update"));
+                return true;
+            }
+        } else if (command.equals("--watch")) {
+            if (args.length >= 2) {
+                validateDir(args[1]);
+                performWatch(parseOptions(args, false, args[1], 2));
                 return true;
             }
         } else if (command.equals("--help")) {
@@ -153,6 +165,59 @@ class App {
                 case "--no-case-split":
                     result.setValue(SearchConst.CFG_SEARCH_NO_CASE_SPLIT, Boolean.TRUE);
                     break;
+                case "--with-content":
+                    result.setValue(SearchConst.CFG_INDEX_WITH_CONTENT, Boolean.TRUE);
+                    break;
+                case "--segments":
+                    parseSegments(args, i, result);
+                    i++;
+                    break;
+                case "--virtual-threads":
+                    result.setValue(SearchConst.CFG_INDEX_VIRTUAL_THREADS, Boolean.TRUE);
+                    break;
+                case "--resume":
+                    result.setValue(SearchConst.CFG_INDEX_RESUME, Boolean.TRUE);
+                    break;
+                case "--threads":
+                    parseThreads(args, i, result, SearchConst.CFG_THREADS);
+                    i++;
+                    break;
+                case "--search-threads":
+                    parseThreads(args, i, result, SearchConst.CFG_SEARCH_THREADS);
+                    i++;
+                    break;
+                case "--ordered":
+                    result.setValue(SearchConst.CFG_SEARCH_ORDERED, Boolean.TRUE);
+                    break;
+                case "--type-cache":
+                    parseTypeCachePath(args, i, result);
+                    i++;
+                    break;
+                case "--exclude":
+                    parseExclude(args, i, result);
+                    i++;
+                    break;
+                case "--skip-hidden":
+                    result.setValue(SearchConst.CFG_WALK_SKIP_HIDDEN, Boolean.TRUE);
+                    break;
+                case "--max-depth":
+                    parseMaxDepth(args, i, result);
+                    i++;
+                    break;
+                case "--use-ignore-files":
+                    result.setValue(SearchConst.CFG_WALK_IGNORE_FILES, Boolean.TRUE);
+                    break;
+                case "--io-bytes":
+                    parseIoBytes(args, i, result);
+                    i++;
+                    break;
+                case "--io-files":
+                    parseIoFiles(args, i, result);
+                    i++;
+                    break;
+                case "--io-adaptive":
+                    result.setValue(SearchConst.CFG_IO_ADAPTIVE, Boolean.TRUE);
+                    break;
                 case "--anywhere":
                     parseTerms(args, i, result, SearchConst.CFG_SEARCH_TERMS_ANY);
                     i++;
@@ -182,6 +247,10 @@ class App {
             i++;
         }
 
+        if (Boolean.TRUE.equals(result.getValue(SearchConst.CFG_IO_ADAPTIVE)) && !IoBudget.fromConfig(result).isLimited()) {
+            throw new SearchException("Option [--io-adaptive] requires --io-bytes or --io-files");
+        }
+
         return result;
     }
 
@@ -198,6 +267,126 @@ class App {
         }
     }
 
+    private static void parseTypeCachePath(String[] args, int index, SearchConfig config) {
+        if (args.length > index + 1) {
+            config.setValue(SearchConst.CFG_TYPE_CACHE_PATH, args[index + 1]);
+        } else {
+            var optionName = args[index];
+            throw new SearchException("Type cache path not found for option: [" + optionName + "]");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void parseExclude(String[] args, int index, SearchConfig config) {
+        if (args.length <= index + 1) {
+            var optionName = args[index];
+            throw new SearchException("Exclude pattern not found for option: [" + optionName + "]");
+        }
+
+        var excludes = (List<String>) config.getValue(SearchConst.CFG_WALK_EXCLUDE);
+        if (excludes == null) {
+            excludes = new ArrayList<>();
+            config.setValue(SearchConst.CFG_WALK_EXCLUDE, excludes);
+        }
+        excludes.add(args[index + 1]);
+    }
+
+    private static void parseMaxDepth(String[] args, int index, SearchConfig config) {
+        var optionName = args[index];
+        if (args.length <= index + 1) {
+            throw new SearchException("Depth not found for option: [" + optionName + "]");
+        }
+
+        try {
+            var maxDepth = Integer.parseInt(args[index + 1]);
+            if (maxDepth < 1) {
+                throw new SearchException("Depth must be positive for option: [" + optionName + "]");
+            }
+            config.setValue(SearchConst.CFG_WALK_MAX_DEPTH, maxDepth);
+        } catch (NumberFormatException nfe) {
+            throw new SearchException("Invalid depth for option: [" + optionName + "]: " + args[index + 1]);
+        }
+    }
+
+    /**
+     * Parses limit of bytes read per second, with optional suffix: "k", "m" or "g".
+     */
+    private static void parseIoBytes(String[] args, int index, SearchConfig config) {
+        var optionName = args[index];
+        if (args.length <= index + 1) {
+            throw new SearchException("Byte count not found for option: [" + optionName + "]");
+        }
+
+        var text = args[index + 1].toLowerCase();
+        var multiplier = 1L;
+        var suffixPos = "kmg".indexOf(text.isEmpty() ? ' ' : text.charAt(text.length() - 1));
+        if (suffixPos >= 0) {
+            multiplier = 1L << (10 * (suffixPos + 1));
+            text = text.substring(0, text.length() - 1);
+        }
+
+        try {
+            var bytesPerSecond = Math.multiplyExact(Long.parseLong(text), multiplier);
+            if (bytesPerSecond < 1) {
+                throw new SearchException("Byte count must be positive for option: [" + optionName + "]");
+            }
+            config.setValue(SearchConst.CFG_IO_BYTES_PER_SECOND, bytesPerSecond);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new SearchException("Invalid byte count for option: [" + optionName + "]: " + args[index + 1]);
+        }
+    }
+
+    private static void parseIoFiles(String[] args, int index, SearchConfig config) {
+        var optionName = args[index];
+        if (args.length <= index + 1) {
+            throw new SearchException("File count not found for option: [" + optionName + "]");
+        }
+
+        try {
+            var filesPerSecond = Integer.parseInt(args[index + 1]);
+            if (filesPerSecond < 1) {
+                throw new SearchException("File count must be positive for option: [" + optionName + "]");
+            }
+            config.setValue(SearchConst.CFG_IO_FILES_PER_SECOND, filesPerSecond);
+        } catch (NumberFormatException nfe) {
+            throw new SearchException("Invalid file count for option: [" + optionName + "]: " + args[index + 1]);
+        }
+    }
+
+    private static void parseSegments(String[] args, int index, SearchConfig config) {
+        var optionName = args[index];
+        if (args.length <= index + 1) {
+            throw new SearchException("Segment count not found for option: [" + optionName + "]");
+        }
+
+        try {
+            var segmentCount = Integer.parseInt(args[index + 1]);
+            if (segmentCount < 1) {
+                throw new SearchException("Segment count must be positive for option: [" + optionName + "]");
+            }
+            config.setValue(SearchConst.CFG_INDEX_SEGMENTS, segmentCount);
+        } catch (NumberFormatException nfe) {
+            throw new SearchException("Invalid segment count for option: [" + optionName + "]: " + args[index + 1]);
+        }
+    }
+
+    private static void parseThreads(String[] args, int index, SearchConfig config, String configName) {
+        var optionName = args[index];
+        if (args.length <= index + 1) {
+            throw new SearchException("Thread count not found for option: [" + optionName + "]");
+        }
+
+        try {
+            var threadCount = Integer.parseInt(args[index + 1]);
+            if (threadCount < 1) {
+                throw new SearchException("Thread count must be positive for option: [" + optionName + "]");
+            }
+            config.setValue(configName, threadCount);
+        } catch (NumberFormatException nfe) {
+            throw new SearchException("Invalid thread count for option: [" + optionName + "]: " + args[index + 1]);
+        }
+    }
+
     private static void setIndexFile(SearchConfig config, String indexDir, String indexFileName) {
         var indexPath = FilePathUtils.toCanonicalPath(indexDir, indexFileName);
         setIndexFile(config, indexPath);
@@ -294,10 +483,21 @@ class App {
         }
 
         var indexStorage = new IndexStorageViaFiles();
-        var iv = new IndexValidator(config, indexStorage);
+        var documentStorage = new DocumentStorageViaFiles();
+        var iv = new IndexValidator(config, indexStorage, documentStorage);
         var searchTerms = buildTerms(config);
 
-        if (iv.indexExists()) {
+        var freshness = iv.checkFreshness();
+        if (!list) {
+            logger.info(freshness.describe());
+        }
+
+        var useIndex = freshness.getStrategy() != IndexFreshness.Strategy.ONFLY;
+        if (freshness.getStrategy() == IndexFreshness.Strategy.REFRESH) {
+            useIndex = refreshIndex(config, indexStorage, documentStorage);
+        }
+
+        if (useIndex) {
             final var searchStrategyUsingPreparedIndex = new SearchStrategyUsingPreparedIndex(config, (msg) -> logger.info(msg));
             searchStrategyUsingPreparedIndex.invoke(searchTerms);
         } else {
@@ -306,6 +506,21 @@ class App {
         }
     }
 
+    /**
+     * Updates stale index before search.
+     *
+     * @return false if index could not be updated and search should be performed without it
+     */
+    private static boolean refreshIndex(SearchConfig config, IndexStorage indexStorage, DocumentStorage documentStorage) {
+        try (var detector = CachingFileTypeDetector.forConfig(config)) {
+            newFileIndexer(config, detector, indexStorage, documentStorage).updateIndex();
+            return true;
+        } catch (SearchException | IndexAccessException e) {
+            logger.warn(String.format("Index refresh failed, searching without index: %s", e.getMessage()));
+            return false;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private static SearchTerms buildTerms(SearchConfig config) {
         return SearchTerms.builder()
@@ -313,16 +528,51 @@ class App {
                 .build();
     }
 
-    private static void performIndex(SearchConfig config) {
+    private static void performIndex(SearchConfig config, boolean update) {
         var dirName =                 (String) config.getValue(SearchConst.CFG_SEARCH_ROOT_DIR);
-        logger.info(String.format("Performing 'index' in dir [%s]", dirName));
+        logger.info(String.format("Performing '%s' in dir [%s]", update ? "update" : "index", dirName));
         
-        var documentStorage =                 new DocumentStorageViaFiles();
-        var indexStorage = new IndexStorageViaFiles();
-        var fi = new FileIndexer(config, dirName, new TextFileTypeDetector(), 
-                                new BasicIndexEntryWriter(dirName),
+        try (var detector = CachingFileTypeDetector.forConfig(config)) {
+            var fi = newFileIndexer(config, detector, new IndexStorageViaFiles(), new DocumentStorageViaFiles());
+            if (update) {
+                fi.updateIndex();
+            } else if (Boolean.TRUE.equals(config.getValue(SearchConst.CFG_INDEX_RESUME))) {
+                fi.resumeIndex();
+            } else {
+                fi.rebuildIndex();
+            }
+        }
+    }
+
+    private static void performWatch(SearchConfig config) {
+        var dirName = (String) config.getValue(SearchConst.CFG_SEARCH_ROOT_DIR);
+        logger.info(String.format("Performing 'watch' in dir [%s]", dirName));
+
+        try (var detector = CachingFileTypeDetector.forConfig(config);
+             var watcher = new IndexWatcher(config,
+                     () -> newFileIndexer(config, detector, new IndexStorageViaFiles(), new DocumentStorageViaFiles()),
+                     (msg) -> logger.info(msg))) {
+            // on Ctrl+C watcher is stopped and detector cache is saved before JVM exits
+            var mainThread = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                watcher.stop();
+                try {
+                    mainThread.join(WATCH_SHUTDOWN_TIMEOUT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            watcher.run();
+        }
+    }
+
+    private static FileIndexer newFileIndexer(SearchConfig config, FileTypeDetector detector,
+                                              IndexStorage indexStorage, DocumentStorage documentStorage) {
+        var dirName = (String) config.getValue(SearchConst.CFG_SEARCH_ROOT_DIR);
+        return new FileIndexer(config, dirName, detector,
+                                new BasicIndexEntryWriterFactory(config, indexStorage, dirName),
+                                new MappedIndexWalkerFactory(indexStorage),
                                 indexStorage, documentStorage, (msg) -> logger.info(msg));
-        fi.rebuildIndex();
     }
 
     private static String[] getAllTerms(SearchConfig config) {
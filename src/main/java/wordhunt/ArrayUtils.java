@@ -51,6 +51,34 @@ public final class ArrayUtils {
         return result;
     }
 
+    /**
+     * Finds common values of two ascending arrays.
+     *
+     * @param first ascending values
+     * @param second ascending values
+     * @return ascending values present in both arrays
+     */
+    public static long[] intersectSorted(long[] first, long[] second) {
+        var result = new long[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+
+        return (count == result.length) ? result : Arrays.copyOf(result, count);
+    }
+
     private ArrayUtils() {
     }
 }
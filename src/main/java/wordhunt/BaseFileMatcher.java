@@ -26,6 +26,7 @@ import java.util.HashSet;
 public abstract class BaseFileMatcher implements SearchMatcher {
 
     private static final String CTX_FILES_TO_IGNORE = "files_to_ignore";
+    private static final String CTX_FILE_NAMES_TO_IGNORE = "file_names_to_ignore";
 
     private final SearchMatcher nextMatcher;
     private final SearchConfig config;
@@ -65,6 +66,12 @@ public abstract class BaseFileMatcher implements SearchMatcher {
 
     @SuppressWarnings("unchecked")
     protected boolean isIgnoredFile(String filePath, SearchContext context) {
+        // canonical path is resolved by file system, so it is built only for files with ignored names
+        Set<String> fileNamesToIgnore = (Set<String>) context.getValue(CTX_FILE_NAMES_TO_IGNORE);
+        if (!fileNamesToIgnore.contains(FilePathUtils.extractFileName(filePath))) {
+            return false;
+        }
+
         Set<String> filesToIgnore = (Set<String>) context.getValue(CTX_FILES_TO_IGNORE);
         String absPath = FilePathUtils.toCanonicalPath(getSearchRootDir(), filePath);
         return filesToIgnore.contains(absPath);
@@ -76,6 +83,8 @@ public abstract class BaseFileMatcher implements SearchMatcher {
         filesToIgnore.add(indexFilePath);
 
         context.setValue(CTX_FILES_TO_IGNORE, filesToIgnore);
+        context.setValue(CTX_FILE_NAMES_TO_IGNORE,
+                (indexFilePath != null) ? Set.of(FilePathUtils.extractFileName(indexFilePath)) : Set.of());
     }
 
     protected Boolean nextMatcherResult(FoundDocument entry, SearchContext context, Boolean acceptedStatus) {
@@ -18,21 +18,33 @@ package wordhunt;
 import java.io.File;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
 
 /**
- * Writes entries to index file.
+ * Writes entries to index file in legacy text format.
  * @author piotr
  */
 public class BasicIndexEntryWriter implements IndexEntryWriter {
 
+    private final BufferedWriter target;
     private final File rootFile;
 
-    public BasicIndexEntryWriter(String rootDir) {
+    public BasicIndexEntryWriter(Writer target, String rootDir) {
+        this.target = new BufferedWriter(target);
         this.rootFile = new File(rootDir);
     }
 
     @Override
-    public void writeEntry(BufferedWriter target, FoundDocument entry) {
+    public void writeMeta(String name, String value) {
+        write(IndexConst.COMMENT_PREFIX + name + IndexConst.META_SEPARATOR + value + IndexConst.ENTRY_SEPARATOR);
+    }
+
+    /**
+     * Writes entry, content words are not supported by text format.
+     */
+    @Override
+    public void writeEntry(FoundDocument entry, Collection<String> contentWords) {
         StringBuilder builder = new StringBuilder();
 
         if (entry.isDirectory()) {
@@ -56,12 +68,24 @@ public class BasicIndexEntryWriter implements IndexEntryWriter {
 
         builder.append(IndexConst.ENTRY_SEPARATOR);
 
+        write(builder.toString());
+    }
+
+    @Override
+    public void close() {
         try {
-            target.write(builder.toString());
+            target.close();
         } catch (IOException ioe) {
             throw new SearchException("IO error: " + ioe.getMessage(), ioe);
         }
+    }
 
+    private void write(String text) {
+        try {
+            target.write(text);
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
     }
 
 }
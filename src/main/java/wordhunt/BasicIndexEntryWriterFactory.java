@@ -0,0 +1,52 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+/**
+ * Creates default index entry writer object (binary format).
+ *
+ * @author piotr
+ */
+public class BasicIndexEntryWriterFactory implements IndexEntryWriterFactory {
+
+    private final SearchConfig config;
+    private final IndexStorage indexStorage;
+    private final String rootDir;
+
+    public BasicIndexEntryWriterFactory(SearchConfig config, IndexStorage indexStorage, String rootDir) {
+        this.config = config;
+        this.indexStorage = indexStorage;
+        this.rootDir = rootDir;
+    }
+
+    /**
+     * Creates writer of single index file or, if more than one segment
+     * is configured, of segmented index.
+     */
+    @Override
+    public IndexEntryWriter newWriter(String indexFilePath, String outputFilePath) {
+        var segmentCount = (Integer) config.getValue(SearchConst.CFG_INDEX_SEGMENTS);
+        if (segmentCount != null && segmentCount > 1) {
+            return new SegmentedIndexEntryWriter(indexStorage, indexFilePath, outputFilePath, rootDir, segmentCount);
+        }
+
+        return new BinaryIndexEntryWriter(
+                indexStorage.getOutputStreamForIndexFile(outputFilePath),
+                rootDir,
+                outputFilePath
+        );
+    }
+}
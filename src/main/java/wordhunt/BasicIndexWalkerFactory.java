@@ -15,8 +15,15 @@ limitations under the License.
  */
 package wordhunt;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Creates default index walker object.
+ * Binary or text walker is selected depending on index file header.
  *
  * @author piotr
  */
@@ -30,9 +37,28 @@ public class BasicIndexWalkerFactory implements IndexWalkerFactory {
 
     @Override
     public IndexWalker newWalker(String indexFilePath) {
-            return new BasicIndexWalker(
-                    indexStorage.getReaderForIndexFile(indexFilePath)
-            );
+        var input = new BufferedInputStream(indexStorage.getInputStreamForIndexFile(indexFilePath));
+
+        try {
+            if (BinaryIndexWalker.isBinaryIndex(input)) {
+                return new BinaryIndexWalker(input);
+            }
+        } catch (IOException ioe) {
+            closeQuietly(input);
+            throw new IndexAccessException("IO error while reading index: " + indexFilePath, ioe);
+        }
+
+        return new BasicIndexWalker(
+                new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))
+        );
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // ignore, original error is reported
+        }
     }
 
 }
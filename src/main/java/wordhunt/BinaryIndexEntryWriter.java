@@ -0,0 +1,310 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes entries to index file in binary format.
+ * <p>
+ * File starts with magic text and format version, followed by records.
+ * Each record is: tag byte, payload length (varint), payload.
+ * MIME type and charset names are stored once in dictionary records and
+ * referenced from entries by their id. Directories are stored once as
+ * (parent id, name) before their first use, entries keep only the id of
+ * their directory and own name.
+ * <p>
+ * After the end record, sections for random access are written: dictionaries,
+ * directory table, summary of indexed tree (see {@link IndexSummary}) and
+ * posting lists of path, file name and (optionally) content
+ * words (entry ids are offsets of entry records). Sections are located through the footer record,
+ * whose offset is stored in the fixed-size trailer at the end of file.
+ *
+ * @author piotr
+ */
+public class BinaryIndexEntryWriter implements IndexEntryWriter {
+
+    private final OutputStream target;
+    private final String rootDir;
+    private final String outputPath;
+    private final IndexRecordBuffer header = new IndexRecordBuffer();
+    private final IndexRecordBuffer record = new IndexRecordBuffer();
+    private final Map<String, Integer> mimeTypes = new LinkedHashMap<>();
+    private final Map<String, Integer> charsets = new LinkedHashMap<>();
+    private final Map<String, Integer> directories = new HashMap<>();
+    private final List<Integer> directoryParents = new ArrayList<>();
+    private final List<String> directoryNames = new ArrayList<>();
+    private final TermPostingsBuilder pathTerms = new TermPostingsBuilder();
+    private final TermPostingsBuilder nameTerms = new TermPostingsBuilder();
+    private final TermPostingsBuilder contentTerms = new TermPostingsBuilder();
+    private final Map<Integer, Long> sections = new LinkedHashMap<>();
+    private final IndexSummary summary = new IndexSummary();
+    private long position;
+    private boolean contentIndexed;
+
+    public BinaryIndexEntryWriter(OutputStream target, String rootDir) {
+        this(target, rootDir, null);
+    }
+
+    /**
+     * @param outputPath path of file written by target stream, reported by checkpoints; null if checkpoints
+     *                   are not supported
+     */
+    public BinaryIndexEntryWriter(OutputStream target, String rootDir, String outputPath) {
+        this.target = new BufferedOutputStream(target);
+        this.rootDir = rootDir;
+        this.outputPath = outputPath;
+        this.directories.put("", IndexDirectoryTable.ROOT_ID);
+        this.directoryParents.add(IndexDirectoryTable.ROOT_ID);
+        this.directoryNames.add("");
+        writeHeader();
+    }
+
+    @Override
+    public void writeMeta(String name, String value) {
+        record.reset();
+        record.writeString(name);
+        record.writeString(value);
+        writeRecord(IndexConst.RECORD_META);
+    }
+
+    @Override
+    public void writeEntry(FoundDocument entry, Collection<String> contentWords) {
+        int mimeId = dictionaryId(mimeTypes, entry.getMimeType(), IndexConst.RECORD_MIME_TYPE);
+        int charsetId = dictionaryId(charsets, entry.getCharsetName(), IndexConst.RECORD_CHARSET);
+
+        var relativePath = trimSeparator(FilePathUtils.absoluteToRelativePath(entry.getFilePath(), rootDir));
+        var separatorPos = relativePath.lastIndexOf('/');
+        var dirId = directoryId(separatorPos >= 0 ? relativePath.substring(0, separatorPos) : "");
+        var name = relativePath.substring(separatorPos + 1);
+
+        summary.addEntry(relativePath, entry.isDirectory(), entry.getLastModified());
+
+        var entryId = position;
+        pathTerms.addAll(MatcherUtils.extractWords(relativePath, false, true), entryId);
+        nameTerms.addAll(MatcherUtils.extractWords(name, false, true), entryId);
+        if (contentWords != null) {
+            contentTerms.addAll(contentWords, entryId);
+            contentIndexed = true;
+        }
+
+        int flags = entry.isDirectory() ? IndexConst.ENTRY_FLAG_DIRECTORY : 0;
+        if (entry.hasStamp()) {
+            flags |= IndexConst.ENTRY_FLAG_STAMP;
+        }
+        if (contentWords != null) {
+            flags |= IndexConst.ENTRY_FLAG_CONTENT;
+        }
+
+        record.reset();
+        record.writeByte(flags);
+        record.writeVarLong(dirId);
+        record.writeString(name);
+        record.writeVarLong(mimeId);
+        record.writeVarLong(charsetId);
+        if (entry.hasStamp()) {
+            record.writeVarLong(entry.getSize());
+            record.writeVarLong(entry.getLastModified());
+        }
+        writeRecord(IndexConst.RECORD_DIR_ENTRY);
+    }
+
+    /**
+     * Flushes records, so file up to returned length is a readable index without
+     * random access sections (end record and sections are written on close).
+     */
+    @Override
+    public Map<String, Long> checkpoint() {
+        if (outputPath == null) {
+            return Collections.emptyMap();
+        }
+
+        try {
+            target.flush();
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+        return Map.of(outputPath, position);
+    }
+
+    @Override
+    public void close() {
+        try {
+            record.reset();
+            writeRecord(IndexConst.RECORD_END);
+            writeSections();
+            target.close();
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * @return summary of entries written so far
+     */
+    IndexSummary getSummary() {
+        return summary;
+    }
+
+    private int dictionaryId(Map<String, Integer> dictionary, String value, int recordTag) {
+        var safeValue = (value != null) ? value : "";
+        var id = dictionary.get(safeValue);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(safeValue, id);
+            record.reset();
+            record.writeString(safeValue);
+            writeRecord(recordTag);
+        }
+        return id;
+    }
+
+    private int directoryId(String dirPath) {
+        var id = directories.get(dirPath);
+        if (id == null) {
+            var separatorPos = dirPath.lastIndexOf('/');
+            var parentId = directoryId(separatorPos >= 0 ? dirPath.substring(0, separatorPos) : "");
+            var name = dirPath.substring(separatorPos + 1);
+            id = directories.size();
+            directories.put(dirPath, id);
+            directoryParents.add(parentId);
+            directoryNames.add(name);
+
+            record.reset();
+            record.writeVarLong(parentId);
+            record.writeString(name);
+            writeRecord(IndexConst.RECORD_DIRECTORY);
+        }
+        return id;
+    }
+
+    private static String trimSeparator(String relativePath) {
+        return relativePath.endsWith("/") ? relativePath.substring(0, relativePath.length() - 1) : relativePath;
+    }
+
+    private void writeSections() throws IOException {
+        sections.put(IndexConst.SECTION_DICTIONARIES, position);
+        record.reset();
+        writeDictionary(mimeTypes);
+        writeDictionary(charsets);
+        writeRecord(IndexConst.RECORD_DICTIONARIES);
+
+        sections.put(IndexConst.SECTION_DIRECTORIES, position);
+        record.reset();
+        record.writeVarLong(directoryNames.size());
+        for (int i = 0; i < directoryNames.size(); i++) {
+            record.writeVarLong(directoryParents.get(i));
+            record.writeString(directoryNames.get(i));
+        }
+        writeRecord(IndexConst.RECORD_DIRECTORIES);
+
+        sections.put(IndexConst.SECTION_SUMMARY, position);
+        record.reset();
+        summary.write(record);
+        writeRecord(IndexConst.RECORD_SUMMARY);
+
+        sections.put(IndexConst.SECTION_PATH_TERMS, writeTermSection(pathTerms));
+        sections.put(IndexConst.SECTION_NAME_TERMS, writeTermSection(nameTerms));
+        if (contentIndexed) {
+            sections.put(IndexConst.SECTION_CONTENT_TERMS, writeTermSection(contentTerms));
+        }
+
+        var footerOffset = position;
+        record.reset();
+        record.writeVarLong(sections.size());
+        for (var section : sections.entrySet()) {
+            record.writeVarLong(section.getKey());
+            record.writeVarLong(section.getValue());
+        }
+        writeRecord(IndexConst.RECORD_FOOTER);
+
+        header.reset();
+        header.writeLong(footerOffset);
+        header.writeTo(target);
+        target.write(IndexConst.TRAILER_MAGIC.getBytes(StandardCharsets.US_ASCII));
+        position += IndexConst.TRAILER_LENGTH;
+    }
+
+    private void writeDictionary(Map<String, Integer> dictionary) {
+        record.writeVarLong(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            record.writeString(value);
+        }
+    }
+
+    /**
+     * Writes term records sorted by term, followed by table of their offsets.
+     *
+     * @return offset of term table record
+     */
+    private long writeTermSection(TermPostingsBuilder terms) {
+        var sortedTerms = terms.sortedTerms();
+        var offsets = new long[sortedTerms.size()];
+
+        for (int i = 0; i < offsets.length; i++) {
+            var term = sortedTerms.get(i);
+            offsets[i] = position;
+            record.reset();
+            record.writeString(term);
+            terms.writePostings(term, record);
+            writeRecord(IndexConst.RECORD_TERM);
+        }
+
+        var tableOffset = position;
+        record.reset();
+        record.writeVarLong(offsets.length);
+        for (long offset : offsets) {
+            record.writeLong(offset);
+        }
+        writeRecord(IndexConst.RECORD_TERM_TABLE);
+        return tableOffset;
+    }
+
+    private void writeHeader() {
+        try {
+            target.write(IndexConst.BINARY_MAGIC.getBytes(StandardCharsets.US_ASCII));
+            header.reset();
+            header.writeVarLong(IndexConst.BINARY_FORMAT_VERSION);
+            header.writeTo(target);
+            position = IndexConst.BINARY_MAGIC.length() + header.length();
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    private void writeRecord(int tag) {
+        try {
+            header.reset();
+            header.writeByte(tag);
+            header.writeVarLong(record.length());
+            header.writeTo(target);
+            record.writeTo(target);
+            position += header.length() + record.length();
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+    }
+}
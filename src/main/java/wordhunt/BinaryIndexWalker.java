@@ -0,0 +1,207 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allows scanning of binary index file in iterator-like way.
+ *
+ * @author piotr
+ */
+public class BinaryIndexWalker implements IndexWalker {
+
+    private final IndexDataInput input;
+    private final List<String> mimeTypes = new ArrayList<>();
+    private final List<String> charsets = new ArrayList<>();
+    private final IndexDirectoryTable directories = new IndexDirectoryTable();
+
+    private String[] bufferedMeta;
+    private FoundDocument bufferedEntry;
+    private boolean endReached;
+
+    public BinaryIndexWalker(InputStream input) {
+        this.input = new IndexDataInput(input);
+        readHeader();
+    }
+
+    /**
+     * Checks if stream starts with binary index header. Stream is reset to
+     * its starting position.
+     *
+     * @param input stream supporting mark/reset
+     * @return true if stream contains binary index
+     */
+    public static boolean isBinaryIndex(InputStream input) throws IOException {
+        var magic = IndexConst.BINARY_MAGIC.getBytes(StandardCharsets.US_ASCII);
+        var data = new byte[magic.length];
+
+        input.mark(magic.length);
+        try {
+            int count = input.readNBytes(data, 0, data.length);
+            return count == magic.length && Arrays.equals(magic, data);
+        } finally {
+            input.reset();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    @Override
+    public FoundDocument next() {
+        bufferedMeta = null;
+
+        if (bufferedEntry != null) {
+            var entry = bufferedEntry;
+            bufferedEntry = null;
+            return entry;
+        }
+
+        while (readRecord()) {
+            if (bufferedEntry != null) {
+                var entry = bufferedEntry;
+                bufferedEntry = null;
+                return entry;
+            }
+            bufferedMeta = null;
+        }
+
+        return null;
+    }
+
+    @Override
+    public String[] nextMeta() {
+        if (bufferedEntry == null && readRecord() && bufferedMeta != null) {
+            var meta = bufferedMeta;
+            bufferedMeta = null;
+            return meta;
+        }
+
+        return null;
+    }
+
+    private void readHeader() {
+        try {
+            var magic = IndexConst.BINARY_MAGIC.getBytes(StandardCharsets.US_ASCII);
+            var data = new byte[magic.length];
+            input.readFully(data, data.length);
+            if (!Arrays.equals(magic, data)) {
+                throw new IndexAccessException("Not a binary index file", null);
+            }
+
+            var version = input.readVarInt();
+            if (version > IndexConst.BINARY_FORMAT_VERSION) {
+                throw new IndexAccessException("Unsupported index format version: " + version, null);
+            }
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Reads records until a meta or entry record is found.
+     *
+     * @return false on end of data
+     */
+    private boolean readRecord() {
+        try {
+            while (!endReached) {
+                var tag = input.readByteOrEof();
+                if (tag < 0) {
+                    endReached = true;
+                    break;
+                }
+
+                var length = input.readVarLong();
+                var payloadEnd = input.getPosition() + length;
+
+                switch (tag) {
+                    case IndexConst.RECORD_END:
+                        endReached = true;
+                        break;
+                    case IndexConst.RECORD_META:
+                        bufferedMeta = new String[]{input.readString(), input.readString()};
+                        skipTo(payloadEnd);
+                        return true;
+                    case IndexConst.RECORD_MIME_TYPE:
+                        mimeTypes.add(input.readString());
+                        break;
+                    case IndexConst.RECORD_CHARSET:
+                        charsets.add(input.readString());
+                        break;
+                    case IndexConst.RECORD_DIRECTORY:
+                        directories.add(input.readVarInt(), input.readString());
+                        break;
+                    case IndexConst.RECORD_ENTRY:
+                        bufferedEntry = readEntry();
+                        skipTo(payloadEnd);
+                        return true;
+                    case IndexConst.RECORD_DIR_ENTRY:
+                        bufferedEntry = readDirEntry();
+                        skipTo(payloadEnd);
+                        return true;
+                    default:
+                        break;
+                }
+
+                skipTo(payloadEnd);
+            }
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+
+        return false;
+    }
+
+    private FoundDocument readEntry() throws IOException {
+        var flags = input.readByte();
+        var relativePath = input.readString();
+        var mimeType = mimeTypes.get(input.readVarInt());
+        var charsetName = charsets.get(input.readVarInt());
+        return new FoundDocument(relativePath, (flags & IndexConst.ENTRY_FLAG_DIRECTORY) != 0, mimeType, charsetName);
+    }
+
+    private FoundDocument readDirEntry() throws IOException {
+        var flags = input.readByte();
+        var isDirectory = (flags & IndexConst.ENTRY_FLAG_DIRECTORY) != 0;
+        var dirId = input.readVarInt();
+        var name = input.readString();
+        var mimeType = mimeTypes.get(input.readVarInt());
+        var charsetName = charsets.get(input.readVarInt());
+
+        long size = FoundDocument.UNKNOWN_STAMP;
+        long lastModified = FoundDocument.UNKNOWN_STAMP;
+        if ((flags & IndexConst.ENTRY_FLAG_STAMP) != 0) {
+            size = input.readVarLong();
+            lastModified = input.readVarLong();
+        }
+
+        return new FoundDocument(directories.getEntryPath(dirId, name, isDirectory), isDirectory, mimeType, charsetName,
+                size, lastModified);
+    }
+
+    private void skipTo(long payloadEnd) throws IOException {
+        input.skip(payloadEnd - input.getPosition());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Detector which remembers types detected by next detector, so files which
+ * were not changed are not sampled again - by later searches without index
+ * or by next index update. Types are stored in cache file shared by all
+ * search roots, which is loaded on creation and saved on close.
+ * <p>
+ * Cache file which cannot be read or written is ignored, detection works
+ * then as without cache.
+ *
+ * @author piotr
+ */
+public class CachingFileTypeDetector implements FileTypeDetector, AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 1 << 17;
+    private static final String LOCK_FILE_SUFFIX = ".lock";
+
+    private final FileTypeDetector nextDetector;
+    private final FileTypeCache cache;
+    private final Path cachePath;
+
+    /**
+     * @param cachePath        cache file, created if it does not exist
+     * @param detectionVersion version of next detector rules, types detected by other version are not used
+     */
+    public CachingFileTypeDetector(FileTypeDetector nextDetector, Path cachePath, int detectionVersion) {
+        this(nextDetector, cachePath, new FileTypeCache(DEFAULT_CAPACITY, detectionVersion));
+    }
+
+    CachingFileTypeDetector(FileTypeDetector nextDetector, Path cachePath, FileTypeCache cache) {
+        this.nextDetector = nextDetector;
+        this.cachePath = cachePath;
+        this.cache = cache;
+        load();
+    }
+
+    /**
+     * Creates default detector, with cache if it is enabled in config and with configured I/O budget.
+     */
+    public static CachingFileTypeDetector forConfig(SearchConfig config) {
+        var cachePath = config.getTypeCachePath();
+        return new CachingFileTypeDetector(new TextFileTypeDetector(null, config.getIoBudget()),
+                (cachePath != null) ? Paths.get(cachePath) : null, TextFileTypeDetector.DETECTION_VERSION);
+    }
+
+    @Override
+    public FileType detectFileType(String absolutePath) {
+        var path = Paths.get(absolutePath);
+        DocumentInfo info;
+        try {
+            var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            info = new DocumentInfo(true, attributes.isDirectory(), Files.isReadable(path),
+                    attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+        } catch (IOException e) {
+            return nextDetector.detectFileType(absolutePath);
+        }
+        return detectFileType(absolutePath, info);
+    }
+
+    @Override
+    public FileType detectFileType(String absolutePath, DocumentInfo info) {
+        if (cachePath == null || !isCacheable(info)) {
+            return nextDetector.detectFileType(absolutePath, info);
+        }
+
+        var key = FileTypeCache.buildKey(info.getFileKey(), absolutePath);
+        var fileType = cache.get(key, info.getSize(), info.getLastModified());
+        if (fileType != null) {
+            return fileType;
+        }
+
+        fileType = nextDetector.detectCacheableFileType(absolutePath, info);
+        if (fileType == null) {
+            // file could not be read (e.g. locked or too many open files), next time it is sampled again
+            return null;
+        }
+
+        // files of unknown type are stored too, sampling them again gives the same result
+        cache.put(key, info.getSize(), info.getLastModified(), fileType);
+        return FileType.UNKNOWN_FILE_TYPE.equals(fileType) ? null : fileType;
+    }
+
+    /**
+     * Saves cache if new types were detected. Entries saved meanwhile by
+     * other processes are merged in, saving is serialized by lock file.
+     */
+    @Override
+    public void close() {
+        if (cachePath == null || !cache.isModified()) {
+            return;
+        }
+
+        var dir = cachePath.toAbsolutePath().getParent();
+        var lockPath = cachePath.resolveSibling(cachePath.getFileName() + LOCK_FILE_SUFFIX);
+        try {
+            Files.createDirectories(dir);
+            try (var lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // lock is released when channel is closed
+                lockChannel.lock();
+                mergeSaved();
+                save(dir);
+            }
+        } catch (IOException e) {
+            // cache is optional, next run detects types again
+        }
+    }
+
+    private void mergeSaved() {
+        try (var in = Files.newInputStream(cachePath)) {
+            cache.merge(in);
+        } catch (IOException e) {
+            // missing or damaged file is replaced
+        }
+    }
+
+    private void save(Path dir) throws IOException {
+        var tempPath = Files.createTempFile(dir, cachePath.getFileName().toString(), ".tmp");
+        try {
+            try (var out = Files.newOutputStream(tempPath)) {
+                cache.write(out);
+            }
+            try {
+                Files.move(tempPath, cachePath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    private void load() {
+        if (cachePath == null) {
+            return;
+        }
+
+        try (var in = Files.newInputStream(cachePath)) {
+            cache.read(in);
+        } catch (NoSuchFileException e) {
+            // first run
+        } catch (IOException e) {
+            // damaged or foreign file, it is replaced on close
+            cache.clear();
+        }
+    }
+
+    private static boolean isCacheable(DocumentInfo info) {
+        return info.documentExists() && !info.isDirectory() && info.isReadable()
+                && info.getSize() != FoundDocument.UNKNOWN_STAMP && info.getLastModified() != FoundDocument.UNKNOWN_STAMP;
+    }
+}
@@ -16,8 +16,6 @@ limitations under the License.
 package wordhunt;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.StandardCharsets;
 
 /**
  * Utility functions for charset handling.
@@ -29,6 +27,14 @@ public final class CharsetUtils {
     private static final String DEFAULT_CHARSET = "US-ASCII";
 
     public static String detectCharsetName(byte[] data) {
+        return detectCharsetName(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Detects charset of data between position and limit of buffer.
+     * Buffer position is not changed.
+     */
+    public static String detectCharsetName(ByteBuffer data) {
         return isValidUtf8(data) ? CHARSET_UTF8 : DEFAULT_CHARSET;
     }
 
@@ -36,15 +42,61 @@ public final class CharsetUtils {
         return CHARSET_UTF8.equals(charsetName);
     }
 
-    private static boolean isValidUtf8(byte[] input) {
-        var cs = StandardCharsets.UTF_8.newDecoder();
+    /**
+     * Validates UTF-8 byte by byte, without decoding. Accepts the same input
+     * as UTF-8 decoder: no overlong forms, surrogates or code points above
+     * U+10FFFF, sequence cut at the end of data is invalid.
+     */
+    private static boolean isValidUtf8(ByteBuffer input) {
+        int i = input.position();
+        int limit = input.limit();
+
+        while (i < limit) {
+            int lead = input.get(i++) & 0xFF;
+            if (lead < 0x80) {
+                continue;
+            }
 
-        try {
-            cs.decode(ByteBuffer.wrap(input));
-            return true;
-        } catch (CharacterCodingException e) {
-            return false;
+            int continuationCount;
+            // allowed range of the first continuation byte
+            int low = 0x80;
+            int high = 0xBF;
+            if (lead >= 0xC2 && lead <= 0xDF) {
+                continuationCount = 1;
+            } else if (lead >= 0xE0 && lead <= 0xEF) {
+                continuationCount = 2;
+                if (lead == 0xE0) {
+                    low = 0xA0;
+                } else if (lead == 0xED) {
+                    high = 0x9F;
+                }
+            } else if (lead >= 0xF0 && lead <= 0xF4) {
+                continuationCount = 3;
+                if (lead == 0xF0) {
+                    low = 0x90;
+                } else if (lead == 0xF4) {
+                    high = 0x8F;
+                }
+            } else {
+                return false;
+            }
+
+            if (limit - i < continuationCount) {
+                return false;
+            }
+
+            int next = input.get(i++) & 0xFF;
+            if (next < low || next > high) {
+                return false;
+            }
+            for (int k = 1; k < continuationCount; k++) {
+                if ((input.get(i++) & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
         }
+
+        return true;
     }
 
     private CharsetUtils() {
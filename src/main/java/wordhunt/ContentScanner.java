@@ -0,0 +1,330 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Finds query words in raw bytes of document, without decoding and splitting
+ * of text. Words are compiled into Aho-Corasick automaton; for each
+ * occurrence, word boundaries are checked like by
+ * {@link MatcherUtils#extractWords(String, boolean, boolean)}:
+ * <ul>
+ * <li>whole word - sequence of [A-Za-z0-9_'] characters</li>
+ * <li>part of word split before upper case letters (if case split is enabled)</li>
+ * <li>part of word split on "_" characters</li>
+ * </ul>
+ * Word characters are ASCII only, so scanning is exact for charsets which
+ * encode ASCII characters as single bytes and other characters with bytes
+ * above 127 (see {@link #isSupported(Charset, boolean)}).
+ * <p>
+ * Scanner is immutable, it can be used from many threads; state of scan of
+ * a document is kept in {@link Scan}.
+ *
+ * @author piotr
+ */
+final class ContentScanner {
+
+    private static final int ALPHABET_BITS = 8;
+    private static final int ALPHABET_SIZE = 1 << ALPHABET_BITS;
+    private static final int NO_BYTE = -1;
+
+    private final int wordCount;
+    private final int[] wordLengths;
+    private final boolean[] wordHasUnderscore;
+    private final boolean caseWordSplit;
+    // original bytes of words when case-sensitive, upper case otherwise
+    private final byte[][] words;
+    private final int maxWordLength;
+    // transition table: state * ALPHABET_SIZE + byte
+    private final int[] transitions;
+    // indexes of words ending in state, null if none
+    private final int[][] outputs;
+
+    private ContentScanner(String[] words, boolean caseSensitive, boolean caseWordSplit) {
+        this.wordCount = words.length;
+        this.caseWordSplit = caseWordSplit;
+        this.words = new byte[wordCount][];
+        this.wordLengths = new int[wordCount];
+        this.wordHasUnderscore = new boolean[wordCount];
+
+        int maxLength = 0;
+        for (int i = 0; i < wordCount; i++) {
+            this.words[i] = words[i].getBytes(StandardCharsets.US_ASCII);
+            this.wordLengths[i] = this.words[i].length;
+            this.wordHasUnderscore[i] = words[i].indexOf('_') >= 0;
+            maxLength = Math.max(maxLength, wordLengths[i]);
+        }
+        this.maxWordLength = maxLength;
+
+        // trie of words, states are numbered in order of creation
+        List<int[]> gotos = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        gotos.add(newGotoRow());
+        stateOutputs.add(new ArrayList<>());
+        for (int i = 0; i < wordCount; i++) {
+            int state = 0;
+            for (byte b : this.words[i]) {
+                int next = gotos.get(state)[b];
+                if (next < 0) {
+                    next = gotos.size();
+                    gotos.get(state)[b] = next;
+                    gotos.add(newGotoRow());
+                    stateOutputs.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            stateOutputs.get(state).add(i);
+        }
+
+        // failure links resolved into full transition table, in breadth-first order
+        int stateCount = gotos.size();
+        int[] table = new int[stateCount * ALPHABET_SIZE];
+        int[] failure = new int[stateCount];
+        var queue = new ArrayDeque<Integer>();
+        for (int symbol = 0; symbol < 128; symbol++) {
+            int next = gotos.get(0)[symbol];
+            if (next > 0) {
+                failure[next] = 0;
+                table[symbol] = next;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateOutputs.get(state).addAll(stateOutputs.get(failure[state]));
+            for (int symbol = 0; symbol < 128; symbol++) {
+                int next = gotos.get(state)[symbol];
+                int fallback = table[failure[state] * ALPHABET_SIZE + symbol];
+                if (next > 0) {
+                    failure[next] = fallback;
+                    table[state * ALPHABET_SIZE + symbol] = next;
+                    queue.add(next);
+                } else {
+                    table[state * ALPHABET_SIZE + symbol] = fallback;
+                }
+            }
+        }
+
+        // bytes above 127 are never part of word, they lead to initial state (0)
+        if (!caseSensitive) {
+            for (int state = 0; state < stateCount; state++) {
+                for (int symbol = 'a'; symbol <= 'z'; symbol++) {
+                    table[state * ALPHABET_SIZE + symbol] = table[state * ALPHABET_SIZE + symbol - 'a' + 'A'];
+                }
+            }
+        }
+        this.transitions = table;
+
+        this.outputs = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            var list = stateOutputs.get(state);
+            if (!list.isEmpty()) {
+                outputs[state] = list.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    /**
+     * @param words words prepared by {@link MatcherUtils#prepareWordsFromTerms(String[], boolean)}
+     */
+    static ContentScanner compile(String[] words, boolean caseSensitive, boolean caseWordSplit) {
+        return new ContentScanner(words, caseSensitive, caseWordSplit);
+    }
+
+    /**
+     * Checks if content in given charset can be scanned as bytes. For case-insensitive
+     * search, upper case forms of ASCII letters in default locale must be ASCII too,
+     * as they are compared by byte.
+     */
+    static boolean isSupported(Charset charset, boolean caseSensitive) {
+        if (!charset.equals(StandardCharsets.UTF_8) && !charset.equals(StandardCharsets.US_ASCII)
+                && !charset.equals(StandardCharsets.ISO_8859_1)) {
+            return false;
+        }
+        if (caseSensitive) {
+            return true;
+        }
+
+        var locale = Locale.getDefault();
+        for (char c = 'a'; c <= 'z'; c++) {
+            var upper = String.valueOf(c).toUpperCase(locale);
+            if (upper.length() != 1 || upper.charAt(0) != (char) (c - 'a' + 'A')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts scan of single document, its content is passed in consecutive chunks.
+     */
+    Scan newScan() {
+        return new Scan();
+    }
+
+    /**
+     * State of scan of single document. Words can span chunks, so last bytes
+     * of previous chunks are kept for boundary checks.
+     */
+    final class Scan {
+        private final boolean[] found = new boolean[wordCount];
+        private int foundCount;
+        private int state;
+        // last bytes of content, byte at position p is stored at index (p & historyMask)
+        private final byte[] history;
+        private final int historyMask;
+        // chunk being scanned, its first byte is at content position chunkStart
+        private ByteBuffer chunk;
+        private int chunkOffset;
+        private long chunkStart;
+
+        private Scan() {
+            int historySize = Integer.highestOneBit(maxWordLength + 1) * 2;
+            this.history = new byte[historySize];
+            this.historyMask = historySize - 1;
+        }
+
+        /**
+         * Scans bytes between position and limit of chunk, chunk is not changed
+         * and not used after return.
+         *
+         * @return true if all words were found, rest of content is not needed
+         */
+        boolean scan(ByteBuffer content) {
+            if (foundCount == wordCount) {
+                return true;
+            }
+
+            chunk = content;
+            chunkOffset = content.position();
+            int limit = content.limit();
+            int[] table = transitions;
+            int[][] stateOutputs = outputs;
+            int current = state;
+            for (int i = chunkOffset; i < limit; i++) {
+                int b = content.get(i) & 0xFF;
+                // words ending before this byte can be checked, it is the next byte
+                if (stateOutputs[current] != null) {
+                    state = current;
+                    if (checkWords(chunkStart + i - chunkOffset, b)) {
+                        chunk = null;
+                        return true;
+                    }
+                }
+                current = table[(current << ALPHABET_BITS) | b];
+            }
+            state = current;
+
+            long chunkEnd = chunkStart + limit - chunkOffset;
+            for (long p = Math.max(chunkStart, chunkEnd - history.length); p < chunkEnd; p++) {
+                history[(int) (p & historyMask)] = content.get(chunkOffset + (int) (p - chunkStart));
+            }
+            chunk = null;
+            chunkStart = chunkEnd;
+            return false;
+        }
+
+        /**
+         * Completes scan at end of content.
+         *
+         * @return true if all words were found
+         */
+        boolean finish() {
+            if (foundCount < wordCount && outputs[state] != null) {
+                checkWords(chunkStart, NO_BYTE);
+            }
+            return foundCount == wordCount;
+        }
+
+        /**
+         * Checks boundaries of words found in current state.
+         *
+         * @param end  content position after last byte of words
+         * @param next byte at end position, NO_BYTE at end of content
+         * @return true if all words were found
+         */
+        private boolean checkWords(long end, int next) {
+            for (int word : outputs[state]) {
+                if (!found[word] && isAcceptedOccurrence(word, end, next)) {
+                    found[word] = true;
+                    foundCount++;
+                }
+            }
+            return foundCount == wordCount;
+        }
+
+        private boolean isAcceptedOccurrence(int word, long end, int next) {
+            long start = end - wordLengths[word];
+            int previous = (start > 0) ? byteAt(start - 1) : NO_BYTE;
+
+            boolean tokenStart = !isWordByte(previous);
+            boolean tokenEnd = !isWordByte(next);
+            if (tokenStart && tokenEnd) {
+                return true;
+            }
+
+            // part of word split before upper case letters
+            if (caseWordSplit && (tokenStart || isUpperCase(byteAt(start))) && (tokenEnd || isUpperCase(next))
+                    && !hasUpperCase(start + 1, end)) {
+                return true;
+            }
+
+            // part of word split on "_"
+            return !wordHasUnderscore[word] && (tokenStart || previous == '_') && (tokenEnd || next == '_');
+        }
+
+        private boolean hasUpperCase(long from, long to) {
+            for (long p = from; p < to; p++) {
+                if (isUpperCase(byteAt(p))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int byteAt(long position) {
+            if (chunk != null && position >= chunkStart) {
+                return chunk.get(chunkOffset + (int) (position - chunkStart)) & 0xFF;
+            }
+            return history[(int) (position & historyMask)] & 0xFF;
+        }
+    }
+
+    private static boolean isUpperCase(int b) {
+        return b >= 'A' && b <= 'Z';
+    }
+
+    /**
+     * @return true for characters matched by "\w" and "'"
+     */
+    private static boolean isWordByte(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '\'';
+    }
+
+    private static int[] newGotoRow() {
+        var row = new int[128];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
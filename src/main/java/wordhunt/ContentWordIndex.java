@@ -0,0 +1,61 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers content queries using content word posting lists stored in index.
+ * Posting list of each word is loaded once per search.
+ *
+ * @author piotr
+ */
+final class ContentWordIndex {
+
+    private final TermIndexWalker walker;
+    private final Map<String, long[]> postings = new ConcurrentHashMap<>();
+
+    ContentWordIndex(TermIndexWalker walker) {
+        this.walker = walker;
+    }
+
+    /**
+     * Checks if content of indexed entry contains all words. Words are compared
+     * in upper case form, so for case-sensitive or no-case-split search positive
+     * result needs to be verified.
+     *
+     * @return result or null if content of entry is not stored in index
+     */
+    Boolean hasAllWords(FoundDocument entry, String[] words) {
+        if (!(entry instanceof MappedFoundDocument) || !((MappedFoundDocument) entry).isContentIndexed()) {
+            return null;
+        }
+
+        var entryId = ((MappedFoundDocument) entry).getEntryId();
+        for (String word : words) {
+            var entries = postings.computeIfAbsent(word.toUpperCase(Locale.getDefault()),
+                    term -> walker.findEntries(IndexConst.SECTION_CONTENT_TERMS, term));
+            if (Arrays.binarySearch(entries, entryId) < 0) {
+                return Boolean.FALSE;
+            }
+        }
+
+        return Boolean.TRUE;
+    }
+}
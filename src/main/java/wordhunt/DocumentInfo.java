@@ -1,14 +1,43 @@
 package wordhunt;
 
+import java.nio.file.attribute.BasicFileAttributes;
+
 public class DocumentInfo {
     private final boolean documentExists;
     private final boolean isDirectory;
     private final boolean isReadable;
+    private final long size;
+    private final long lastModified;
+    private final Object fileKey;
 
     public DocumentInfo(boolean documentExists, boolean isDirectory, boolean isReadable) {
+        this(documentExists, isDirectory, isReadable, FoundDocument.UNKNOWN_STAMP, FoundDocument.UNKNOWN_STAMP);
+    }
+
+    public DocumentInfo(boolean documentExists, boolean isDirectory, boolean isReadable, long size, long lastModified) {
+        this(documentExists, isDirectory, isReadable, size, lastModified, null);
+    }
+
+    /**
+     * @param fileKey file identity provided by file system (see BasicFileAttributes.fileKey), can be null
+     */
+    public DocumentInfo(boolean documentExists, boolean isDirectory, boolean isReadable, long size, long lastModified,
+                        Object fileKey) {
         this.documentExists = documentExists;
         this.isDirectory = isDirectory;
         this.isReadable = isReadable;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Creates info from attributes read during directory walk. Readability
+     * is not checked, errors are reported when document is read.
+     */
+    public static DocumentInfo fromAttributes(BasicFileAttributes attributes) {
+        return new DocumentInfo(true, attributes.isDirectory(), true,
+                attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
     }
 
     public boolean documentExists() {
@@ -22,5 +51,26 @@ public class DocumentInfo {
     public boolean isReadable() {
         return isReadable;
     }
-}
 
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return file identity (e.g. device and inode) or null if not provided by file system
+     */
+    public Object getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Checks if document still has size and modification time recorded in index entry.
+     */
+    public boolean hasSameStamp(FoundDocument entry) {
+        return entry.hasStamp() && entry.getSize() == size && entry.getLastModified() == lastModified;
+    }
+}
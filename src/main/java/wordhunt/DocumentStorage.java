@@ -1,7 +1,9 @@
 package wordhunt;
 
 import java.io.BufferedReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.function.Predicate;
 
 /**
  * Abstract document storage.
@@ -9,6 +11,17 @@ import java.nio.charset.Charset;
 public interface DocumentStorage {
     DocumentInfo getDocumentInfo(String absolutePath);
     BufferedReader getDocumentReader(String absolutePath, Charset charset);
+
+    /**
+     * Passes content of document to handler in consecutive chunks (between
+     * position and limit of buffer), until handler returns true or content ends.
+     * Buffers are valid only during call of handler.
+     *
+     * @param handler returns true if rest of content is not needed
+     * @return false if document was truncated while it was read, so its content is incomplete
+     */
+    boolean readDocumentContent(String absolutePath, Predicate<ByteBuffer> handler);
+
     boolean isSameDocumentPath(String path1, String path2);
     boolean isDirectory(String filePath);
     boolean documentExists(String absolutePath);
@@ -1,24 +1,58 @@
 package wordhunt;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Predicate;
 
 /**
  * Abstraction layer for I/O operations done on documents (files).
  */
 public class DocumentStorageViaFiles implements DocumentStorage {
+
+    // files of this size and larger are mapped to memory when content is read
+    static final long DEFAULT_MAP_THRESHOLD = 1024 * 1024;
+    // maximum size of mapped region, larger files are mapped in parts
+    private static final long MAP_REGION_SIZE = 256L * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final long mapThreshold;
+    private final long mapRegionSize;
+    // direct buffers: channel reads into heap buffers are copied through a temporary direct buffer
+    private final SampleBufferPool readBuffers = new SampleBufferPool(READ_BUFFER_SIZE);
+
+    public DocumentStorageViaFiles() {
+        this(DEFAULT_MAP_THRESHOLD, MAP_REGION_SIZE);
+    }
+
+    /**
+     * @param mapThreshold  minimum size of file mapped to memory
+     * @param mapRegionSize maximum size of mapped region
+     */
+    DocumentStorageViaFiles(long mapThreshold, long mapRegionSize) {
+        this.mapThreshold = mapThreshold;
+        this.mapRegionSize = mapRegionSize;
+    }
+
     public boolean documentExists(String absolutePath) {
         return Paths.get(absolutePath).toFile().exists();
     }
 
     public DocumentInfo getDocumentInfo(String absolutePath) {
-        File entryFile = new File(absolutePath);
-        boolean isDirectory = entryFile.isDirectory();
-        boolean exists = entryFile.exists();
-        boolean canRead = entryFile.canRead();
-        return new DocumentInfo(exists, isDirectory, canRead);
+        var path = Paths.get(absolutePath);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return new DocumentInfo(false, false, false);
+        }
+
+        return new DocumentInfo(true, attributes.isDirectory(), Files.isReadable(path),
+                attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
     }
 
 
@@ -32,6 +66,60 @@ public class DocumentStorageViaFiles implements DocumentStorage {
         }
     }
 
+    /**
+     * Reads content into pooled buffers or, for large files, maps it to memory
+     * and passes mapped regions, so content is not copied to heap.
+     * Access to mapped region of file truncated by other process fails with
+     * InternalError (SIGBUS), such file is reported as incomplete.
+     */
+    public boolean readDocumentContent(String absolutePath, Predicate<ByteBuffer> handler) {
+        try (var in = new FileInputStream(absolutePath)) {
+            var channel = in.getChannel();
+            var size = channel.size();
+            if (size < mapThreshold) {
+                readContent(channel, handler);
+                return true;
+            }
+
+            try {
+                mapContent(channel, size, handler);
+                return true;
+            } catch (InternalError e) {
+                // part of content was already passed to handler, so reading can't be continued
+                if (channel.size() >= size) {
+                    throw e;
+                }
+                return false;
+            }
+        } catch (IOException e) {
+            throw new DocumentAccessException("Document access error, path: " + absolutePath, e);
+        }
+    }
+
+    private void mapContent(FileChannel channel, long size, Predicate<ByteBuffer> handler) throws IOException {
+        for (long offset = 0; offset < size; offset += mapRegionSize) {
+            var region = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(mapRegionSize, size - offset));
+            if (handler.test(region)) {
+                return;
+            }
+        }
+    }
+
+    private void readContent(FileChannel channel, Predicate<ByteBuffer> handler) throws IOException {
+        var buffer = readBuffers.acquire();
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                if (handler.test(buffer)) {
+                    return;
+                }
+                buffer.clear();
+            }
+        } finally {
+            readBuffers.release(buffer);
+        }
+    }
+
     public boolean isSameDocumentPath(String path1, String path2) {
         try {
             return Files.isSameFile(Paths.get(path1), Paths.get(path2));
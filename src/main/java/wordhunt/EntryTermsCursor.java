@@ -0,0 +1,123 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Returns terms of entries from posting lists of a term section. Entries
+ * are requested in ascending id order (order of index), so posting lists
+ * are merged in a single pass - only current position of each list is kept
+ * in memory, terms are decoded when they are returned for the first time.
+ *
+ * @author piotr
+ */
+public final class EntryTermsCursor {
+
+    private final ByteBuffer data;
+    private final ByteBuffer cursor;
+    private final PriorityQueue<TermPostings> pending = new PriorityQueue<>(Comparator.comparingLong(term -> term.entryId));
+    private long lastEntryId = -1;
+
+    EntryTermsCursor(ByteBuffer data) {
+        this.data = data;
+        this.cursor = data.duplicate();
+    }
+
+    /**
+     * Adds term stored in index.
+     *
+     * @param termOffset     offset of UTF-8 encoded term
+     * @param termLength     length of encoded term in bytes
+     * @param postingsOffset offset of posting list: entry count followed by delta-coded entry ids
+     */
+    void addTerm(int termOffset, int termLength, int postingsOffset) {
+        cursor.position(postingsOffset);
+        var count = IndexBufferUtils.readVarInt(cursor);
+        var term = new TermPostings(termOffset, termLength, cursor.position(), count);
+        if (term.advance(cursor)) {
+            pending.add(term);
+        }
+    }
+
+    /**
+     * Returns terms of entry. Terms of each entry are returned once.
+     *
+     * @return terms of entry or null if entry does not follow entry requested before
+     */
+    public synchronized List<String> termsOf(long entryId) {
+        if (entryId <= lastEntryId) {
+            return null;
+        }
+        lastEntryId = entryId;
+
+        var result = new ArrayList<String>();
+        TermPostings head;
+        while ((head = pending.peek()) != null && head.entryId <= entryId) {
+            pending.poll();
+            if (head.entryId == entryId) {
+                result.add(head.getTerm(data));
+            }
+            if (head.advance(cursor)) {
+                pending.add(head);
+            }
+        }
+        return result;
+    }
+
+    private static final class TermPostings {
+        private final int termOffset;
+        private final int termLength;
+        private String term;
+        private int position;
+        private int remaining;
+        private long entryId;
+
+        TermPostings(int termOffset, int termLength, int position, int count) {
+            this.termOffset = termOffset;
+            this.termLength = termLength;
+            this.position = position;
+            this.remaining = count;
+        }
+
+        /**
+         * Moves to next entry id of posting list.
+         *
+         * @return false if list has no more entries
+         */
+        boolean advance(ByteBuffer cursor) {
+            if (remaining == 0) {
+                return false;
+            }
+            cursor.position(position);
+            entryId += IndexBufferUtils.readVarLong(cursor);
+            position = cursor.position();
+            remaining--;
+            return true;
+        }
+
+        String getTerm(ByteBuffer data) {
+            if (term == null) {
+                term = IndexBufferUtils.decodeString(data, termOffset, termLength);
+            }
+            return term;
+        }
+    }
+}
@@ -20,7 +20,10 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Checks if file contains in its body required words.
@@ -30,6 +33,8 @@ public class FileContentMatcher extends BaseFileMatcher {
 
     private static final String CTX_CONTENT_WORDS_ANY = "content_words_any";
     private static final String CTX_CONTENT_WORDS_CONTENT = "content_words_content";
+    private static final String CTX_CONTENT_SCANNERS = "content_scanners";
+    private static final int MAX_CACHED_SCANNERS = 64;
     private final FileTypeDetector fileTypeDetector;
     private final DocumentStorage documentStorage;
 
@@ -53,26 +58,82 @@ public class FileContentMatcher extends BaseFileMatcher {
 
     @Override
     public Boolean isMatching(FoundDocument entry, SearchContext context, Boolean acceptedStatus) {
-        var wordsForPath = getWordsFromContext(context, CTX_CONTENT_WORDS_ANY);
-        var wordsForContent = getWordsFromContext(context, CTX_CONTENT_WORDS_CONTENT);
+        var candidate = SearchCandidate.ofEntry(entry, getSearchRootDir());
+        var matchedStatus = matchCandidate(candidate, context, acceptedStatus);
+
+        if (Boolean.FALSE.equals(matchedStatus)) {
+            return Boolean.FALSE;
+        }
+
+        return nextMatcherResult(entry, context, matchedStatus);
+    }
+
+    @Override
+    public Boolean isMatching(String absolutePath, boolean isDirectory, SearchContext context, Boolean acceptedStatus) {
+        var candidate = SearchCandidate.ofWalkedFile(absolutePath, isDirectory, getSearchRootDir());
+        var matchedStatus = matchCandidate(candidate, context, acceptedStatus);
+
+        if (Boolean.FALSE.equals(matchedStatus)) {
+            return Boolean.FALSE;
+        }
+
+        return nextMatcherResult(absolutePath, isDirectory, context, matchedStatus);
+    }
+
+    private Boolean matchCandidate(SearchCandidate candidate, SearchContext context, Boolean acceptedStatus) {
+        var matchedStatus = checkFileType(candidate, context, acceptedStatus);
+        if (!Boolean.FALSE.equals(matchedStatus)) {
+            matchedStatus = checkDocumentInfo(candidate, context, matchedStatus);
+        }
+        if (!Boolean.FALSE.equals(matchedStatus)) {
+            matchedStatus = checkContent(candidate, context, matchedStatus);
+        }
+        return matchedStatus;
+    }
+
+    /**
+     * Stage finding words left for content. Rejects directories with such words and
+     * entries with mime type or charset (from index) which can't be read.
+     */
+    Boolean checkFileType(SearchCandidate candidate, SearchContext context, Boolean acceptedStatus) {
+        var wordsLeftForContent = getWordsLeftForContent(candidate.getFilePath(), context);
 
         // No content conditions to check
-        if (wordsForPath == null && wordsForContent == null) {
-            return nextMatcherResult(entry, context, acceptedStatus);
+        if (wordsLeftForContent == null) {
+            return acceptedStatus;
         }
 
-        var filePath = entry.getFilePath();
-        var nonMatchingWordsInPath = stripMatchingWords(
-            wordsForPath != null ? wordsForPath : new String[]{}, 
-            filePath
-        );
-        
-        var wordsLeftForContent = ArrayUtils.merge(nonMatchingWordsInPath, wordsForContent);
-        var absolutePath = buildEntryAbsolutePath(filePath);
-        var documentInfo = documentStorage.getDocumentInfo(absolutePath);
+        if (Boolean.FALSE.equals(acceptedStatus) || isRejectedByFlags(candidate.isDirectory(), wordsLeftForContent)) {
+            return Boolean.FALSE;
+        }
+
+        candidate.setWordsLeftForContent(wordsLeftForContent);
+
+        // Can't read the content with charset from index
+        var document = candidate.getDocument();
+        if (wordsLeftForContent.length > 0 && document != null
+                && !canHandleContent(document.getMimeType(), document.getCharsetName())) {
+            return Boolean.FALSE;
+        }
+
+        return acceptedStatus;
+    }
+
+    /**
+     * Stage reading document attributes. Accepts existing document if all words were
+     * found in its path, rejects documents which can't be read.
+     */
+    Boolean checkDocumentInfo(SearchCandidate candidate, SearchContext context, Boolean acceptedStatus) {
+        var wordsLeftForContent = candidate.getWordsLeftForContent();
+        if (wordsLeftForContent == null) {
+            return acceptedStatus;
+        }
+
+        var documentInfo = documentStorage.getDocumentInfo(candidate.getAbsolutePath());
+        candidate.setDocumentInfo(documentInfo);
 
         // Fast fail conditions
-        if (documentInfo.isDirectory() || !documentInfo.documentExists() || 
+        if (documentInfo.isDirectory() || !documentInfo.documentExists() ||
             !documentInfo.isReadable() || wordsLeftForContent.length == 0) {
 
             // No words to check or can't check the document
@@ -83,36 +144,83 @@ public class FileContentMatcher extends BaseFileMatcher {
                 return Boolean.FALSE;
             }
 
-            return nextMatcherResult(entry, context, Boolean.TRUE);
+            return Boolean.TRUE;
         }
 
-        // Can't read the content with current charset
-        if (!canHandleContent(entry.getMimeType(), entry.getCharsetName())) {
+        // Empty file
+        if (documentInfo.getSize() == 0) {
+            return Boolean.FALSE;
+        }
+
+        return acceptedStatus;
+    }
+
+    /**
+     * Stage checking words in content. File type of walked file is detected
+     * here, as it requires reading of file sample.
+     */
+    Boolean checkContent(SearchCandidate candidate, SearchContext context, Boolean acceptedStatus) {
+        var wordsLeftForContent = candidate.getWordsLeftForContent();
+        if (wordsLeftForContent == null || wordsLeftForContent.length == 0) {
+            return acceptedStatus;
+        }
+
+        var document = candidate.getDocument();
+        if (document == null) {
+            document = detectDocumentType(candidate);
+            candidate.setDocument(document);
+        }
+
+        // Content which can't be read with its charset
+        if (!canHandleContent(document.getMimeType(), document.getCharsetName())) {
             return Boolean.FALSE;
         }
 
         // Check if the content contains all required words
-        var contentMatches = hasAllWordsInFile(wordsLeftForContent, entry.getCharsetName(), absolutePath);
-        
-        // If already rejected or content doesn't match, reject
-        if (Boolean.FALSE.equals(acceptedStatus) || !contentMatches) {
+        if (!hasAllWordsInContent(document, candidate.getDocumentInfo(), wordsLeftForContent, context,
+                candidate.getAbsolutePath())) {
             return Boolean.FALSE;
         }
 
-        // Content matches, check next matcher
-        return nextMatcherResult(entry, context, Boolean.TRUE);
+        return Boolean.TRUE;
     }
 
-    @Override
-    public Boolean isMatching(String absolutePath, boolean isDirectory, SearchContext context, Boolean acceptedStatus) {
-        var relative = FilePathUtils.absoluteToRelativePath(absolutePath, getSearchRootDir());
-        var fileType = fileTypeDetector.detectFileType(absolutePath);
+    private FoundDocument detectDocumentType(SearchCandidate candidate) {
+        var fileType = fileTypeDetector.detectFileType(candidate.getAbsolutePath(), candidate.getDocumentInfo());
         if (fileType == null) {
             fileType = FileType.UNKNOWN_FILE_TYPE;
         }
-        
-        var document = new FoundDocument(relative, isDirectory, fileType.getMimeType(), fileType.getCharsetName());
-        return isMatching(document, context, acceptedStatus);
+        return new FoundDocument(candidate.getFilePath(), candidate.isDirectory(), fileType.getMimeType(),
+                fileType.getCharsetName());
+    }
+
+    /**
+     * @return content words not found in path, null if there are no content conditions
+     */
+    private String[] getWordsLeftForContent(String filePath, SearchContext context) {
+        var wordsForPath = getWordsFromContext(context, CTX_CONTENT_WORDS_ANY);
+        var wordsForContent = getWordsFromContext(context, CTX_CONTENT_WORDS_CONTENT);
+
+        if (isEmpty(wordsForPath) && isEmpty(wordsForContent)) {
+            return null;
+        }
+
+        var nonMatchingWordsInPath = stripMatchingWords(
+            wordsForPath != null ? wordsForPath : new String[]{},
+            filePath
+        );
+        return ArrayUtils.merge(nonMatchingWordsInPath, wordsForContent);
+    }
+
+    /**
+     * Directory has no content, it is accepted only if all words are in its path.
+     */
+    private boolean isRejectedByFlags(boolean isDirectory, String[] wordsLeftForContent) {
+        return isDirectory && (wordsLeftForContent.length > 0 || !isIncludeDirsEnabled());
+    }
+
+    private static boolean isEmpty(String[] words) {
+        return words == null || words.length == 0;
     }
 
     private boolean canHandleContent(String mimeType, String charsetName) {
@@ -126,9 +234,40 @@ public class FileContentMatcher extends BaseFileMatcher {
         return resultList.toArray(new String[0]);
     }
 
-    private boolean hasAllWordsInFile(String[] words, String charsetName, String absolutePath) {
+    /**
+     * Checks words using content index if entry is unchanged since indexing,
+     * otherwise reads the file.
+     */
+    private boolean hasAllWordsInContent(FoundDocument entry, DocumentInfo documentInfo, String[] words,
+                                         SearchContext context, String absolutePath) {
+        var contentIndex = (ContentWordIndex) context.getValue(SearchConst.CTX_CONTENT_INDEX);
+        if (contentIndex != null && documentInfo.hasSameStamp(entry)) {
+            var indexResult = contentIndex.hasAllWords(entry, words);
+            if (Boolean.FALSE.equals(indexResult)) {
+                return false;
+            }
+
+            // index words are upper case with case split, result is exact only in default mode
+            if (Boolean.TRUE.equals(indexResult) && !isCaseSensitiveEnabled() && isCaseWordSplitEnabled()) {
+                return true;
+            }
+        }
+
+        return hasAllWordsInFile(words, entry.getCharsetName(), absolutePath, context);
+    }
+
+    private boolean hasAllWordsInFile(String[] words, String charsetName, String absolutePath, SearchContext context) {
         var charset = Charset.forName(charsetName);
 
+        if (ContentScanner.isSupported(charset, isCaseSensitiveEnabled())) {
+            var scan = getContentScanner(words, context).newScan();
+            // document truncated during scan is skipped like unreadable one
+            if (!documentStorage.readDocumentContent(absolutePath, scan::scan)) {
+                return false;
+            }
+            return scan.finish();
+        }
+
         try (var in = documentStorage.getDocumentReader(absolutePath, charset)) {
             return hasAllWords(in, words);
         } catch (UnsupportedEncodingException uee) {
@@ -140,9 +279,27 @@ public class FileContentMatcher extends BaseFileMatcher {
         }
     }
 
-    private String buildEntryAbsolutePath(String filePath) {
-        var rootPath = getSearchRootDir();
-        return FilePathUtils.toAbsolutePath(rootPath, filePath);
+    /**
+     * Returns scanner compiled for words. Words left for content depend on path of
+     * document, so a few scanners are kept in context.
+     */
+    @SuppressWarnings("unchecked")
+    private ContentScanner getContentScanner(String[] words, SearchContext context) {
+        var scanners = (Map<List<String>, ContentScanner>) context.getValue(CTX_CONTENT_SCANNERS);
+        if (scanners == null) {
+            scanners = new HashMap<>();
+            context.setValue(CTX_CONTENT_SCANNERS, scanners);
+        }
+
+        var key = Arrays.asList(words);
+        var scanner = scanners.get(key);
+        if (scanner == null) {
+            scanner = ContentScanner.compile(words, isCaseSensitiveEnabled(), isCaseWordSplitEnabled());
+            if (scanners.size() < MAX_CACHED_SCANNERS) {
+                scanners.put(key, scanner);
+            }
+        }
+        return scanner;
     }
 
     private boolean hasAllWords(BufferedReader in, String[] words) throws IOException {
@@ -15,9 +15,17 @@ limitations under the License.
  */
 package wordhunt;
 
-import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 
@@ -28,86 +36,521 @@ import java.util.function.Consumer;
  */
 public class FileIndexer {
 
+    // number of prepared entries waiting for writer, per detection thread
+    private static final int PIPELINE_CAPACITY_PER_THREAD = 64;
+    // limits of indexing using virtual threads: entries in flight and files read at the same time
+    private static final int VIRTUAL_THREAD_PIPELINE_CAPACITY = 16384;
+    private static final int VIRTUAL_THREAD_MAX_OPEN_FILES = 512;
+    // minimum time between checkpoints of index build
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 30000;
+
     private final SearchConfig config;
     private final String dirName;
     private final FileTypeDetector detector;
-    private final IndexEntryWriter entryWriter;
+    private final IndexEntryWriterFactory entryWriterFactory;
+    private final IndexWalkerFactory indexWalkerFactory;
     private final IndexStorage indexStorage;
     private final DocumentStorage documentStorage;
     private final Consumer<String> indexingOutput;
 
-    public FileIndexer(SearchConfig config, String dirName, FileTypeDetector detector, IndexEntryWriter entryWriter,
-                       IndexStorage indexStorage, DocumentStorage documentStorage, Consumer<String> indexingOutput) {
+    private int entryCount;
+    private final AtomicInteger detectedCount = new AtomicInteger();
+    private int listedDirCount;
+    private boolean reuseDirectories = true;
+    private Set<String> changedDirs;
+    // modification time of updated index, hidden ignore files newer than it are changed
+    private long indexLastModified = FoundDocument.UNKNOWN_STAMP;
+    private long checkpointIntervalMillis = CHECKPOINT_INTERVAL_MILLIS;
+    private int writtenDirCount;
+    private long lastCheckpointTime;
+    private boolean checkpointWritten;
+    // checkpoint of interrupted build, its files are removed when a newer checkpoint or index is written
+    private IndexCheckpoint previousCheckpoint;
+
+    public FileIndexer(SearchConfig config, String dirName, FileTypeDetector detector, IndexEntryWriterFactory entryWriterFactory,
+                       IndexWalkerFactory indexWalkerFactory, IndexStorage indexStorage, DocumentStorage documentStorage,
+                       Consumer<String> indexingOutput) {
         this.config = config;
         this.dirName = dirName;
         this.detector = detector;
-        this.entryWriter = entryWriter;
+        this.entryWriterFactory = entryWriterFactory;
+        this.indexWalkerFactory = indexWalkerFactory;
         this.indexStorage = indexStorage;
         this.documentStorage = documentStorage;
         this.indexingOutput = indexingOutput;
     }
 
+    /**
+     * Builds new index and publishes it in place of existing one.
+     */
     public void rebuildIndex() {
-        if (indexExists()) {
-            removeIndex();
-        }
-        buildIndex();
+        var previousManifest = indexExists() ? IndexManifest.read(indexStorage, getIndexAbsolutePath()) : null;
+        writeIndex(null, previousManifest);
+        indexingOutput.accept("Index created");
     }
 
     public void buildIndex() {
-        if (!indexStorage.createNewIndex(getIndexAbsolutePath())) {
+        if (indexExists()) {
             throw new SearchException("Cannot create an index file - already exists: [" + getIndexAbsolutePath() + "]");
         }
 
-        try {
-            String fileName = getIndexAbsolutePath();
+        writeIndex(null, null);
+        indexingOutput.accept("Index created");
+    }
 
-            try (Writer writer = indexStorage.getWriterForIndexFile(fileName)) {
-                try (BufferedWriter bw = new BufferedWriter(writer)) {
-                    buildIndex(bw);
-                }
+    /**
+     * Continues build interrupted after a checkpoint was written. Complete data
+     * of the interrupted build is used like existing index on update:
+     * completed directories are not listed again and their files are not
+     * detected again unless they changed. New index is written from start
+     * and published in place of existing one.
+     */
+    public void resumeIndex() {
+        String indexPath = getIndexAbsolutePath();
+        var checkpoint = IndexCheckpoint.read(indexStorage, indexPath);
+        if (checkpoint == null) {
+            indexingOutput.accept("No checkpoint found, building index from start");
+            rebuildIndex();
+            return;
+        }
+        if (checkpoint.getSourcePath() != null && !documentStorage.isSameDocumentPath(checkpoint.getSourcePath(), dirName)) {
+            throw new SearchException(String.format("Checkpoint was written for different directory: [%s]", checkpoint.getSourcePath()));
+        }
+
+        indexingOutput.accept(String.format("Resuming from checkpoint, entries: %d, completed directories: %d",
+                checkpoint.getEntryCount(), checkpoint.getDirCount()));
+        var snapshot = checkpoint.loadSnapshot(indexStorage);
+        if (checkpoint.getParts().size() > 1 && config.getValue(SearchConst.CFG_INDEX_SEGMENTS) == null) {
+            config.setValue(SearchConst.CFG_INDEX_SEGMENTS, checkpoint.getParts().size());
+        }
+        adoptWalkRules(snapshot);
+        this.changedDirs = null;
+        this.indexLastModified = FoundDocument.UNKNOWN_STAMP;
+        this.previousCheckpoint = checkpoint;
+
+        var previousManifest = indexExists() ? IndexManifest.read(indexStorage, indexPath) : null;
+        writeIndex(snapshot, previousManifest);
+        indexingOutput.accept("Index created");
+    }
+
+    /**
+     * Updates existing index. File types (and content words) are taken from
+     * existing index for files with unchanged size and modification time,
+     * only new or modified files are detected again. Entries of removed files
+     * are dropped. Directories with unchanged modification time are not listed
+     * (see IncrementalFileWalker).
+     */
+    public void updateIndex() {
+        updateIndex(null);
+    }
+
+    /**
+     * Updates existing index using list of directories with changed items.
+     * Other directories are assumed to be unchanged since the index was
+     * written, so they are not checked at all.
+     *
+     * @param changedDirs relative paths of changed directories (in form used by index, root directory is
+     *                    empty path), null if not known
+     */
+    public void updateIndex(Set<String> changedDirs) {
+        if (!indexExists()) {
+            buildIndex();
+            return;
+        }
+
+        String indexPath = getIndexAbsolutePath();
+        IndexManifest previousManifest = IndexManifest.read(indexStorage, indexPath);
+        IndexSnapshot snapshot = loadSnapshot(indexPath, previousManifest);
+        if (snapshot.getSourcePath() != null && !documentStorage.isSameDocumentPath(snapshot.getSourcePath(), dirName)) {
+            throw new SearchException(String.format("Index was built for different directory: [%s]", snapshot.getSourcePath()));
+        }
+
+        if (previousManifest != null && config.getValue(SearchConst.CFG_INDEX_SEGMENTS) == null) {
+            config.setValue(SearchConst.CFG_INDEX_SEGMENTS, previousManifest.getSegmentPaths().size());
+        }
+
+        adoptWalkRules(snapshot);
+        this.changedDirs = reuseDirectories ? changedDirs : null;
+        this.indexLastModified = documentStorage.getDocumentInfo(indexPath).getLastModified();
+
+        writeIndex(snapshot, previousManifest);
+
+        indexingOutput.accept(String.format("Index updated, entries: %d (previously %d), detected: %d, listed directories: %d",
+                entryCount, snapshot.size(), detectedCount.get(), listedDirCount));
+    }
+
+    /**
+     * Sets minimum time between checkpoints written during build.
+     */
+    void setCheckpointInterval(long millis) {
+        this.checkpointIntervalMillis = millis;
+    }
+
+    /**
+     * Walk rules of existing index are kept unless new ones are given.
+     * When they differ, all directories are listed.
+     */
+    private void adoptWalkRules(IndexSnapshot snapshot) {
+        var walkFilter = WalkFilter.fromConfig(config);
+        reuseDirectories = true;
+        if (walkFilter.isEmpty()) {
+            snapshot.getWalkFilter().applyTo(config);
+        } else if (!walkFilter.equals(snapshot.getWalkFilter())) {
+            indexingOutput.accept(String.format("Walk rules changed, listing all directories (%s)", walkFilter));
+            reuseDirectories = false;
+        }
+    }
+
+    /**
+     * Writes index to a temporary file and publishes it with atomic rename,
+     * so concurrent searches use either complete previous index or the new one.
+     * Checkpoints are written periodically during build. Temporary file is
+     * removed if build fails before first checkpoint, otherwise it is kept
+     * for resuming the build.
+     *
+     * @param snapshot         existing index or null
+     * @param previousManifest manifest of existing index, its segments are removed after publication
+     */
+    private void writeIndex(IndexSnapshot snapshot, IndexManifest previousManifest) {
+        String indexPath = getIndexAbsolutePath();
+        String tempPath = indexStorage.createTempIndex(indexPath);
+        if (previousCheckpoint == null) {
+            previousCheckpoint = readPreviousCheckpoint(indexPath);
+        }
+        lastCheckpointTime = System.currentTimeMillis();
+
+        try (IndexEntryWriter writer = entryWriterFactory.newWriter(indexPath, tempPath)) {
+            buildIndex(writer, snapshot, tempPath);
+        } catch (RuntimeException e) {
+            if (checkpointWritten) {
+                indexingOutput.accept("Index build failed, it can be continued from last checkpoint with --resume");
+            } else {
+                discardIndex(tempPath);
             }
+            throw e;
+        }
+
+        indexStorage.publishIndex(tempPath, indexPath);
+        removeSegments(previousManifest);
+        if (checkpointWritten || previousCheckpoint != null) {
+            IndexCheckpoint.remove(indexStorage, indexPath);
+        }
+        if (previousCheckpoint != null) {
+            previousCheckpoint.removeOutput(indexStorage, null);
+            previousCheckpoint = null;
+        }
+
+        var ioBudget = config.getIoBudget();
+        if (ioBudget.isLimited()) {
+            indexingOutput.accept(String.format("I/O budget (%s), total wait: %d ms", ioBudget, ioBudget.getWaitMillis()));
+        }
+    }
 
-            indexingOutput.accept("Index created");
+    /**
+     * @return checkpoint of interrupted build or null if there is none or it cannot be read
+     */
+    private IndexCheckpoint readPreviousCheckpoint(String indexPath) {
+        try {
+            return IndexCheckpoint.read(indexStorage, indexPath);
+        } catch (IndexAccessException | SearchException e) {
+            // damaged checkpoint is replaced by the first checkpoint of this build
+            return null;
+        }
+    }
+
+    /**
+     * Writes checkpoint pointing to data written so far, unless writer does not support checkpoints.
+     */
+    private void writeCheckpoint(IndexEntryWriter writer, String tempPath) {
+        var parts = writer.checkpoint();
+        if (parts.isEmpty()) {
+            return;
+        }
+
+        var indexPath = getIndexAbsolutePath();
+        new IndexCheckpoint(FilePathUtils.toCanonicalPath(dirName), tempPath, parts, entryCount, writtenDirCount)
+                .write(indexStorage, indexPath);
+        lastCheckpointTime = System.currentTimeMillis();
+        checkpointWritten = true;
+
+        // data of interrupted build is no longer reachable
+        if (previousCheckpoint != null) {
+            previousCheckpoint.removeOutput(indexStorage, tempPath);
+            previousCheckpoint = null;
+        }
+    }
+
+    private void discardIndex(String tempPath) {
+        if (indexStorage.indexExists(tempPath)) {
+            removeSegments(IndexManifest.read(indexStorage, tempPath));
+            indexStorage.removeIndex(tempPath);
+        }
+    }
 
-        } catch (IOException ioe) {
-            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+    /**
+     * Reads existing index, all its segments if it is split.
+     */
+    private IndexSnapshot loadSnapshot(String indexPath, IndexManifest manifest) {
+        var snapshot = new IndexSnapshot();
+        var indexPaths = (manifest != null) ? manifest.getSegmentPaths() : List.of(indexPath);
+        for (String path : indexPaths) {
+            try (IndexWalker walker = indexWalkerFactory.newWalker(path)) {
+                snapshot.addIndex(walker);
+            } catch (SearchException se) {
+                throw se;
+            } catch (Exception e) {
+                throw new SearchException("Unknown error: " + e.getMessage(), e);
+            }
         }
+        return snapshot;
     }
 
+    private void removeSegments(IndexManifest manifest) {
+        if (manifest == null) {
+            return;
+        }
 
-    private void buildIndex(final BufferedWriter writer) throws IOException {
-        FileWalker walker = new FileWalker();
+        for (String segmentPath : manifest.getSegmentPaths()) {
+            if (indexStorage.indexExists(segmentPath)) {
+                indexStorage.removeIndex(segmentPath);
+            }
+        }
+    }
 
-        writeMeta(writer, IndexConst.META_SOURCE_PATH, FilePathUtils.toCanonicalPath(dirName));
+    /**
+     * Writes entries for all files in directory.
+     *
+     * @param snapshot existing index or null
+     * @param tempPath path of file written by writer, stored in checkpoints
+     */
+    private void buildIndex(final IndexEntryWriter writer, final IndexSnapshot snapshot, final String tempPath) {
+        writer.writeMeta(IndexConst.META_SOURCE_PATH, FilePathUtils.toCanonicalPath(dirName));
+        WalkFilter.fromConfig(config).writeMeta(writer);
         final String indexPathTxt = getIndexAbsolutePath();
+        final boolean withContent = Boolean.TRUE.equals(config.getValue(SearchConst.CFG_INDEX_WITH_CONTENT))
+                || (snapshot != null && snapshot.isWithContent());
 
-        walker.walk(dirName, (absolutePath, isDirectory) -> {
+        var virtualThreadExecutor = Boolean.TRUE.equals(config.getValue(SearchConst.CFG_INDEX_VIRTUAL_THREADS))
+                ? newVirtualThreadExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            // each item gets own virtual thread, only number of open files is limited
+            var openFiles = new Semaphore(VIRTUAL_THREAD_MAX_OPEN_FILES);
+            try (var pipeline = new OrderedPipeline<PreparedItem>("wordhunt-indexer", virtualThreadExecutor,
+                    VIRTUAL_THREAD_PIPELINE_CAPACITY, item -> writeItem(writer, snapshot, item, tempPath))) {
+                walkItems(snapshot, indexPathTxt, (absolutePath, isDirectory, info, previous) ->
+                        pipeline.submit(() -> prepareItem(openFiles, absolutePath, isDirectory, info, previous, snapshot, withContent)));
+                pipeline.finish();
+            }
+            return;
+        }
+
+        var threadCount = config.getThreadCount();
+        if (threadCount <= 1) {
+            walkItems(snapshot, indexPathTxt, (absolutePath, isDirectory, info, previous) ->
+                    writeItem(writer, snapshot, prepareItem(absolutePath, isDirectory, info, previous, snapshot, withContent), tempPath));
+            return;
+        }
+
+        try (var pipeline = new OrderedPipeline<PreparedItem>("wordhunt-indexer", threadCount,
+                threadCount * PIPELINE_CAPACITY_PER_THREAD, item -> writeItem(writer, snapshot, item, tempPath))) {
+            walkItems(snapshot, indexPathTxt, (absolutePath, isDirectory, info, previous) ->
+                    pipeline.submit(() -> prepareItem(absolutePath, isDirectory, info, previous, snapshot, withContent)));
+            pipeline.finish();
+        }
+    }
 
-            if (documentStorage.isSameDocumentPath(absolutePath, indexPathTxt)) {
+    /**
+     * Passes all items of directory except index files to visitor, in walk order.
+     *
+     * @param snapshot existing index or null
+     */
+    private void walkItems(IndexSnapshot snapshot, String indexPath, IncrementalFileWalker.Visitor itemVisitor) {
+        IncrementalFileWalker.Visitor visitor = (absolutePath, isDirectory, info, previous) -> {
+            if (isIndexFile(absolutePath, indexPath)) {
                 return;
             }
+            itemVisitor.handleItem(absolutePath, isDirectory, info, previous);
+        };
+
+        if (snapshot == null) {
+            FileWalker.newWalker(config).walk(dirName, new FileVisitor() {
+                @Override
+                public void handleItem(String absolutePath, boolean isDirectory) {
+                    visitor.handleItem(absolutePath, isDirectory, null, null);
+                }
+
+                @Override
+                public void handleItem(String absolutePath, boolean isDirectory, BasicFileAttributes attributes) {
+                    visitor.handleItem(absolutePath, isDirectory, toDocumentInfo(absolutePath, attributes), null);
+                }
+            });
+        } else {
+            var walker = new IncrementalFileWalker(snapshot, documentStorage, WalkFilter.fromConfig(config), reuseDirectories,
+                    changedDirs, config.getIoBudget(), indexLastModified);
+            walker.walk(dirName, visitor);
+            listedDirCount = walker.getListedDirCount();
+        }
+    }
+
+    /**
+     * Builds entry of a single item: reads its attributes, detects file type
+     * and reads content words. Safe to be called from many threads.
+     *
+     * @param info     current attributes of item or null if they were not read
+     * @param previous unchanged entry of item in existing index or null
+     */
+    private PreparedItem prepareItem(String absolutePath, boolean isDirectory, DocumentInfo info,
+                                     FoundDocument previous, IndexSnapshot snapshot, boolean withContent) {
+        FileType fileType;
+        long size;
+        long lastModified;
+        if (previous != null) {
+            fileType = new FileType(previous.getMimeType(), previous.getCharsetName());
+            size = previous.getSize();
+            lastModified = previous.getLastModified();
+        } else {
+            // stamp is taken before reading content, so later changes make entry stale
+            DocumentInfo currentInfo = (info != null) ? info : documentStorage.getDocumentInfo(absolutePath);
+            fileType = detectFileType(absolutePath, currentInfo);
+            size = currentInfo.getSize();
+            lastModified = currentInfo.getLastModified();
+        }
+
+        Collection<String> contentWords = null;
+        FoundDocument contentSource = null;
+        if (withContent && !isDirectory) {
+            if (previous != null && snapshot.isContentIndexed(previous)) {
+                // words are taken from index when item is written, in index order
+                contentSource = previous;
+            } else {
+                contentWords = readContentWords(absolutePath, fileType, size);
+            }
+        }
+
+        FoundDocument entry = new FoundDocument(absolutePath, isDirectory, fileType.getMimeType(), fileType.getCharsetName(),
+                size, lastModified);
+        return new PreparedItem(entry, contentWords, contentSource);
+    }
+
+    /**
+     * Builds entry of a single item when a permit for reading file is available.
+     */
+    private PreparedItem prepareItem(Semaphore openFiles, String absolutePath, boolean isDirectory, DocumentInfo info,
+                                     FoundDocument previous, IndexSnapshot snapshot, boolean withContent)
+            throws InterruptedException {
+        openFiles.acquire();
+        try {
+            return prepareItem(absolutePath, isDirectory, info, previous, snapshot, withContent);
+        } finally {
+            openFiles.release();
+        }
+    }
+
+    private ExecutorService newVirtualThreadExecutor() {
+        var executor = VirtualThreads.newThreadPerTaskExecutor();
+        if (executor == null) {
+            indexingOutput.accept("Virtual threads are not supported by Java runtime, "
+                    + (config.getThreadCount() > 1 ? "using thread pool" : "indexing sequentially"));
+        }
+        return executor;
+    }
+
+    private void writeItem(IndexEntryWriter writer, IndexSnapshot snapshot, PreparedItem item, String tempPath) {
+        var contentWords = item.contentWords;
+        if (item.contentSource != null) {
+            contentWords = snapshot.getContentWords(item.contentSource);
+            if (contentWords == null) {
+                // item moved before items written already, its content is read again
+                contentWords = readContentWords(item.entry.getFilePath(),
+                        new FileType(item.entry.getMimeType(), item.entry.getCharsetName()), item.entry.getSize());
+            }
+        }
 
-            FileType fileType = detector.detectFileType(absolutePath);
-            if (fileType == null) {
-                fileType = FileType.UNKNOWN_FILE_TYPE;
+        writer.writeEntry(item.entry, contentWords);
+        entryCount++;
+
+        if (item.entry.isDirectory()) {
+            writtenDirCount++;
+            // contents of directory are written before it, so written data ends with complete directory
+            if (System.currentTimeMillis() - lastCheckpointTime >= checkpointIntervalMillis) {
+                writeCheckpoint(writer, tempPath);
             }
+        }
+    }
 
-            FoundDocument entry = new FoundDocument(absolutePath, isDirectory, fileType.getMimeType(), fileType.getCharsetName());
-            entryWriter.writeEntry(writer, entry);
-        });
+    private static final class PreparedItem {
+        private final FoundDocument entry;
+        // null if content words are not stored or are taken from existing index
+        private final Collection<String> contentWords;
+        // unchanged entry of existing index with content words of item or null
+        private final FoundDocument contentSource;
 
+        PreparedItem(FoundDocument entry, Collection<String> contentWords, FoundDocument contentSource) {
+            this.entry = entry;
+            this.contentWords = contentWords;
+            this.contentSource = contentSource;
+        }
     }
 
-    private void writeMeta(final BufferedWriter writer, String propertyName, String propertyValue) throws IOException {
-        writeComment(writer, propertyName + IndexConst.META_SEPARATOR + propertyValue);
+    /**
+     * Checks if file is index file, its segment or temporary file.
+     */
+    private boolean isIndexFile(String absolutePath, String indexPath) {
+        // names are compared first to avoid reading attributes of every file
+        var fileName = FilePathUtils.extractFileName(absolutePath);
+        var indexFileName = FilePathUtils.extractFileName(indexPath);
+        if (fileName.equals(indexFileName)) {
+            return documentStorage.isSameDocumentPath(absolutePath, indexPath);
+        }
+
+        return fileName.startsWith(indexFileName + IndexConst.SEGMENT_SEPARATOR)
+                && documentStorage.isSameDocumentPath(new File(absolutePath).getParent(), new File(indexPath).getParent());
     }
 
-    private void writeComment(final BufferedWriter writer, String line) throws IOException {
-        writer.write(IndexConst.COMMENT_PREFIX + line + "\n");
+    /**
+     * Converts attributes read by walker. Attributes of symbolic links are
+     * read again, so that stamps describe link target, as in update.
+     */
+    private DocumentInfo toDocumentInfo(String absolutePath, BasicFileAttributes attributes) {
+        if (attributes.isSymbolicLink()) {
+            return documentStorage.getDocumentInfo(absolutePath);
+        }
+        return DocumentInfo.fromAttributes(attributes);
+    }
+
+    private FileType detectFileType(String absolutePath, DocumentInfo info) {
+        detectedCount.incrementAndGet();
+        FileType fileType = detector.detectFileType(absolutePath, info);
+        return (fileType != null) ? fileType : FileType.UNKNOWN_FILE_TYPE;
+    }
+
+    /**
+     * Reads words from text file in form used by index, size of file is taken from I/O budget first.
+     *
+     * @return words or null if content cannot be read
+     */
+    private Set<String> readContentWords(String absolutePath, FileType fileType, long size) {
+        if (!MimeUtils.isTextType(fileType.getMimeType()) || fileType.getCharsetName().isEmpty()) {
+            return null;
+        }
+
+        config.getIoBudget().acquireBytes(size);
+        Set<String> result = new HashSet<>();
+        try (var in = documentStorage.getDocumentReader(absolutePath, Charset.forName(fileType.getCharsetName()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                result.addAll(MatcherUtils.extractWords(line, false, true));
+            }
+        } catch (IOException | DocumentAccessException | IllegalArgumentException e) {
+            // content will be read during search
+            return null;
+        }
+
+        return result;
     }
 
     public void removeIndex() {
+        removeSegments(IndexManifest.read(indexStorage, getIndexAbsolutePath()));
         indexStorage.removeIndex(getIndexAbsolutePath());
     }
 
@@ -17,6 +17,7 @@ package wordhunt;
 
 /**
  * Class which compares a specified file path with word requirements.
+ * Checks use only the path and directory flag of entry, without file system access.
  *
  * @author piotr
  */
@@ -24,11 +25,9 @@ public class FilePathMatcher extends BaseFileMatcher {
 
     private static final String CTX_PATH_WORDS_FILE = "path_words_file";
     private static final String CTX_PATH_WORDS_PATH = "path_words_path";
-    private final DocumentStorage documentStorage;
 
-    public FilePathMatcher(SearchConfig config, SearchMatcher nextMatcher, DocumentStorage documentStorage) {
+    public FilePathMatcher(SearchConfig config, SearchMatcher nextMatcher) {
         super(config, nextMatcher);
-        this.documentStorage = documentStorage;
     }
 
     @Override
@@ -43,21 +42,7 @@ public class FilePathMatcher extends BaseFileMatcher {
 
     @Override
     public Boolean isMatching(FoundDocument entry, SearchContext context, Boolean acceptedStatus) {
-
-        if (isIgnoredFile(entry.getFilePath(), context)) {
-            return Boolean.FALSE;
-        }
-
-        String filePath = entry.getFilePath();
-
-        Boolean matchedStatus = fileMatchesWordsFromContext(context, CTX_PATH_WORDS_PATH, filePath);
-
-        matchedStatus = fileMatchesWordsFromContext(context, CTX_PATH_WORDS_FILE,
-                FilePathUtils.extractFileName(filePath), matchedStatus);
-
-        if (Boolean.TRUE.equals(matchedStatus) && !isIncludeDirsEnabled() && documentStorage.isDirectory(filePath)) {
-            matchedStatus = Boolean.FALSE;
-        }
+        Boolean matchedStatus = matchCandidate(SearchCandidate.ofEntry(entry, getSearchRootDir()), context);
 
         if (!Boolean.FALSE.equals(matchedStatus)) {
             matchedStatus = nextMatcherResult(entry, context, matchedStatus);
@@ -68,31 +53,49 @@ public class FilePathMatcher extends BaseFileMatcher {
 
     @Override
     public Boolean isMatching(String absolutePath, boolean isDirectory, SearchContext context, Boolean acceptedStatus) {
-        if (isIgnoredFile(absolutePath, context)) {
-            return Boolean.FALSE;
-        }
+        Boolean matchedStatus = matchCandidate(
+                SearchCandidate.ofWalkedFile(absolutePath, isDirectory, getSearchRootDir()), context);
 
-        String filePath = FilePathUtils.absoluteToRelativePath(absolutePath, getSearchRootDir());
+        if (!Boolean.FALSE.equals(matchedStatus)) {
+            matchedStatus = nextMatcherResult(absolutePath, isDirectory, context, matchedStatus);
+        }
 
-        Boolean matchedStatus = fileMatchesWordsFromContext(context, CTX_PATH_WORDS_PATH, filePath);
+        return Boolean.TRUE.equals(matchedStatus);
+    }
 
-        matchedStatus = fileMatchesWordsFromContext(context, CTX_PATH_WORDS_FILE,
-                FilePathUtils.extractFileName(filePath), matchedStatus);
+    private Boolean matchCandidate(SearchCandidate candidate, SearchContext context) {
+        Boolean matchedStatus = checkFlags(candidate, context, null);
+        if (!Boolean.FALSE.equals(matchedStatus)) {
+            matchedStatus = checkPathWords(candidate, context, matchedStatus);
+        }
+        return matchedStatus;
+    }
 
-        if (Boolean.TRUE.equals(matchedStatus) && !isIncludeDirsEnabled() && documentStorage.isDirectory(filePath)) {
-            matchedStatus = Boolean.FALSE;
+    /**
+     * Stage rejecting ignored files and directories (if they are not included in results).
+     */
+    Boolean checkFlags(SearchCandidate candidate, SearchContext context, Boolean acceptedStatus) {
+        if (isIgnoredFile(candidate.getFilePath(), context)) {
+            return Boolean.FALSE;
         }
 
-        if (!Boolean.FALSE.equals(matchedStatus)) {
-            matchedStatus = nextMatcherResult(absolutePath, isDirectory, context, matchedStatus);
+        if (candidate.isDirectory() && !isIncludeDirsEnabled()) {
+            return Boolean.FALSE;
         }
 
-        return Boolean.TRUE.equals(matchedStatus);
+        return acceptedStatus;
     }
 
-    private Boolean fileMatchesWordsFromContext(SearchContext context,
-                                                String contextName, String filePath) {
-        return fileMatchesWordsFromContext(context, contextName, filePath, null);
+    /**
+     * Stage matching path and file name words.
+     */
+    Boolean checkPathWords(SearchCandidate candidate, SearchContext context, Boolean acceptedStatus) {
+        String filePath = candidate.getFilePath();
+
+        Boolean matchedStatus = fileMatchesWordsFromContext(context, CTX_PATH_WORDS_PATH, filePath, acceptedStatus);
+
+        return fileMatchesWordsFromContext(context, CTX_PATH_WORDS_FILE,
+                FilePathUtils.extractFileName(filePath), matchedStatus);
     }
 
     private Boolean fileMatchesWordsFromContext(SearchContext context,
@@ -100,7 +103,7 @@ public class FilePathMatcher extends BaseFileMatcher {
         String[] words = getWordsFromContext(context, contextName);
 
         Boolean result;
-        if (words != null) {
+        if (words != null && words.length > 0) {
             result = (!Boolean.FALSE.equals(acceptedStatus)) && fileMatchesWords(words, filePath);
         } else {
             result = acceptedStatus;
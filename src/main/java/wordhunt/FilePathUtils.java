@@ -2,6 +2,8 @@ package wordhunt;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -72,13 +74,29 @@ public final class FilePathUtils {
     }
 
     /**
-     * Convert absolute path to relative path
+     * Convert absolute path to relative path, with "/" separators.
+     * File system is not accessed, so paths of directories have no "/" at end.
      * @param absolutePath
      * @param rootDir
-     * @return
+     * @return relative path or absolute path if it is outside of root dir
      */
     public static String absoluteToRelativePath(String absolutePath, String rootDir) {
-        return new File(rootDir).toURI().relativize(new File(absolutePath).toURI()).getPath();
+        return toFileUri(rootDir).relativize(toFileUri(absolutePath)).getPath();
+    }
+
+    /**
+     * Builds URI like File.toURI, but without checking if file is a directory.
+     */
+    private static URI toFileUri(String filePath) {
+        String path = new File(filePath).getAbsolutePath().replace(File.separatorChar, '/');
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        try {
+            return new URI("file", null, path, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid file path: " + filePath, e);
+        }
     }
 
 }
@@ -0,0 +1,238 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-size table of detected file types, keyed by file identity
+ * (device and inode, as file key hash) together with size and modification
+ * time. Entry of a changed file does not match its new stamp and is replaced.
+ * Each key has a single slot, so a new entry evicts the one stored in its
+ * slot - table never grows above its capacity.
+ * <p>
+ * Stored format: magic text, format version, detection version, file type
+ * dictionary, then used slots (key, size, modification time, type id).
+ * Table of different detection version is discarded.
+ * <p>
+ * Methods are thread-safe.
+ *
+ * @author piotr
+ */
+final class FileTypeCache {
+
+    static final String MAGIC = "WHTC";
+    static final int FORMAT_VERSION = 1;
+
+    // max number of distinct file types, type id 0 marks empty slot
+    private static final int MAX_TYPES = 255;
+
+    private final int detectionVersion;
+    private final int mask;
+    private final long[] keys;
+    private final long[] sizes;
+    private final long[] lastModifiedTimes;
+    private final byte[] typeIds;
+    private final List<FileType> types = new ArrayList<>();
+    private boolean modified;
+
+    /**
+     * @param capacity         number of slots, rounded up to power of two
+     * @param detectionVersion version of detection logic, stored entries of other version are not used
+     */
+    FileTypeCache(int capacity, int detectionVersion) {
+        var size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.detectionVersion = detectionVersion;
+        this.mask = size - 1;
+        this.keys = new long[size];
+        this.sizes = new long[size];
+        this.lastModifiedTimes = new long[size];
+        this.typeIds = new byte[size];
+    }
+
+    /**
+     * Builds key from file key provided by file system (see BasicFileAttributes.fileKey)
+     * or - if not available - from file path.
+     */
+    static long buildKey(Object fileKey, String absolutePath) {
+        var text = (fileKey != null) ? fileKey.toString() : absolutePath;
+        // 64-bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return cached type or null if file is not in cache or was changed
+     */
+    synchronized FileType get(long key, long size, long lastModified) {
+        var slot = slot(key);
+        var typeId = typeIds[slot] & 0xFF;
+        if (typeId == 0 || keys[slot] != key || sizes[slot] != size || lastModifiedTimes[slot] != lastModified) {
+            return null;
+        }
+        return types.get(typeId - 1);
+    }
+
+    synchronized void put(long key, long size, long lastModified, FileType fileType) {
+        var typeId = typeId(fileType);
+        if (typeId == 0) {
+            return;
+        }
+
+        var slot = slot(key);
+        keys[slot] = key;
+        sizes[slot] = size;
+        lastModifiedTimes[slot] = lastModified;
+        typeIds[slot] = (byte) typeId;
+        modified = true;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    synchronized void clear() {
+        Arrays.fill(typeIds, (byte) 0);
+        types.clear();
+        modified = true;
+    }
+
+    synchronized boolean isModified() {
+        return modified;
+    }
+
+    synchronized int size() {
+        int count = 0;
+        for (byte typeId : typeIds) {
+            if (typeId != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Loads entries written by {@link #write(OutputStream)}. Entries of other
+     * detection version are ignored, table of other capacity is rehashed.
+     *
+     * @throws IOException if data is not a valid cache table
+     */
+    synchronized void read(InputStream input) throws IOException {
+        readEntries(input, false);
+        modified = false;
+    }
+
+    /**
+     * Adds entries written by {@link #write(OutputStream)} (e.g. by other
+     * process after this table was loaded) to slots which are not used.
+     * Entries of this table are kept.
+     *
+     * @throws IOException if data is not a valid cache table
+     */
+    synchronized void merge(InputStream input) throws IOException {
+        readEntries(input, true);
+    }
+
+    private void readEntries(InputStream input, boolean onlyFreeSlots) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(input));
+        var magic = new byte[MAGIC.length()];
+        in.readFully(magic);
+        if (!MAGIC.equals(new String(magic, StandardCharsets.US_ASCII)) || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a file type cache");
+        }
+        if (in.readInt() != detectionVersion) {
+            return;
+        }
+
+        var storedTypes = new ArrayList<FileType>();
+        var typeCount = in.readUnsignedByte();
+        for (int i = 0; i < typeCount; i++) {
+            storedTypes.add(new FileType(in.readUTF(), in.readUTF()));
+        }
+
+        var count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            var key = in.readLong();
+            var size = in.readLong();
+            var lastModified = in.readLong();
+            var typeId = in.readUnsignedByte();
+            if (typeId < 1 || typeId > storedTypes.size()) {
+                throw new IOException("File type cache is corrupted");
+            }
+            if (!onlyFreeSlots || typeIds[slot(key)] == 0) {
+                put(key, size, lastModified, storedTypes.get(typeId - 1));
+            }
+        }
+    }
+
+    /**
+     * Writes used slots as fixed-size records.
+     */
+    synchronized void write(OutputStream output) throws IOException {
+        var out = new DataOutputStream(new BufferedOutputStream(output));
+        out.write(MAGIC.getBytes(StandardCharsets.US_ASCII));
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(detectionVersion);
+        out.writeByte(types.size());
+        for (FileType type : types) {
+            out.writeUTF(type.getMimeType());
+            out.writeUTF(type.getCharsetName());
+        }
+
+        out.writeInt(size());
+        for (int slot = 0; slot < typeIds.length; slot++) {
+            if (typeIds[slot] != 0) {
+                out.writeLong(keys[slot]);
+                out.writeLong(sizes[slot]);
+                out.writeLong(lastModifiedTimes[slot]);
+                out.writeByte(typeIds[slot]);
+            }
+        }
+        out.flush();
+        modified = false;
+    }
+
+    private int slot(long key) {
+        // keys are hashes already, high bits are folded in
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private int typeId(FileType fileType) {
+        var index = types.indexOf(fileType);
+        if (index >= 0) {
+            return index + 1;
+        }
+
+        if (types.size() >= MAX_TYPES) {
+            return 0;
+        }
+        types.add(fileType);
+        return types.size();
+    }
+}
@@ -30,4 +30,31 @@ public interface FileTypeDetector {
      */
 
     FileType detectFileType(String absolutePath);
+
+    /**
+     * Performs file type detection using attributes which are already known
+     * (e.g. read during directory walk), without reading them again.
+     *
+     * @param absolutePath absolute file path to be verified
+     * @param info         attributes of file
+     * @return Returns null if type cannot be detected
+     */
+    default FileType detectFileType(String absolutePath, DocumentInfo info) {
+        return detectFileType(absolutePath);
+    }
+
+    /**
+     * Performs file type detection for caching: tells apart files read and
+     * found to be of unknown type, which give the same result until they
+     * change, from files which could not be read at all.
+     *
+     * @param absolutePath absolute file path to be verified
+     * @param info         attributes of file
+     * @return Returns detected type, {@link FileType#UNKNOWN_FILE_TYPE} if type
+     * is definitely unknown or null if result must not be cached
+     */
+    default FileType detectCacheableFileType(String absolutePath, DocumentInfo info) {
+        // plain detector does not report why type is missing
+        return detectFileType(absolutePath, info);
+    }
 }
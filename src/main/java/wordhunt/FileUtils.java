@@ -18,6 +18,10 @@ package wordhunt;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 /**
@@ -61,6 +65,36 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * Reads beginning of file into buffer, up to its limit. Buffer is flipped,
+     * so that sample is between its position and limit.
+     *
+     * @return false if file cannot be opened or read
+     */
+    public static boolean readFileSample(Path path, ByteBuffer target) {
+        return readFileSample(path, target, IoBudget.unlimited());
+    }
+
+    /**
+     * Reads beginning of file into buffer, opening and reading is paced by budget.
+     *
+     * @return false if file cannot be opened or read
+     */
+    public static boolean readFileSample(Path path, ByteBuffer target, IoBudget budget) {
+        budget.acquireFiles(1);
+        var start = System.nanoTime();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                // read until buffer is full or end of file
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        budget.recordRead(target.position(), System.nanoTime() - start);
+        target.flip();
+        return true;
+    }
+
     private FileUtils() {
     }
 }
@@ -15,6 +15,8 @@ limitations under the License.
  */
 package wordhunt;
 
+import java.nio.file.attribute.BasicFileAttributes;
+
 /**
  * Visitor interface for file walker objects.
  * 
@@ -23,4 +25,12 @@ package wordhunt;
 public interface FileVisitor {
 
     void handleItem(String absolutePath, boolean isDirectory);
+
+    /**
+     * Handles item together with attributes read by walker (not following
+     * symbolic links), so visitor does not need to read them again.
+     */
+    default void handleItem(String absolutePath, boolean isDirectory, BasicFileAttributes attributes) {
+        handleItem(absolutePath, isDirectory);
+    }
 }
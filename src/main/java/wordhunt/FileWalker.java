@@ -22,6 +22,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 /**
  * Performs directory walking using NIO Files API
@@ -30,19 +32,97 @@ import java.nio.file.attribute.BasicFileAttributes;
  */
 public class FileWalker {
 
+    private final WalkFilter filter;
+    private final IoBudget ioBudget;
+
+    public FileWalker() {
+        this(WalkFilter.none());
+    }
+
+    /**
+     * @param filter selects visited items, excluded directories are not listed
+     */
+    public FileWalker(WalkFilter filter) {
+        this(filter, IoBudget.unlimited());
+    }
+
+    /**
+     * @param ioBudget paces listing, each listed item takes one file from budget
+     */
+    public FileWalker(WalkFilter filter, IoBudget ioBudget) {
+        this.filter = filter;
+        this.ioBudget = ioBudget;
+    }
+
+    /**
+     * Creates walker for configured number of threads: parallel walker
+     * if more than one thread is configured (by default - one per processor).
+     * Walk rules and I/O budget are taken from config.
+     */
+    public static FileWalker newWalker(SearchConfig config) {
+        var parallelism = config.getThreadCount();
+        var filter = WalkFilter.fromConfig(config);
+        var ioBudget = config.getIoBudget();
+        return (parallelism > 1) ? new ParallelFileWalker(parallelism, filter, ioBudget) : new FileWalker(filter, ioBudget);
+    }
+
+    protected WalkFilter getFilter() {
+        return filter;
+    }
+
+    protected IoBudget getIoBudget() {
+        return ioBudget;
+    }
+
+    /**
+     * Walks directory, attributes read by walk are passed to visitor.
+     */
     public void walk(String dirName, FileVisitor visitor) {
         try {
             var path = Paths.get(dirName);
             Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                // attributes and filter scopes of directories being visited, for post-visit
+                private final Deque<BasicFileAttributes> dirAttributes = new ArrayDeque<>();
+                private final Deque<WalkFilter.Scope> dirScopes = new ArrayDeque<>();
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    ioBudget.acquireFiles(1);
+                    WalkFilter.Scope scope;
+                    if (dirScopes.isEmpty()) {
+                        scope = filter.rootScope(dir);
+                    } else {
+                        var name = dir.getFileName().toString();
+                        if (!dirScopes.peek().accepts(name, true)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        scope = dirScopes.peek().enter(dir, name);
+                    }
+
+                    if (!scope.isListed()) {
+                        // directory at maximum depth is visited, its children are not
+                        visitor.handleItem(dir.toAbsolutePath().toString(), true, attrs);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    dirAttributes.push(attrs);
+                    dirScopes.push(scope);
+                    return FileVisitResult.CONTINUE;
+                }
+
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    visitor.handleItem(file.toAbsolutePath().toString(), false);
+                    ioBudget.acquireFiles(1);
+                    if (dirScopes.isEmpty() || dirScopes.peek().accepts(file.getFileName().toString(), false)) {
+                        visitor.handleItem(file.toAbsolutePath().toString(), false, attrs);
+                    }
                     return FileVisitResult.CONTINUE;
                 }
 
                 @Override
                 public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-                    visitor.handleItem(dir.toAbsolutePath().toString(), true);
+                    dirScopes.pop();
+                    visitor.handleItem(dir.toAbsolutePath().toString(), true, dirAttributes.pop());
                     return FileVisitResult.CONTINUE;
                 }
             });
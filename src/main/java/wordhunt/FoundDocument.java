@@ -22,16 +22,30 @@ package wordhunt;
  */
 public class FoundDocument {
 
+    /**
+     * Value of size and modification time when they are not known.
+     */
+    public static final long UNKNOWN_STAMP = -1;
+
     private final String filePath;
     private final boolean isDirectory;
     private final String mimeType;
     private final String charsetName;
+    private final long size;
+    private final long lastModified;
 
     public FoundDocument(String filePath, boolean isDirectory, String mimeType, String charsetName) {
+        this(filePath, isDirectory, mimeType, charsetName, UNKNOWN_STAMP, UNKNOWN_STAMP);
+    }
+
+    public FoundDocument(String filePath, boolean isDirectory, String mimeType, String charsetName,
+                         long size, long lastModified) {
         this.filePath = filePath;
         this.isDirectory = isDirectory;
         this.mimeType = mimeType;
         this.charsetName = charsetName;
+        this.size = size;
+        this.lastModified = lastModified;
     }
 
     public String getFilePath() {
@@ -50,6 +64,24 @@ public class FoundDocument {
         return charsetName;
     }
 
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return modification time in milliseconds since epoch or UNKNOWN_STAMP
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Checks if size and modification time of document are known.
+     */
+    public boolean hasStamp() {
+        return size >= 0 && lastModified >= 0;
+    }
+
     @Override
     public String toString() {
         return String.format("%s; %b; %s; %s", getFilePath(), isDirectory(), getMimeType(), getCharsetName());
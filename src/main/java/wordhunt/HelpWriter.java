@@ -11,6 +11,14 @@ public class HelpWriter {
                     "Examples:",
                     "* Create index file for/in specified directory:",
                     "    wordhunt --index /home/user1/Books",
+                    "* Update index file after changes in directory:",
+                    "    wordhunt --update /home/user1/Books",
+                    "* Keep index file up to date while directory is changed:",
+                    "    wordhunt --watch /home/user1/Books",
+                    "* Rebuild index on a busy server, reading at most 10 MB per second:",
+                    "    wordhunt --index /home/user1/Books --io-bytes 10m --io-adaptive",
+                    "* Continue index build which was interrupted:",
+                    "    wordhunt --index /home/user1/Books --resume",
                     "* Find documents with 3 words in current dir:",
                     "    wordhunt basic search java",
                     "* Find documents with 3 words in Downloads dir:",
@@ -20,7 +28,12 @@ public class HelpWriter {
                     "",
                     "COMMAND can be:",
                     "    --index   creates index required for searching",
+                    "    --update  updates existing index, detects only new or modified files",
+                    "    --watch   keeps index up to date while files are changed, until stopped",
+                    "              with Ctrl+C",
                     "    --find    performs search in the specified directory",
+                    "              using index if it is up to date, index is refreshed",
+                    "              when it is slightly stale",
                     "    --help    shows this help information",
                     "    --version shows version information",
                     "",
@@ -34,6 +47,35 @@ public class HelpWriter {
                     "                                  by default index is stored in DIRECTORY",
                     "    --case-sensitive              for case-sensitive search",
                     "    --no-case-split               for disabling word split by character case",
+                    "    --with-content                for storing words of text files in index when indexing,",
+                    "                                  speeds up --incontent and --anywhere search",
+                    "    --segments N                  for splitting index into N segments searched in parallel,",
+                    "                                  used when indexing",
+                    "    --threads N                   for listing and indexing files using N threads,",
+                    "                                  by default one per processor",
+                    "    --search-threads N            for matching index entries or found files using N threads,",
+                    "                                  useful for --incontent, results are listed in order of",
+                    "                                  completion",
+                    "    --ordered                     for listing results of --search-threads in index or walk",
+                    "                                  order",
+                    "    --virtual-threads             for detecting file types on virtual threads when indexing,",
+                    "                                  useful on slow network mounts, requires Java 21",
+                    "    --resume                      for continuing interrupted --index from its last checkpoint,",
+                    "                                  checkpoints are written every 30 seconds while index is built",
+                    "    --type-cache \"path\"           for storing detected file types in cache file, so files",
+                    "                                  which were not changed are not sampled again",
+                    "    --exclude \"pattern\"           for skipping files and directories matching pattern",
+                    "                                  (.gitignore syntax), can be repeated",
+                    "    --skip-hidden                 for skipping hidden (dot) files and directories",
+                    "    --max-depth N                 for visiting items up to N levels below DIRECTORY",
+                    "    --use-ignore-files            for skipping items listed in .gitignore and .ignore files",
+                    "                                  and .git directories",
+                    "                                  walk options are stored in index and used by its updates",
+                    "    --io-bytes N                  for limiting bytes read per second by walk and indexing,",
+                    "                                  suffix k, m or g can be used, e.g. 10m",
+                    "    --io-files N                  for limiting files listed or opened per second",
+                    "    --io-adaptive                 for lowering I/O limits when read latency rises",
+                    "                                  (disk is busy), requires --io-bytes or --io-files",
                     "    --inpath \"word-list\"          for searching for words in path",
                     "    --inname \"word-list\"          for searching for words in file name",
                     "    --incontent \"word-list\"       for searching for words inside file's contents",
@@ -0,0 +1,210 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * List of exclusion patterns in .gitignore syntax:
+ * <ul>
+ * <li>empty lines and lines starting with "#" are skipped</li>
+ * <li>"!" at start re-includes items excluded by earlier patterns</li>
+ * <li>"/" at end matches directories only</li>
+ * <li>pattern with "/" at start or in the middle is matched with path relative to base directory,
+ * other patterns are matched with item name on any level</li>
+ * <li>"*" and "?" do not match "/", "**" matches any number of directories, "[...]" matches character set</li>
+ * </ul>
+ * Last matching pattern decides.
+ *
+ * @author piotr
+ */
+final class IgnoreRules {
+
+    private static final IgnoreRules EMPTY = new IgnoreRules(Collections.emptyList());
+
+    private final List<Rule> rules;
+
+    private IgnoreRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    static IgnoreRules empty() {
+        return EMPTY;
+    }
+
+    static IgnoreRules parse(List<String> lines) {
+        var result = new ArrayList<Rule>();
+        for (String line : lines) {
+            var rule = Rule.parse(line);
+            if (rule != null) {
+                result.add(rule);
+            }
+        }
+        return result.isEmpty() ? EMPTY : new IgnoreRules(result);
+    }
+
+    /**
+     * Reads patterns from files in directory, files which do not exist are skipped.
+     */
+    static IgnoreRules load(Path dir, String... fileNames) {
+        List<String> lines = null;
+        for (String fileName : fileNames) {
+            try {
+                var text = new String(Files.readAllBytes(dir.resolve(fileName)), StandardCharsets.UTF_8);
+                if (lines == null) {
+                    lines = new ArrayList<>();
+                }
+                text.lines().forEach(lines::add);
+            } catch (NoSuchFileException e) {
+                // directory without ignore file
+            } catch (IOException e) {
+                // unreadable ignore file does not stop the walk, its patterns are not used
+            }
+        }
+        return (lines != null) ? parse(lines) : EMPTY;
+    }
+
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * @param relativePath path relative to base directory, with "/" separators
+     * @param name         last part of path
+     * @return TRUE if item is excluded, FALSE if it is re-included, null if no pattern matches
+     */
+    Boolean match(String relativePath, String name, boolean isDirectory) {
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            var rule = rules.get(i);
+            if (rule.matches(relativePath, name, isDirectory)) {
+                return !rule.negated;
+            }
+        }
+        return null;
+    }
+
+    private static final class Rule {
+        private final Pattern pattern;
+        private final boolean negated;
+        private final boolean directoryOnly;
+        private final boolean anchored;
+
+        private Rule(Pattern pattern, boolean negated, boolean directoryOnly, boolean anchored) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.anchored = anchored;
+        }
+
+        static Rule parse(String line) {
+            var text = line.strip();
+            if (text.isEmpty() || text.startsWith("#")) {
+                return null;
+            }
+
+            var negated = text.startsWith("!");
+            if (negated) {
+                text = text.substring(1);
+            }
+            var directoryOnly = text.endsWith("/");
+            if (directoryOnly) {
+                text = text.substring(0, text.length() - 1);
+            }
+            var anchored = text.contains("/");
+            if (text.startsWith("/")) {
+                text = text.substring(1);
+            }
+            if (text.isEmpty()) {
+                return null;
+            }
+
+            try {
+                return new Rule(Pattern.compile(globToRegex(text)), negated, directoryOnly, anchored);
+            } catch (PatternSyntaxException e) {
+                // invalid character set, pattern is skipped like by git
+                return null;
+            }
+        }
+
+        boolean matches(String relativePath, String name, boolean isDirectory) {
+            if (directoryOnly && !isDirectory) {
+                return false;
+            }
+            return pattern.matcher(anchored ? relativePath : name).matches();
+        }
+    }
+
+    static String globToRegex(String glob) {
+        var result = new StringBuilder();
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            result.append("(?:.*/)?");
+                        } else {
+                            result.append(".*");
+                        }
+                    } else {
+                        result.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    result.append("[^/]");
+                    break;
+                case '[':
+                    var end = glob.indexOf(']', i + 1);
+                    if (end < 0) {
+                        result.append("\\[");
+                        break;
+                    }
+                    var set = glob.substring(i + 1, end);
+                    if (set.startsWith("!")) {
+                        set = "^" + set.substring(1);
+                    }
+                    result.append('[').append(set.replace("\\", "\\\\")).append(']');
+                    i = end;
+                    break;
+                case '\\':
+                    if (i + 1 < glob.length()) {
+                        i++;
+                        result.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                    }
+                    break;
+                default:
+                    if ("\\.^$|+(){}".indexOf(c) >= 0) {
+                        result.append('\\');
+                    }
+                    result.append(c);
+            }
+            i++;
+        }
+        return result.toString();
+    }
+}
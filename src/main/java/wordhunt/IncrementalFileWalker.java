@@ -0,0 +1,248 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+
+/**
+ * Walks directory for index update. Directory with modification time equal
+ * to the one stored in index has the same set of children, so it is not
+ * listed again - its children are taken from index. Attributes of each
+ * child are still read, so files changed in place (which does not change
+ * the directory) are detected again. Subdirectories are always checked.
+ * Items are visited in post-order, like in FileWalker.
+ * <p>
+ * When set of changed directories is known (e.g. from watch service), other
+ * directories are reused without reading any attributes.
+ * <p>
+ * Walk filter is applied to listed and to reused children. Reused directory
+ * has only children accepted when index was built, so directories are not
+ * reused when filter differs from the one stored in index. When ignore file
+ * of directory is changed, the directory and all its subdirectories are
+ * listed, so items re-included by new patterns are found.
+ *
+ * @author piotr
+ */
+final class IncrementalFileWalker {
+
+    private final IndexSnapshot snapshot;
+    private final DocumentStorage documentStorage;
+    private final WalkFilter filter;
+    private final boolean reuseDirectories;
+    private final Set<String> changedDirs;
+    private final IoBudget ioBudget;
+    private final long indexLastModified;
+    private int listedDirCount;
+    private int reusedDirCount;
+
+    interface Visitor {
+        /**
+         * @param info     current attributes or null if item was not checked
+         * @param previous unchanged index entry of item or null
+         */
+        void handleItem(String absolutePath, boolean isDirectory, DocumentInfo info, FoundDocument previous);
+    }
+
+    IncrementalFileWalker(IndexSnapshot snapshot, DocumentStorage documentStorage) {
+        this(snapshot, documentStorage, WalkFilter.none(), true);
+    }
+
+    /**
+     * @param reuseDirectories if false, all directories are listed (e.g. when filter accepts more items than
+     *                         filter used for index)
+     */
+    IncrementalFileWalker(IndexSnapshot snapshot, DocumentStorage documentStorage, WalkFilter filter,
+                          boolean reuseDirectories) {
+        this(snapshot, documentStorage, filter, reuseDirectories, null);
+    }
+
+    /**
+     * @param changedDirs relative paths (in form used by index) of directories changed since index was built,
+     *                    or null if unknown
+     */
+    IncrementalFileWalker(IndexSnapshot snapshot, DocumentStorage documentStorage, WalkFilter filter,
+                          boolean reuseDirectories, Set<String> changedDirs) {
+        this(snapshot, documentStorage, filter, reuseDirectories, changedDirs, IoBudget.unlimited());
+    }
+
+    /**
+     * @param ioBudget paces listing and checking of attributes, each item takes one file from budget
+     */
+    IncrementalFileWalker(IndexSnapshot snapshot, DocumentStorage documentStorage, WalkFilter filter,
+                          boolean reuseDirectories, Set<String> changedDirs, IoBudget ioBudget) {
+        this(snapshot, documentStorage, filter, reuseDirectories, changedDirs, ioBudget, FoundDocument.UNKNOWN_STAMP);
+    }
+
+    /**
+     * @param indexLastModified modification time of index, ignore files not stored in index (e.g. hidden)
+     *                          are changed if they are newer; UNKNOWN_STAMP if such files are always changed
+     */
+    IncrementalFileWalker(IndexSnapshot snapshot, DocumentStorage documentStorage, WalkFilter filter,
+                          boolean reuseDirectories, Set<String> changedDirs, IoBudget ioBudget,
+                          long indexLastModified) {
+        this.snapshot = snapshot;
+        this.documentStorage = documentStorage;
+        this.filter = filter;
+        // children stored in index were selected by its filter
+        this.reuseDirectories = reuseDirectories && filter.equals(snapshot.getWalkFilter());
+        this.changedDirs = changedDirs;
+        this.ioBudget = ioBudget;
+        this.indexLastModified = indexLastModified;
+    }
+
+    void walk(String dirName, Visitor visitor) {
+        var root = Paths.get(dirName).toAbsolutePath();
+        walkDirectory(root, "", documentStorage.getDocumentInfo(root.toString()), filter.rootScope(root), false,
+                visitor);
+    }
+
+    int getListedDirCount() {
+        return listedDirCount;
+    }
+
+    int getReusedDirCount() {
+        return reusedDirCount;
+    }
+
+    /**
+     * @param relativePath path of directory in form used by index
+     * @param info         attributes of directory, null if they were not read
+     * @param rulesChanged true if ignore file of parent directory was changed, so directory is listed
+     */
+    private void walkDirectory(Path dir, String relativePath, DocumentInfo info, WalkFilter.Scope scope,
+                               boolean rulesChanged, Visitor visitor) {
+        FoundDocument previous;
+        boolean reused;
+        if (changedDirs == null) {
+            previous = snapshot.findUnchanged(relativePath, info);
+            reused = previous != null;
+        } else if (changedDirs.contains(relativePath) || snapshot.get(relativePath) == null) {
+            // entry of changed directory is built again, with current modification time
+            previous = null;
+            reused = false;
+        } else {
+            previous = (info != null) ? snapshot.findUnchanged(relativePath, info) : snapshot.get(relativePath);
+            // directory with changed stamp (e.g. removed and created again) is listed
+            reused = info == null || previous != null;
+        }
+
+        // children of directory at maximum depth are not visited
+        if (scope.isListed()) {
+            // directory reused without reading attributes was not changed, nor its ignore files
+            var listAll = rulesChanged || (reuseDirectories && (info != null || !reused)
+                    && hasChangedIgnoreFiles(dir, relativePath));
+
+            if (reused && reuseDirectories && !listAll) {
+                reusedDirCount++;
+                for (FoundDocument child : snapshot.getChildren(relativePath)) {
+                    visitKnownChild(dir, child, scope, visitor);
+                }
+            } else {
+                listedDirCount++;
+                listDirectory(dir, relativePath, scope, listAll, visitor);
+            }
+        }
+
+        visitor.handleItem(dir.toString(), true, info, previous);
+    }
+
+    private void visitKnownChild(Path dir, FoundDocument child, WalkFilter.Scope scope, Visitor visitor) {
+        var childName = FilePathUtils.extractFileName(child.getFilePath());
+        if (!scope.accepts(childName, child.isDirectory())) {
+            return;
+        }
+        var childPath = dir.resolve(childName);
+
+        if (changedDirs != null) {
+            // directory was not changed, so its children were not changed either
+            if (child.isDirectory()) {
+                walkDirectory(childPath, child.getFilePath(), null, scope.enter(childPath, childName), false, visitor);
+            } else {
+                visitor.handleItem(childPath.toString(), false, null, child);
+            }
+            return;
+        }
+
+        ioBudget.acquireFiles(1);
+        var childInfo = documentStorage.getDocumentInfo(childPath.toString());
+        if (!childInfo.documentExists()) {
+            return;
+        }
+
+        if (child.isDirectory()) {
+            walkDirectory(childPath, child.getFilePath(), childInfo, scope.enter(childPath, childName), false,
+                    visitor);
+        } else {
+            visitor.handleItem(childPath.toString(), false, childInfo, childInfo.hasSameStamp(child) ? child : null);
+        }
+    }
+
+    /**
+     * Checks if ignore files of directory were created, changed or removed since index was built.
+     */
+    private boolean hasChangedIgnoreFiles(Path dir, String relativePath) {
+        for (String name : filter.getIgnoreFileNames()) {
+            var info = documentStorage.getDocumentInfo(dir.resolve(name).toString());
+            var previous = snapshot.get(relativePath + name);
+            if (!info.documentExists()) {
+                if (previous != null) {
+                    return true;
+                }
+                continue;
+            }
+
+            if (previous != null ? !info.hasSameStamp(previous)
+                    : indexLastModified == FoundDocument.UNKNOWN_STAMP || info.getLastModified() >= indexLastModified) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void listDirectory(Path dir, String relativePath, WalkFilter.Scope scope, boolean rulesChanged,
+                               Visitor visitor) {
+        try (var children = Files.newDirectoryStream(dir)) {
+            for (Path child : children) {
+                ioBudget.acquireFiles(1);
+                var attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                // attributes of link target are read only for symbolic links
+                var childInfo = attributes.isSymbolicLink()
+                        ? documentStorage.getDocumentInfo(child.toString())
+                        : DocumentInfo.fromAttributes(attributes);
+                var childName = child.getFileName().toString();
+                if (!scope.accepts(childName, attributes.isDirectory())) {
+                    continue;
+                }
+
+                if (attributes.isDirectory()) {
+                    walkDirectory(child, relativePath + childName + "/", childInfo, scope.enter(child, childName),
+                            rulesChanged, visitor);
+                } else {
+                    visitor.handleItem(child.toString(), false, childInfo,
+                            snapshot.findUnchanged(relativePath + childName, childInfo));
+                }
+            }
+        } catch (IOException e) {
+            throw new SearchException("Error walking directory: " + dir, e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Functions for decoding binary index data directly from a byte buffer.
+ *
+ * @author piotr
+ */
+public final class IndexBufferUtils {
+
+    private static final int SCRATCH_SIZE = 1024;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+    /**
+     * Reads unsigned varint at buffer's current position.
+     */
+    public static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    public static int readVarInt(ByteBuffer buffer) {
+        return Math.toIntExact(readVarLong(buffer));
+    }
+
+    /**
+     * Reads length-prefixed UTF-8 string at buffer's current position.
+     */
+    public static String readString(ByteBuffer buffer) {
+        int len = readVarInt(buffer);
+        int offset = buffer.position();
+        buffer.position(offset + len);
+        return decodeString(buffer, offset, len);
+    }
+
+    /**
+     * Decodes UTF-8 string stored at absolute position, buffer position is
+     * not changed.
+     */
+    public static String decodeString(ByteBuffer buffer, int offset, int len) {
+        byte[] data = SCRATCH.get();
+        if (data.length < len) {
+            data = new byte[len];
+            if (len <= SCRATCH_SIZE * 16) {
+                SCRATCH.set(data);
+            }
+        }
+        buffer.get(offset, data, 0, len);
+        return new String(data, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private IndexBufferUtils() {
+    }
+}
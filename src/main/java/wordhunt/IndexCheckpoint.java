@@ -0,0 +1,320 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checkpoint of index build, written periodically while index is built, so
+ * that a build interrupted by a crash or a kill can be resumed. It is stored
+ * next to index file and points to the temporary output of the build: for
+ * each written file (index file or its segments) length of data which was
+ * complete when the checkpoint was written. Checkpoints are taken right after
+ * an entry of a directory is written, entries of its contents precede it
+ * (see FileWalker), so all directories found in data are complete.
+ * <p>
+ * Format: magic text, format version, records as in binary index (meta,
+ * output, part and progress records), end record.
+ *
+ * @author piotr
+ */
+final class IndexCheckpoint {
+
+    private final String sourcePath;
+    private final String outputPath;
+    private final Map<String, Long> parts;
+    private final long entryCount;
+    private final long dirCount;
+
+    /**
+     * @param outputPath path of temporary index file being written
+     * @param parts      length of complete data by path of written file
+     * @param entryCount number of entries in complete data
+     * @param dirCount   number of completed directories
+     */
+    IndexCheckpoint(String sourcePath, String outputPath, Map<String, Long> parts, long entryCount, long dirCount) {
+        this.sourcePath = sourcePath;
+        this.outputPath = outputPath;
+        this.parts = Collections.unmodifiableMap(new LinkedHashMap<>(parts));
+        this.entryCount = entryCount;
+        this.dirCount = dirCount;
+    }
+
+    /**
+     * @return path of checkpoint file of a given index
+     */
+    static String checkpointPath(String indexPath) {
+        return indexPath + IndexConst.CHECKPOINT_SUFFIX;
+    }
+
+    /**
+     * Reads checkpoint of index.
+     *
+     * @return checkpoint or null if there is none
+     */
+    static IndexCheckpoint read(IndexStorage indexStorage, String indexPath) {
+        var checkpointPath = checkpointPath(indexPath);
+        if (!indexStorage.indexExists(checkpointPath)) {
+            return null;
+        }
+
+        var magic = IndexConst.CHECKPOINT_MAGIC.getBytes(StandardCharsets.US_ASCII);
+        try (var input = new IndexDataInput(new BufferedInputStream(indexStorage.getInputStreamForIndexFile(checkpointPath)))) {
+            var data = new byte[magic.length];
+            input.readFully(data, data.length);
+            if (!Arrays.equals(magic, data)) {
+                throw new IndexAccessException("Not a checkpoint file: " + checkpointPath, null);
+            }
+
+            var version = input.readVarInt();
+            if (version > IndexConst.CHECKPOINT_FORMAT_VERSION) {
+                throw new IndexAccessException("Unsupported checkpoint version: " + version, null);
+            }
+
+            return readRecords(input, checkpointPath);
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Writes checkpoint to temporary file and replaces previous one with atomic rename,
+     * so an interrupted write leaves previous checkpoint intact.
+     */
+    void write(IndexStorage indexStorage, String indexPath) {
+        var header = new IndexRecordBuffer();
+        var record = new IndexRecordBuffer();
+        var tempPath = indexStorage.createTempIndex(indexPath);
+        var checkpointDir = Paths.get(indexPath).toAbsolutePath().getParent();
+
+        try (OutputStream output = indexStorage.getOutputStreamForIndexFile(tempPath)) {
+            output.write(IndexConst.CHECKPOINT_MAGIC.getBytes(StandardCharsets.US_ASCII));
+            header.writeVarLong(IndexConst.CHECKPOINT_FORMAT_VERSION);
+            header.writeTo(output);
+
+            if (sourcePath != null) {
+                record.writeString(IndexConst.META_SOURCE_PATH);
+                record.writeString(sourcePath);
+                writeRecord(output, header, IndexConst.RECORD_META, record);
+            }
+
+            record.reset();
+            record.writeString(checkpointDir.relativize(Paths.get(outputPath).toAbsolutePath()).toString());
+            writeRecord(output, header, IndexConst.RECORD_CHECKPOINT_OUTPUT, record);
+
+            for (var part : parts.entrySet()) {
+                record.reset();
+                record.writeString(checkpointDir.relativize(Paths.get(part.getKey()).toAbsolutePath()).toString());
+                record.writeVarLong(part.getValue());
+                writeRecord(output, header, IndexConst.RECORD_CHECKPOINT_PART, record);
+            }
+
+            record.reset();
+            record.writeVarLong(entryCount);
+            record.writeVarLong(dirCount);
+            writeRecord(output, header, IndexConst.RECORD_CHECKPOINT_PROGRESS, record);
+
+            record.reset();
+            writeRecord(output, header, IndexConst.RECORD_END, record);
+        } catch (IOException ioe) {
+            indexStorage.removeIndex(tempPath);
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+
+        indexStorage.publishIndex(tempPath, checkpointPath(indexPath));
+    }
+
+    /**
+     * Removes checkpoint file, files of interrupted build are not removed.
+     */
+    static void remove(IndexStorage indexStorage, String indexPath) {
+        var checkpointPath = checkpointPath(indexPath);
+        if (indexStorage.indexExists(checkpointPath)) {
+            indexStorage.removeIndex(checkpointPath);
+        }
+    }
+
+    /**
+     * Removes files written by interrupted build.
+     *
+     * @param keptPath path of file which is not removed (e.g. output of current build), can be null
+     */
+    void removeOutput(IndexStorage indexStorage, String keptPath) {
+        removeFile(indexStorage, outputPath, keptPath);
+        for (String partPath : parts.keySet()) {
+            removeFile(indexStorage, partPath, keptPath);
+        }
+    }
+
+    /**
+     * Reads complete data of interrupted build. Index files are read only up to length
+     * stored in checkpoint, records written later may be incomplete.
+     */
+    IndexSnapshot loadSnapshot(IndexStorage indexStorage) {
+        var snapshot = new IndexSnapshot();
+        for (var part : parts.entrySet()) {
+            var input = new LimitedInputStream(indexStorage.getInputStreamForIndexFile(part.getKey()), part.getValue());
+            try (var walker = new BinaryIndexWalker(new BufferedInputStream(input))) {
+                snapshot.addIndex(walker);
+            } catch (IOException ioe) {
+                throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return source path of interrupted build or null if not available
+     */
+    String getSourcePath() {
+        return sourcePath;
+    }
+
+    String getOutputPath() {
+        return outputPath;
+    }
+
+    /**
+     * @return length of complete data by absolute path of index file or segment
+     */
+    Map<String, Long> getParts() {
+        return parts;
+    }
+
+    long getEntryCount() {
+        return entryCount;
+    }
+
+    long getDirCount() {
+        return dirCount;
+    }
+
+    private static void removeFile(IndexStorage indexStorage, String path, String keptPath) {
+        if (!path.equals(keptPath) && indexStorage.indexExists(path)) {
+            indexStorage.removeIndex(path);
+        }
+    }
+
+    private static IndexCheckpoint readRecords(IndexDataInput input, String checkpointPath) throws IOException {
+        var checkpointDir = Paths.get(checkpointPath).toAbsolutePath().getParent();
+        String sourcePath = null;
+        String outputPath = null;
+        var parts = new LinkedHashMap<String, Long>();
+        long entryCount = 0;
+        long dirCount = 0;
+
+        int tag;
+        while ((tag = input.readByteOrEof()) > 0) {
+            var length = input.readVarLong();
+            var payloadEnd = input.getPosition() + length;
+
+            if (tag == IndexConst.RECORD_META) {
+                var name = input.readString();
+                var value = input.readString();
+                if (IndexConst.META_SOURCE_PATH.equals(name)) {
+                    sourcePath = value;
+                }
+            } else if (tag == IndexConst.RECORD_CHECKPOINT_OUTPUT) {
+                outputPath = checkpointDir.resolve(input.readString()).toString();
+            } else if (tag == IndexConst.RECORD_CHECKPOINT_PART) {
+                var partPath = checkpointDir.resolve(input.readString()).toString();
+                parts.put(partPath, input.readVarLong());
+            } else if (tag == IndexConst.RECORD_CHECKPOINT_PROGRESS) {
+                entryCount = input.readVarLong();
+                dirCount = input.readVarLong();
+            }
+
+            input.skip(payloadEnd - input.getPosition());
+        }
+
+        if (outputPath == null) {
+            throw new IndexAccessException("Incomplete checkpoint file: " + checkpointPath, null);
+        }
+        return new IndexCheckpoint(sourcePath, outputPath, parts, entryCount, dirCount);
+    }
+
+    private static void writeRecord(OutputStream output, IndexRecordBuffer header, int tag, IndexRecordBuffer record)
+            throws IOException {
+        header.reset();
+        header.writeByte(tag);
+        header.writeVarLong(record.length());
+        header.writeTo(output);
+        record.writeTo(output);
+    }
+
+    /**
+     * Stream which ends after a given number of bytes.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream input, long limit) {
+            super(input);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            var result = super.read();
+            if (result >= 0) {
+                remaining--;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            var result = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (result > 0) {
+                remaining -= result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            var result = super.skip(Math.min(count, remaining));
+            remaining -= result;
+            return result;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -27,7 +27,58 @@ public final class IndexConst {
   public static final String ENTRY_FIELD_SEPARATOR = "*";
   public static final String ENTRY_SEPARATOR = "\n";
   public static final String META_SOURCE_PATH = "source-path";
+  // walk rules used when index was built (see WalkFilter)
+  public static final String META_EXCLUDE = "exclude";
+  public static final String META_SKIP_HIDDEN = "skip-hidden";
+  public static final String META_MAX_DEPTH = "max-depth";
+  public static final String META_IGNORE_FILES = "ignore-files";
   public static final String META_SEPARATOR = "=";
 
+  // binary index format
+  public static final String BINARY_MAGIC = "WHIX";
+  public static final int BINARY_FORMAT_VERSION = 2;
+  public static final int RECORD_END = 0;
+  public static final int RECORD_META = 1;
+  public static final int RECORD_MIME_TYPE = 2;
+  public static final int RECORD_CHARSET = 3;
+  public static final int RECORD_ENTRY = 4;
+  public static final int RECORD_DIRECTORY = 5;
+  public static final int RECORD_DIR_ENTRY = 6;
+  public static final int RECORD_FOOTER = 7;
+  public static final int RECORD_TERM = 8;
+  public static final int RECORD_TERM_TABLE = 9;
+  public static final int RECORD_DICTIONARIES = 10;
+  public static final int RECORD_DIRECTORIES = 11;
+  public static final int RECORD_SEGMENT = 12;
+  public static final int RECORD_SUMMARY = 13;
+  public static final int ENTRY_FLAG_DIRECTORY = 1;
+  // entry has size and modification time
+  public static final int ENTRY_FLAG_STAMP = 2;
+  // content words of entry are stored in content section
+  public static final int ENTRY_FLAG_CONTENT = 4;
+
+  // sections stored after end of entries, located via footer
+  public static final String TRAILER_MAGIC = "WHFT";
+  public static final int TRAILER_LENGTH = 12;
+  public static final int SECTION_DICTIONARIES = 1;
+  public static final int SECTION_DIRECTORIES = 2;
+  public static final int SECTION_PATH_TERMS = 3;
+  public static final int SECTION_NAME_TERMS = 4;
+  public static final int SECTION_CONTENT_TERMS = 5;
+  public static final int SECTION_SUMMARY = 6;
+
+  // manifest of index split into segments
+  public static final String MANIFEST_MAGIC = "WHSM";
+  public static final int MANIFEST_FORMAT_VERSION = 1;
+  public static final String SEGMENT_SEPARATOR = ".";
+
+  // checkpoint of index build, stored next to index file
+  public static final String CHECKPOINT_MAGIC = "WHCP";
+  public static final int CHECKPOINT_FORMAT_VERSION = 1;
+  public static final String CHECKPOINT_SUFFIX = SEGMENT_SEPARATOR + "checkpoint";
+  public static final int RECORD_CHECKPOINT_OUTPUT = 14;
+  public static final int RECORD_CHECKPOINT_PART = 15;
+  public static final int RECORD_CHECKPOINT_PROGRESS = 16;
+
   private IndexConst() {}
 }
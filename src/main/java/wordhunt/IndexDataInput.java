@@ -0,0 +1,119 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sequential reader of binary index data, counterpart of IndexRecordBuffer.
+ * Tracks number of bytes consumed so far.
+ *
+ * @author piotr
+ */
+final class IndexDataInput implements AutoCloseable {
+
+    private final InputStream input;
+    private byte[] stringBuffer = new byte[256];
+    private long position;
+
+    IndexDataInput(InputStream input) {
+        this.input = input;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * Reads single byte.
+     *
+     * @return byte value or -1 on EOF
+     */
+    int readByteOrEof() throws IOException {
+        int value = input.read();
+        if (value >= 0) {
+            position++;
+        }
+        return value;
+    }
+
+    int readByte() throws IOException {
+        int value = readByteOrEof();
+        if (value < 0) {
+            throw new EOFException("Unexpected end of index data");
+        }
+        return value;
+    }
+
+    long readVarLong() throws IOException {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    int readVarInt() throws IOException {
+        return Math.toIntExact(readVarLong());
+    }
+
+    String readString() throws IOException {
+        int len = readVarInt();
+        if (len > stringBuffer.length) {
+            stringBuffer = new byte[Math.max(len, stringBuffer.length * 2)];
+        }
+        readFully(stringBuffer, len);
+        return new String(stringBuffer, 0, len, StandardCharsets.UTF_8);
+    }
+
+    void readFully(byte[] target, int len) throws IOException {
+        int offset = 0;
+        while (offset < len) {
+            int count = input.read(target, offset, len - offset);
+            if (count < 0) {
+                throw new EOFException("Unexpected end of index data");
+            }
+            offset += count;
+        }
+        position += len;
+    }
+
+    void skip(long len) throws IOException {
+        long left = len;
+        while (left > 0) {
+            long count = input.skip(left);
+            if (count <= 0) {
+                readByte();
+                count = 1;
+            } else {
+                position += count;
+            }
+            left -= count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.Arrays;
+
+/**
+ * Directory table of binary index: each directory is stored once as
+ * (parent id, name). Relative directory paths are built on first use.
+ * Directory with id 0 is the index root.
+ *
+ * @author piotr
+ */
+final class IndexDirectoryTable {
+
+    static final int ROOT_ID = 0;
+    private static final String PATH_SEPARATOR = "/";
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] parentIds = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] paths = new String[INITIAL_CAPACITY];
+    private int size;
+
+    IndexDirectoryTable() {
+        names[ROOT_ID] = "";
+        paths[ROOT_ID] = "";
+        size = 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds directory to table.
+     *
+     * @return id of new directory
+     */
+    int add(int parentId, String name) {
+        if (parentId < 0 || parentId >= size) {
+            throw new IndexAccessException("Invalid parent directory id: " + parentId, null);
+        }
+
+        if (size == parentIds.length) {
+            int capacity = size * 2;
+            parentIds = Arrays.copyOf(parentIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            paths = Arrays.copyOf(paths, capacity);
+        }
+
+        parentIds[size] = parentId;
+        names[size] = name;
+        return size++;
+    }
+
+    /**
+     * Returns relative path of directory, with trailing separator (empty for root).
+     */
+    String getPath(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexAccessException("Invalid directory id: " + id, null);
+        }
+
+        var path = paths[id];
+        if (path == null) {
+            path = getPath(parentIds[id]) + names[id] + PATH_SEPARATOR;
+            paths[id] = path;
+        }
+        return path;
+    }
+
+    /**
+     * Builds relative path of entry stored as (directory id, name).
+     * Empty name refers to the directory itself.
+     */
+    String getEntryPath(int dirId, String name, boolean isDirectory) {
+        if (name.isEmpty()) {
+            return getPath(dirId);
+        }
+
+        var path = getPath(dirId) + name;
+        return isDirectory ? path + PATH_SEPARATOR : path;
+    }
+}
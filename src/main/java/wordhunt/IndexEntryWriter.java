@@ -15,14 +15,42 @@ limitations under the License.
  */
 package wordhunt;
 
-import java.io.BufferedWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 /**
- * Performs write of single index entry to index file.
+ * Performs write of index entries to index file.
+ * Closing the writer completes the index and releases the target file.
  * 
  * @author piotr
  */
-public interface IndexEntryWriter {
+public interface IndexEntryWriter extends AutoCloseable {
 
-    void writeEntry(BufferedWriter target, FoundDocument entry);
+    void writeMeta(String name, String value);
+
+    default void writeEntry(FoundDocument entry) {
+        writeEntry(entry, null);
+    }
+
+    /**
+     * Writes entry together with words found in its content.
+     *
+     * @param contentWords words in form used by index (upper case)
+     *                     or null if content was not indexed
+     */
+    void writeEntry(FoundDocument entry, Collection<String> contentWords);
+
+    /**
+     * Flushes records written so far, so they can be read back when the
+     * build is interrupted (see IndexCheckpoint).
+     *
+     * @return length of complete data by path of output file, empty if writer does not support checkpoints
+     */
+    default Map<String, Long> checkpoint() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    void close();
 }
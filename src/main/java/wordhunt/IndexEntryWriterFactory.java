@@ -0,0 +1,30 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+/**
+ * Creates new index entry writer object for a specified index file.
+ *
+ * @author piotr
+ */
+public interface IndexEntryWriterFactory {
+
+    /**
+     * @param indexFilePath  path under which index will be published
+     * @param outputFilePath path of file to be written (e.g. temporary file)
+     */
+    IndexEntryWriter newWriter(String indexFilePath, String outputFilePath);
+}
@@ -0,0 +1,162 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of cheap check of index freshness, with search strategy selected
+ * for it. Only items of root directory are compared with index summary:
+ * added or removed items and changed modification times are detected,
+ * changes deeper in the tree which do not touch root-level items are not.
+ *
+ * @author piotr
+ */
+public final class IndexFreshness {
+
+    /**
+     * Search strategy selected for index state.
+     */
+    public enum Strategy {
+        // search using existing index
+        INDEX,
+        // update index (changed directories only), then search using it
+        REFRESH,
+        // search without index
+        ONFLY
+    }
+
+    private final Strategy strategy;
+    private final String reason;
+    private final long indexedEntries;
+    private final List<String> changedItems;
+    private final long expectedCost;
+
+    private IndexFreshness(Strategy strategy, String reason, long indexedEntries, List<String> changedItems,
+                           long expectedCost) {
+        this.strategy = strategy;
+        this.reason = reason;
+        this.indexedEntries = indexedEntries;
+        this.changedItems = Collections.unmodifiableList(changedItems);
+        this.expectedCost = expectedCost;
+    }
+
+    static IndexFreshness missing() {
+        return new IndexFreshness(Strategy.ONFLY, "index not found", -1, Collections.emptyList(), -1);
+    }
+
+    static IndexFreshness unknown() {
+        return new IndexFreshness(Strategy.INDEX, "index has no summary, freshness not checked", -1,
+                Collections.emptyList(), -1);
+    }
+
+    /**
+     * Index was built with other walk rules than requested, so it does not
+     * contain all items to be searched or it contains excluded ones.
+     */
+    static IndexFreshness otherWalkRules(WalkFilter indexFilter) {
+        return new IndexFreshness(Strategy.ONFLY, String.format("index was built with other walk rules: %s", indexFilter),
+                -1, Collections.emptyList(), -1);
+    }
+
+    /**
+     * Compares summary with current state of root-level items.
+     *
+     * @param currentItems names of items currently found in root directory (without index files)
+     * @param storage      used to read modification times of items
+     */
+    static IndexFreshness check(IndexSummary summary, String rootDir, Collection<String> currentItems,
+                                DocumentStorage storage) {
+        var changedItems = new ArrayList<String>();
+        long changedEntries = 0;
+
+        for (IndexSummary.Item item : summary.getItems()) {
+            if (!currentItems.contains(item.getName())) {
+                changedItems.add(item.getName());
+                continue;
+            }
+
+            var info = storage.getDocumentInfo(FilePathUtils.buildFilePath(rootDir, item.getName()));
+            if (!info.documentExists() || info.isDirectory() != item.isDirectory()
+                    || info.getLastModified() != item.getLastModified()) {
+                changedItems.add(item.getName());
+                changedEntries += item.getEntryCount();
+            }
+        }
+
+        for (String name : currentItems) {
+            if (summary.getItem(name) == null) {
+                changedItems.add(name);
+                changedEntries++;
+            }
+        }
+
+        var indexedEntries = summary.getEntryCount();
+        if (changedItems.isEmpty()) {
+            return new IndexFreshness(Strategy.INDEX, "index is up to date", indexedEntries, changedItems, indexedEntries);
+        }
+
+        // refresh of most of the tree costs about as much as walking it without index
+        var strategy = (changedEntries * 2 > indexedEntries) ? Strategy.ONFLY : Strategy.REFRESH;
+        var reason = String.format("index is stale, changed root-level items: %d of %d",
+                changedItems.size(), summary.getItems().size());
+        var expectedCost = (strategy == Strategy.ONFLY) ? indexedEntries : changedEntries;
+        return new IndexFreshness(strategy, reason, indexedEntries, changedItems, expectedCost);
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return names of root-level items added, removed or modified since index was built
+     */
+    public List<String> getChangedItems() {
+        return changedItems;
+    }
+
+    /**
+     * @return estimated number of entries to be read by selected strategy or -1 if unknown
+     */
+    public long getExpectedCost() {
+        return expectedCost;
+    }
+
+    /**
+     * @return description of selected strategy for logging
+     */
+    public String describe() {
+        String action;
+        switch (strategy) {
+            case INDEX:
+                action = "searching using index";
+                break;
+            case REFRESH:
+                action = "refreshing index before search";
+                break;
+            default:
+                action = "searching without index";
+                break;
+        }
+
+        var cost = (expectedCost >= 0) ? String.format("~%d entries", expectedCost) : "unknown";
+        var size = (indexedEntries >= 0) ? String.format(", indexed entries: %d", indexedEntries) : "";
+        return String.format("Strategy: %s (%s%s), expected cost: %s", action, reason, size, cost);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Manifest of index split into segments. It is stored in place of index file
+ * and lists segment files, which are ordinary binary index files stored in
+ * the same directory.
+ * <p>
+ * Format: magic text, format version, records as in binary index (meta,
+ * summary and segment records), end record.
+ *
+ * @author piotr
+ */
+final class IndexManifest {
+
+    private final String sourcePath;
+    private final IndexSummary summary;
+    private final List<String> segmentPaths;
+
+    private IndexManifest(String sourcePath, IndexSummary summary, List<String> segmentPaths) {
+        this.sourcePath = sourcePath;
+        this.summary = summary;
+        this.segmentPaths = Collections.unmodifiableList(segmentPaths);
+    }
+
+    /**
+     * Checks if buffer starts with manifest header.
+     */
+    static boolean isManifest(ByteBuffer data) {
+        var magic = IndexConst.MANIFEST_MAGIC.getBytes(StandardCharsets.US_ASCII);
+        if (data.limit() < magic.length) {
+            return false;
+        }
+
+        for (int i = 0; i < magic.length; i++) {
+            if (data.get(i) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads manifest from index file path.
+     *
+     * @return manifest or null if file is not a manifest (e.g. single index file)
+     */
+    static IndexManifest read(IndexStorage indexStorage, String manifestPath) {
+        var magic = IndexConst.MANIFEST_MAGIC.getBytes(StandardCharsets.US_ASCII);
+        try (var input = new IndexDataInput(new BufferedInputStream(indexStorage.getInputStreamForIndexFile(manifestPath)))) {
+            var data = new byte[magic.length];
+            for (int i = 0; i < data.length; i++) {
+                var value = input.readByteOrEof();
+                if (value < 0) {
+                    return null;
+                }
+                data[i] = (byte) value;
+            }
+            if (!Arrays.equals(magic, data)) {
+                return null;
+            }
+
+            var version = input.readVarInt();
+            if (version > IndexConst.MANIFEST_FORMAT_VERSION) {
+                throw new IndexAccessException("Unsupported index manifest version: " + version, null);
+            }
+
+            return readRecords(input, manifestPath);
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Writes manifest with segment file names.
+     *
+     * @param summary summary of all segments or null
+     */
+    static void write(IndexStorage indexStorage, String manifestPath, String sourcePath, IndexSummary summary,
+                      List<String> segmentNames) {
+        var header = new IndexRecordBuffer();
+        var record = new IndexRecordBuffer();
+
+        try (OutputStream output = indexStorage.getOutputStreamForIndexFile(manifestPath)) {
+            output.write(IndexConst.MANIFEST_MAGIC.getBytes(StandardCharsets.US_ASCII));
+            header.writeVarLong(IndexConst.MANIFEST_FORMAT_VERSION);
+            header.writeTo(output);
+
+            if (sourcePath != null) {
+                record.writeString(IndexConst.META_SOURCE_PATH);
+                record.writeString(sourcePath);
+                writeRecord(output, header, IndexConst.RECORD_META, record);
+            }
+
+            if (summary != null) {
+                record.reset();
+                summary.write(record);
+                writeRecord(output, header, IndexConst.RECORD_SUMMARY, record);
+            }
+
+            for (String segmentName : segmentNames) {
+                record.reset();
+                record.writeString(segmentName);
+                writeRecord(output, header, IndexConst.RECORD_SEGMENT, record);
+            }
+
+            record.reset();
+            writeRecord(output, header, IndexConst.RECORD_END, record);
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Builds path of segment file for a given index file path.
+     */
+    static String segmentPath(String indexPath, String generation, int segmentIndex) {
+        return indexPath + IndexConst.SEGMENT_SEPARATOR + generation + IndexConst.SEGMENT_SEPARATOR + segmentIndex;
+    }
+
+    /**
+     * @return source path stored in manifest or null if not available
+     */
+    String getSourcePath() {
+        return sourcePath;
+    }
+
+    /**
+     * @return summary of indexed tree or null if not available
+     */
+    IndexSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return absolute paths of segment files
+     */
+    List<String> getSegmentPaths() {
+        return segmentPaths;
+    }
+
+    private static IndexManifest readRecords(IndexDataInput input, String manifestPath) throws IOException {
+        var manifestDir = Paths.get(manifestPath).toAbsolutePath().getParent();
+        String sourcePath = null;
+        IndexSummary summary = null;
+        var segmentPaths = new ArrayList<String>();
+
+        int tag;
+        while ((tag = input.readByteOrEof()) > 0) {
+            var length = input.readVarLong();
+            var payloadEnd = input.getPosition() + length;
+
+            if (tag == IndexConst.RECORD_META) {
+                var name = input.readString();
+                var value = input.readString();
+                if (IndexConst.META_SOURCE_PATH.equals(name)) {
+                    sourcePath = value;
+                }
+            } else if (tag == IndexConst.RECORD_SUMMARY) {
+                var payload = new byte[Math.toIntExact(length)];
+                input.readFully(payload, payload.length);
+                summary = IndexSummary.read(ByteBuffer.wrap(payload));
+            } else if (tag == IndexConst.RECORD_SEGMENT) {
+                segmentPaths.add(manifestDir.resolve(input.readString()).toString());
+            }
+
+            input.skip(payloadEnd - input.getPosition());
+        }
+
+        return new IndexManifest(sourcePath, summary, segmentPaths);
+    }
+
+    private static void writeRecord(OutputStream output, IndexRecordBuffer header, int tag, IndexRecordBuffer record)
+            throws IOException {
+        header.reset();
+        header.writeByte(tag);
+        header.writeVarLong(record.length());
+        header.writeTo(output);
+        record.writeTo(output);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer for building records of binary index file.
+ * Numbers are stored as unsigned varints, strings as length-prefixed UTF-8.
+ *
+ * @author piotr
+ */
+final class IndexRecordBuffer {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    void reset() {
+        length = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        data[length++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value cannot be stored as varint: " + value);
+        }
+
+        ensureCapacity(10);
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            data[length++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        data[length++] = (byte) v;
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(Long.BYTES);
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            data[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeString(String value) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void writeBytes(byte[] value) {
+        writeVarLong(value.length);
+        writeRaw(value, 0, value.length);
+    }
+
+    void writeRaw(byte[] value, int offset, int len) {
+        ensureCapacity(len);
+        System.arraycopy(value, offset, data, length, len);
+        length += len;
+    }
+
+    void writeTo(OutputStream target) throws IOException {
+        target.write(data, 0, length);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entries of existing index, looked up by relative path or by directory
+ * during index update.
+ * Content words of entries are read from content posting lists when index
+ * has them, in a single pass - so they are available only in index order.
+ * Segments of index are added one by one.
+ *
+ * @author piotr
+ */
+final class IndexSnapshot {
+
+    private final Map<String, FoundDocument> entries = new HashMap<>();
+    private final Map<String, List<FoundDocument>> children = new HashMap<>();
+    private final Map<FoundDocument, EntryTermsCursor> contentCursors = new IdentityHashMap<>();
+    private String sourcePath;
+    private WalkFilter walkFilter;
+    private boolean withContent;
+
+    IndexSnapshot() {
+    }
+
+    /**
+     * Reads all entries of index.
+     */
+    static IndexSnapshot load(IndexWalker walker) {
+        var result = new IndexSnapshot();
+        result.addIndex(walker);
+        return result;
+    }
+
+    /**
+     * Reads all entries of index or index segment.
+     */
+    void addIndex(IndexWalker walker) {
+        String[] meta;
+        var metaList = new ArrayList<String[]>();
+        while ((meta = walker.nextMeta()) != null) {
+            if (meta.length > 1 && IndexConst.META_SOURCE_PATH.equals(meta[0])) {
+                sourcePath = meta[1];
+            }
+            metaList.add(meta);
+        }
+        // all segments have the same meta information
+        if (walkFilter == null) {
+            walkFilter = WalkFilter.fromMeta(metaList);
+        }
+
+        EntryTermsCursor contentCursor = null;
+        if (walker instanceof TermIndexWalker
+                && ((TermIndexWalker) walker).hasTermSection(IndexConst.SECTION_CONTENT_TERMS)) {
+            withContent = true;
+            contentCursor = ((TermIndexWalker) walker).openEntryTerms(IndexConst.SECTION_CONTENT_TERMS);
+        }
+
+        FoundDocument entry;
+        while ((entry = walker.next()) != null) {
+            add(entry);
+            if (contentCursor != null && isContentIndexed(entry)) {
+                contentCursors.put(entry, contentCursor);
+            }
+        }
+    }
+
+    /**
+     * @return source path stored in index or null if not available
+     */
+    String getSourcePath() {
+        return sourcePath;
+    }
+
+    /**
+     * @return walk rules used when index was built
+     */
+    WalkFilter getWalkFilter() {
+        return (walkFilter != null) ? walkFilter : WalkFilter.none();
+    }
+
+    /**
+     * Checks if index contains content words.
+     */
+    boolean isWithContent() {
+        return withContent;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param relativePath path in form used by index
+     * @return entry or null if it was not indexed
+     */
+    FoundDocument get(String relativePath) {
+        return entries.get(relativePath);
+    }
+
+    /**
+     * Finds entry which was not changed since it was indexed.
+     *
+     * @param relativePath path in form used by index
+     * @return entry or null if it was not indexed or its size or modification time differs
+     */
+    FoundDocument findUnchanged(String relativePath, DocumentInfo info) {
+        var entry = entries.get(relativePath);
+        return (entry != null && info.hasSameStamp(entry)) ? entry : null;
+    }
+
+    /**
+     * Returns entries of files and subdirectories stored in a directory.
+     *
+     * @param dirPath relative path of directory in form used by index
+     */
+    List<FoundDocument> getChildren(String dirPath) {
+        return children.getOrDefault(dirPath, List.of());
+    }
+
+    /**
+     * Checks if content words of entry are stored in index.
+     */
+    boolean isContentIndexed(FoundDocument entry) {
+        return entry instanceof MappedFoundDocument && ((MappedFoundDocument) entry).isContentIndexed();
+    }
+
+    /**
+     * Returns content words of entry. Words of each entry are returned once,
+     * entries of index segment have to be requested in index order.
+     *
+     * @return content words of entry or null if its content was not indexed or
+     * entry was requested after entries which follow it in index
+     */
+    Collection<String> getContentWords(FoundDocument entry) {
+        if (!isContentIndexed(entry)) {
+            return null;
+        }
+
+        var cursor = contentCursors.get(entry);
+        return (cursor != null) ? cursor.termsOf(((MappedFoundDocument) entry).getEntryId()) : List.of();
+    }
+
+    private void add(FoundDocument entry) {
+        var filePath = entry.getFilePath();
+        entries.put(filePath, entry);
+
+        // directory paths end with separator, root directory has empty path
+        if (!filePath.isEmpty()) {
+            var pathEnd = filePath.endsWith("/") ? filePath.length() - 1 : filePath.length();
+            var parentPath = filePath.substring(0, filePath.lastIndexOf('/', pathEnd - 1) + 1);
+            children.computeIfAbsent(parentPath, path -> new ArrayList<>()).add(entry);
+        }
+    }
+}
@@ -1,12 +1,41 @@
 package wordhunt;
 
 import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
 
 public interface IndexStorage {
     BufferedReader getReaderForIndexFile(String indexFilePath);
     OutputStreamWriter getWriterForIndexFile(String indexFilePath);
+    InputStream getInputStreamForIndexFile(String indexFilePath);
+    OutputStream getOutputStreamForIndexFile(String indexFilePath);
+
+    /**
+     * Maps index file into memory (read-only).
+     *
+     * @return mapped contents or null if file is too large to be mapped as a single buffer
+     */
+    ByteBuffer mapIndexFile(String indexFilePath);
+
     boolean createNewIndex(String indexAbsolutePath);
     void removeIndex(String indexAbsolutePath);
+
+    /**
+     * Creates new empty temporary file in directory of index file, with
+     * permissions of new files. Its name starts with index file name.
+     *
+     * @return path of created file
+     */
+    String createTempIndex(String indexAbsolutePath);
+
+    /**
+     * Replaces index file with completed temporary file using atomic rename,
+     * so readers see either previous or new index. Readers which already
+     * opened previous index continue to use it. Permissions of previous
+     * index are kept.
+     */
+    void publishIndex(String tempPath, String indexAbsolutePath);
     boolean indexExists(String indexAbsolutePath);
 }
@@ -1,9 +1,18 @@
 package wordhunt;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Abstraction layer for I/O operations on index files
@@ -27,6 +36,34 @@ public class IndexStorageViaFiles implements IndexStorage {
         }
     }
 
+    public InputStream getInputStreamForIndexFile(String indexFilePath) {
+        try {
+            return Files.newInputStream(Paths.get(indexFilePath));
+        } catch (IOException ioe) {
+            throw new IndexAccessException("IO error while reading index: " + indexFilePath, ioe);
+        }
+    }
+
+    public OutputStream getOutputStreamForIndexFile(String indexFilePath) {
+        try {
+            return new FileOutputStream(indexFilePath);
+        } catch (FileNotFoundException e) {
+            throw new IndexAccessException(e);
+        }
+    }
+
+    public ByteBuffer mapIndexFile(String indexFilePath) {
+        try (var channel = FileChannel.open(Paths.get(indexFilePath), StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException ioe) {
+            throw new IndexAccessException("IO error while mapping index: " + indexFilePath, ioe);
+        }
+    }
+
     public boolean createNewIndex(String indexAbsolutePath) {
         try {
             return new File(indexAbsolutePath).createNewFile();
@@ -43,6 +80,56 @@ public class IndexStorageViaFiles implements IndexStorage {
         }
     }
 
+    /**
+     * Creates temporary file with default permissions of new files (like
+     * index written in place), not with owner-only permissions of
+     * Files.createTempFile.
+     */
+    public String createTempIndex(String indexAbsolutePath) {
+        var indexPath = Paths.get(indexAbsolutePath).toAbsolutePath();
+        try {
+            while (true) {
+                var tempPath = indexPath.resolveSibling(indexPath.getFileName() + "."
+                        + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+                try {
+                    Files.newOutputStream(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+                    return tempPath.toString();
+                } catch (FileAlreadyExistsException e) {
+                    // name taken by other build, next one is tried
+                }
+            }
+        } catch (IOException e) {
+            throw new IndexAccessException("Temporary index creation failed, path: " + indexAbsolutePath, e);
+        }
+    }
+
+    /**
+     * Published file gets permissions of replaced index, if file system supports them.
+     */
+    public void publishIndex(String tempPath, String indexAbsolutePath) {
+        var source = Paths.get(tempPath);
+        var target = Paths.get(indexAbsolutePath);
+        try {
+            copyPermissions(target, source);
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new IndexAccessException("Index publication failed, path: " + indexAbsolutePath, e);
+        }
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        var sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        var targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (sourceView == null || targetView == null || !Files.exists(source)) {
+            return;
+        }
+        targetView.setPermissions(sourceView.readAttributes().permissions());
+    }
+
     public boolean indexExists(String indexAbsolutePath) {
         return new File(indexAbsolutePath).exists();
     }
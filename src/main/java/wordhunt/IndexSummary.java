@@ -0,0 +1,185 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fingerprint of indexed directory tree: total number of entries and,
+ * for each item of root directory, its modification time and number of
+ * entries stored under it. Used to check cheaply if index is still fresh.
+ *
+ * @author piotr
+ */
+final class IndexSummary {
+
+    private final Map<String, Item> items = new TreeMap<>();
+    private long entryCount;
+
+    /**
+     * Item of root directory.
+     */
+    static final class Item {
+        private final String name;
+        private boolean directory;
+        private long lastModified = FoundDocument.UNKNOWN_STAMP;
+        private long entryCount;
+
+        private Item(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isDirectory() {
+            return directory;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return number of entries of item, including item itself
+         */
+        long getEntryCount() {
+            return entryCount;
+        }
+    }
+
+    /**
+     * Counts entry of index.
+     *
+     * @param relativePath path relative to root directory, without trailing separator
+     * @param lastModified modification time or {@link FoundDocument#UNKNOWN_STAMP}
+     */
+    void addEntry(String relativePath, boolean isDirectory, long lastModified) {
+        entryCount++;
+        if (relativePath.isEmpty()) {
+            return;
+        }
+
+        var separatorPos = relativePath.indexOf('/');
+        var name = (separatorPos >= 0) ? relativePath.substring(0, separatorPos) : relativePath;
+        var item = items.computeIfAbsent(name, Item::new);
+        item.entryCount++;
+        if (separatorPos < 0) {
+            item.directory = isDirectory;
+            item.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Adds counts of another summary of the same tree (e.g. of other segment).
+     */
+    void addAll(IndexSummary other) {
+        entryCount += other.entryCount;
+        for (Item otherItem : other.items.values()) {
+            var item = items.computeIfAbsent(otherItem.name, Item::new);
+            item.entryCount += otherItem.entryCount;
+            if (otherItem.lastModified != FoundDocument.UNKNOWN_STAMP) {
+                item.directory = otherItem.directory;
+                item.lastModified = otherItem.lastModified;
+            }
+        }
+    }
+
+    long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return items of root directory, ordered by name
+     */
+    Collection<Item> getItems() {
+        return Collections.unmodifiableCollection(items.values());
+    }
+
+    /**
+     * @return item with a given name or null if it was not indexed
+     */
+    Item getItem(String name) {
+        return items.get(name);
+    }
+
+    /**
+     * Writes payload of summary record: entry count, item count and items
+     * (name, directory flag, modification time + 1, entry count).
+     */
+    void write(IndexRecordBuffer record) {
+        record.writeVarLong(entryCount);
+        record.writeVarLong(items.size());
+        for (Item item : items.values()) {
+            record.writeString(item.name);
+            record.writeByte(item.directory ? 1 : 0);
+            // unknown time (-1) is stored as 0
+            record.writeVarLong(item.lastModified + 1);
+            record.writeVarLong(item.entryCount);
+        }
+    }
+
+    /**
+     * Reads summary record payload.
+     */
+    static IndexSummary read(ByteBuffer cursor) {
+        try {
+            var summary = new IndexSummary();
+            summary.entryCount = IndexBufferUtils.readVarLong(cursor);
+            var count = IndexBufferUtils.readVarInt(cursor);
+            for (int i = 0; i < count; i++) {
+                var item = new Item(IndexBufferUtils.readString(cursor));
+                item.directory = cursor.get() != 0;
+                item.lastModified = IndexBufferUtils.readVarLong(cursor) - 1;
+                item.entryCount = IndexBufferUtils.readVarLong(cursor);
+                summary.items.put(item.name, item);
+            }
+            return summary;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IndexAccessException("Index summary is corrupted", e);
+        }
+    }
+
+    /**
+     * Reads summary of index file or segmented index.
+     *
+     * @return summary or null if index does not contain it (e.g. text index or older version)
+     */
+    static IndexSummary read(IndexStorage indexStorage, String indexPath) {
+        var data = indexStorage.mapIndexFile(indexPath);
+        if (data == null) {
+            return null;
+        }
+
+        if (IndexManifest.isManifest(data)) {
+            var manifest = IndexManifest.read(indexStorage, indexPath);
+            return (manifest != null) ? manifest.getSummary() : null;
+        }
+
+        if (!MappedIndexWalker.isBinaryIndex(data)) {
+            return null;
+        }
+
+        var sections = MappedIndexSections.load(data);
+        return (sections != null) ? sections.getSummary() : null;
+    }
+}
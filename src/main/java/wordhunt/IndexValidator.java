@@ -15,6 +15,16 @@ limitations under the License.
  */
 package wordhunt;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Verifies index file exists and is correct
  * 
@@ -24,17 +34,116 @@ public class IndexValidator {
 
     private final SearchConfig config;
     private final IndexStorage indexStorage;
+    private final DocumentStorage documentStorage;
 
-    public IndexValidator(SearchConfig config, IndexStorage indexStorage) {
+    public IndexValidator(SearchConfig config, IndexStorage indexStorage, DocumentStorage documentStorage) {
         this.config = config;
         this.indexStorage = indexStorage;
+        this.documentStorage = documentStorage;
     }
 
     public boolean indexExists() {
         return indexStorage.indexExists(getIndexAbsolutePath());
     }
 
+    /**
+     * Checks if index reflects current state of root directory and selects
+     * search strategy. Only root directory is listed, so check is cheap.
+     * <p>
+     * Walk rules stored in index are copied to config if config has none,
+     * so search without index visits the same items.
+     */
+    public IndexFreshness checkFreshness() {
+        if (!indexExists()) {
+            return IndexFreshness.missing();
+        }
+
+        var walkFilter = WalkFilter.fromConfig(config);
+        var indexWalkFilter = readWalkFilter();
+        if (walkFilter.isEmpty()) {
+            indexWalkFilter.applyTo(config);
+            walkFilter = indexWalkFilter;
+        } else if (!walkFilter.equals(indexWalkFilter)) {
+            return IndexFreshness.otherWalkRules(indexWalkFilter);
+        }
+
+        IndexSummary summary;
+        try {
+            summary = IndexSummary.read(indexStorage, getIndexAbsolutePath());
+        } catch (IndexAccessException e) {
+            // index is being replaced or damaged, search will report it
+            summary = null;
+        }
+        if (summary == null) {
+            return IndexFreshness.unknown();
+        }
+
+        var rootDir = getRootDir();
+        return IndexFreshness.check(summary, rootDir, listRootItems(rootDir, walkFilter), documentStorage);
+    }
+
+    /**
+     * Reads walk rules from index meta information (from first segment of segmented index).
+     */
+    private WalkFilter readWalkFilter() {
+        var indexPath = getIndexAbsolutePath();
+        try {
+            var manifest = IndexManifest.read(indexStorage, indexPath);
+            if (manifest != null) {
+                if (manifest.getSegmentPaths().isEmpty()) {
+                    return WalkFilter.none();
+                }
+                indexPath = manifest.getSegmentPaths().get(0);
+            }
+
+            var meta = new ArrayList<String[]>();
+            try (IndexWalker walker = new MappedIndexWalkerFactory(indexStorage).newWalker(indexPath)) {
+                String[] item;
+                while ((item = walker.nextMeta()) != null) {
+                    meta.add(item);
+                }
+            }
+            return WalkFilter.fromMeta(meta);
+        } catch (IndexAccessException e) {
+            // index is being replaced or damaged, search will report it
+            return WalkFilter.none();
+        } catch (SearchException se) {
+            throw se;
+        } catch (Exception e) {
+            throw new SearchException("Unknown error: " + e.getMessage(), e);
+        }
+    }
+
+    private Set<String> listRootItems(String rootDir, WalkFilter walkFilter) {
+        var rootPath = Paths.get(rootDir).toAbsolutePath().normalize();
+        var indexPath = Paths.get(getIndexAbsolutePath()).toAbsolutePath().normalize();
+        var indexName = indexPath.getFileName().toString();
+        var skipIndexFiles = rootPath.equals(indexPath.getParent());
+
+        var scope = walkFilter.isEmpty() ? null : walkFilter.rootScope(rootPath);
+        var result = new HashSet<String>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(rootPath)) {
+            for (Path path : stream) {
+                var name = path.getFileName().toString();
+                if (skipIndexFiles && (name.equals(indexName) || name.startsWith(indexName + IndexConst.SEGMENT_SEPARATOR))) {
+                    continue;
+                }
+                if (scope != null && !scope.accepts(name, Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))) {
+                    continue;
+                }
+                result.add(name);
+            }
+        } catch (IOException ioe) {
+            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
+        }
+        return result;
+    }
+
     private String getIndexAbsolutePath() {
         return (String) config.getValue(SearchConst.CFG_INDEX_FILE_PATH);
     }
+
+    private String getRootDir() {
+        return (String) config.getValue(SearchConst.CFG_SEARCH_ROOT_DIR);
+    }
 }
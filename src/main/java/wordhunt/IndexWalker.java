@@ -15,6 +15,8 @@ limitations under the License.
  */
 package wordhunt;
 
+import java.io.IOException;
+
 /**
  * Performs index scanning in iterator-like style (pull).
  *
@@ -35,4 +37,10 @@ public interface IndexWalker extends AutoCloseable {
      * @return Pair of (name, value) or null.
      */
     String[] nextMeta();
+
+    /**
+     * Releases index file.
+     */
+    @Override
+    void close() throws IOException;
 }
@@ -0,0 +1,305 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Keeps index up to date while files are changed. All directories of the
+ * tree (accepted by walk filter) are registered in watch service. Events
+ * are collected until no new event arrives for a short time, then index is
+ * updated - only directories with events are listed again, other ones are
+ * taken from index without reading their attributes.
+ * <p>
+ * When events of a directory are lost (overflow), that directory is listed
+ * again. Its subdirectories which are not watched yet (e.g. created while
+ * events were lost) are registered and listed with their whole contents.
+ *
+ * @author piotr
+ */
+public class IndexWatcher implements AutoCloseable {
+
+    // time without events after which changes are applied
+    private static final long QUIET_PERIOD_MILLIS = 300;
+    // maximum time of collecting events, so index is updated also when events never stop
+    private static final long MAX_BATCH_MILLIS = 5000;
+
+    private final String dirName;
+    private final Path rootDir;
+    private final Path indexPath;
+    private final WalkFilter filter;
+    private final Supplier<FileIndexer> indexerFactory;
+    private final Consumer<String> output;
+    private final WatchService watchService;
+    private final Map<WatchKey, WatchedDir> watchedDirs = new HashMap<>();
+
+    /**
+     * @param indexerFactory creates indexer for each index update
+     */
+    public IndexWatcher(SearchConfig config, Supplier<FileIndexer> indexerFactory, Consumer<String> output) {
+        this.dirName = (String) config.getValue(SearchConst.CFG_SEARCH_ROOT_DIR);
+        this.rootDir = Paths.get(dirName).toAbsolutePath().normalize();
+        this.indexPath = Paths.get((String) config.getValue(SearchConst.CFG_INDEX_FILE_PATH)).toAbsolutePath().normalize();
+        this.filter = WalkFilter.fromConfig(config);
+        this.indexerFactory = indexerFactory;
+        this.output = output;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new SearchException("IO error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * Updates index and applies changes until thread is interrupted or watcher is closed.
+     */
+    public void run() {
+        registerTree();
+        // changes made before registration are applied by a regular update
+        indexerFactory.get().updateIndex();
+        output.accept(String.format("Watching %d directories in [%s]", watchedDirs.size(), dirName));
+
+        try {
+            while (!watchedDirs.isEmpty()) {
+                var changedDirs = collectChanges();
+                if (changedDirs == null) {
+                    break;
+                }
+                if (!changedDirs.isEmpty()) {
+                    indexerFactory.get().updateIndex(changedDirs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops watching, run() returns after current update. Can be called from any thread.
+     */
+    public void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new SearchException("IO error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Registers root directory and all its accepted subdirectories.
+     */
+    void registerTree() {
+        register(rootDir, filter.rootScope(rootDir), null);
+    }
+
+    int getWatchedDirCount() {
+        return watchedDirs.size();
+    }
+
+    /**
+     * Waits for events and collects them until quiet period passes.
+     *
+     * @return relative paths of changed directories, null if watch service was closed
+     */
+    Set<String> collectChanges() throws InterruptedException {
+        var changedDirs = new HashSet<String>();
+        try {
+            var key = watchService.take();
+            var batchEnd = System.currentTimeMillis() + MAX_BATCH_MILLIS;
+            while (key != null) {
+                handleEvents(key, changedDirs);
+                var timeLeft = batchEnd - System.currentTimeMillis();
+                key = (timeLeft > 0) ? watchService.poll(Math.min(QUIET_PERIOD_MILLIS, timeLeft), TimeUnit.MILLISECONDS) : null;
+            }
+        } catch (ClosedWatchServiceException e) {
+            return null;
+        }
+        return changedDirs;
+    }
+
+    private void handleEvents(WatchKey key, Set<String> changedDirs) {
+        var watchedDir = watchedDirs.get(key);
+        if (watchedDir == null) {
+            key.cancel();
+            return;
+        }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                handleOverflow(watchedDir, changedDirs);
+                continue;
+            }
+
+            var name = event.context().toString();
+            var path = watchedDir.dir.resolve(name);
+            var isDirectory = Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+            if (isIndexFile(watchedDir.dir, name) || !watchedDir.scope.accepts(name, isDirectory)) {
+                continue;
+            }
+
+            changedDirs.add(watchedDir.relativePath);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && isDirectory) {
+                // new directory is not in index, it is listed with all its subdirectories
+                register(path, watchedDir.scope.enter(path, name), changedDirs);
+            }
+        }
+
+        if (!key.reset()) {
+            // directory was removed, its parent has a delete event
+            watchedDirs.remove(key);
+        }
+    }
+
+    /**
+     * Handles lost events of watched directory, as if they came from watch service.
+     *
+     * @param dir directory registered before
+     */
+    void handleOverflow(Path dir, Set<String> changedDirs) {
+        for (WatchedDir watchedDir : watchedDirs.values()) {
+            if (watchedDir.dir.equals(dir)) {
+                handleOverflow(watchedDir, changedDirs);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lists directory with lost events again. Its subdirectories created in the
+     * meantime are registered, watched ones have events of their own.
+     */
+    private void handleOverflow(WatchedDir watchedDir, Set<String> changedDirs) {
+        changedDirs.add(watchedDir.relativePath);
+        try {
+            registerChildren(watchedDir.dir, watchedDir.scope, changedDirs);
+        } catch (NoSuchFileException e) {
+            // directory was removed, its parent has a delete event
+        } catch (IOException e) {
+            throw new SearchException("Directory cannot be watched: " + watchedDir.dir + ", " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Registers directory and all its accepted subdirectories, unless it is watched already.
+     *
+     * @param changedDirs collects relative paths of registered directories, null if they are not changed
+     */
+    private void register(Path dir, WalkFilter.Scope scope, Set<String> changedDirs) {
+        // contents of directory at maximum depth are not indexed
+        if (!scope.isListed()) {
+            return;
+        }
+
+        try {
+            // directory which is registered again gets the same key
+            var key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            if (watchedDirs.containsKey(key)) {
+                return;
+            }
+
+            var relativePath = toIndexPath(dir);
+            watchedDirs.put(key, new WatchedDir(dir, relativePath, scope));
+            if (changedDirs != null) {
+                changedDirs.add(relativePath);
+            }
+            registerChildren(dir, scope, changedDirs);
+        } catch (NoSuchFileException e) {
+            // directory was removed right after it was created, its parent has a delete event
+        } catch (IOException e) {
+            // e.g. limit of watched directories reached
+            throw new SearchException("Directory cannot be watched: " + dir + ", " + e.getMessage(), e);
+        }
+    }
+
+    private void registerChildren(Path dir, WalkFilter.Scope scope, Set<String> changedDirs) throws IOException {
+        try (var children = Files.newDirectoryStream(dir)) {
+            for (Path child : children) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    // removed during listing, parent has a delete event
+                    continue;
+                }
+                var name = child.getFileName().toString();
+                if (attributes.isDirectory() && scope.accepts(name, true)) {
+                    register(child, scope.enter(child, name), changedDirs);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return path of directory in form used by index: relative, with "/" at end, empty for root
+     */
+    private String toIndexPath(Path dir) {
+        var relative = rootDir.relativize(dir.toAbsolutePath().normalize());
+        var result = new StringBuilder();
+        for (Path part : relative) {
+            var name = part.toString();
+            if (!name.isEmpty()) {
+                result.append(name).append('/');
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Checks if file is index file, its segment or temporary file - index updates must not trigger next update.
+     */
+    private boolean isIndexFile(Path dir, String name) {
+        var indexName = indexPath.getFileName().toString();
+        return dir.toAbsolutePath().normalize().equals(indexPath.getParent())
+                && (name.equals(indexName) || name.startsWith(indexName + IndexConst.SEGMENT_SEPARATOR));
+    }
+
+    private static final class WatchedDir {
+        private final Path dir;
+        private final String relativePath;
+        private final WalkFilter.Scope scope;
+
+        WatchedDir(Path dir, String relativePath, WalkFilter.Scope scope) {
+            this.dir = dir;
+            this.relativePath = relativePath;
+            this.scope = scope;
+        }
+    }
+}
@@ -16,11 +16,25 @@ limitations under the License.
 package wordhunt;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 /**
  * Performs search using provided terms and index file.
+ * Segments of index split into segments are searched in parallel, each
+ * with its own search context; results are passed to consumer in order
+ * of segments.
+ * <p>
+ * When more than one search thread is configured, entries of each index
+ * file are matched on a pool of workers instead (segments are searched one
+ * after another). Entries are passed to workers in batches, each worker has
+ * its own search context. Results are passed to consumer in order of
+ * completion or, if configured, in index order.
  *
  * @author piotr
  */
@@ -28,12 +42,15 @@ public class IndexedDocumentSearcher implements DocumentSearcher {
 
     private final SearchConfig config;
     private final IndexWalkerFactory indexWalkerFactory;
+    private final IndexStorage indexStorage;
     private final DocumentStorage documentStorage;
     private final Consumer<String> searchOutput;
 
-    public IndexedDocumentSearcher(SearchConfig config, IndexWalkerFactory indexWalkerFactory, DocumentStorage documentStorage, Consumer<String> searchOutput) {
+    public IndexedDocumentSearcher(SearchConfig config, IndexWalkerFactory indexWalkerFactory, IndexStorage indexStorage,
+                                   DocumentStorage documentStorage, Consumer<String> searchOutput) {
         this.config = config;
         this.indexWalkerFactory = indexWalkerFactory;
+        this.indexStorage = indexStorage;
         this.documentStorage = documentStorage;
         this.searchOutput = searchOutput;
     }
@@ -41,16 +58,120 @@ public class IndexedDocumentSearcher implements DocumentSearcher {
     @Override
     public void search(SearchTerms terms, SearchMatcher matcher, SearchConsumer consumer) {
         String indexFile = getIndexAbsolutePath();
-        SearchContext context = newSearchContext();
 
         boolean list = Boolean.TRUE.equals(config.getValue(SearchConst.CFG_SEARCH_BRIEF));
         if (!list) {
             searchOutput.accept("Searching in index file: " + indexFile);
         }
 
+        List<IndexWalker> walkers = openIndex(indexFile);
+        try {
+            if (walkers.size() == 1 || config.getSearchThreadCount() > 1) {
+                for (IndexWalker walker : walkers) {
+                    searchIndex(walker, terms, matcher, consumer::handle);
+                }
+            } else {
+                searchSegments(walkers, terms, matcher, consumer);
+            }
+        } finally {
+            closeWalkers(walkers);
+        }
+    }
+
+    /**
+     * Opens index file or all segments of segmented index before search
+     * starts, so index published in the meantime does not affect the search.
+     * If index is replaced between reading of manifest and opening of segments
+     * (segments of replaced index are removed), opening is repeated once.
+     */
+    private List<IndexWalker> openIndex(String indexFile) {
+        try {
+            return tryOpenIndex(indexFile);
+        } catch (IndexAccessException e) {
+            return tryOpenIndex(indexFile);
+        }
+    }
+
+    private List<IndexWalker> tryOpenIndex(String indexFile) {
+        IndexManifest manifest = IndexManifest.read(indexStorage, indexFile);
+        if (manifest == null) {
+            return List.of(indexWalkerFactory.newWalker(indexFile));
+        }
+
+        if (manifest.getSourcePath() != null) {
+            validateSourcePathFromMeta(manifest.getSourcePath());
+        }
+
+        List<IndexWalker> result = new ArrayList<>();
+        try {
+            for (String segmentPath : manifest.getSegmentPaths()) {
+                result.add(indexWalkerFactory.newWalker(segmentPath));
+            }
+        } catch (RuntimeException e) {
+            closeWalkers(result);
+            throw e;
+        }
+        return result;
+    }
+
+    private static void closeWalkers(List<IndexWalker> walkers) {
+        for (IndexWalker walker : walkers) {
+            try {
+                walker.close();
+            } catch (Exception e) {
+                throw new SearchException("IO error: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void searchSegments(List<IndexWalker> segments, SearchTerms terms, SearchMatcher matcher, SearchConsumer consumer) {
+        int threadCount = Math.max(1, Math.min(segments.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (IndexWalker segment : segments) {
+                results.add(executor.submit(() -> {
+                    List<String> found = new ArrayList<>();
+                    searchIndex(segment, terms, matcher, found::add);
+                    return found;
+                }));
+            }
+
+            for (Future<List<String>> result : results) {
+                for (String absolutePath : getResult(result)) {
+                    consumer.handle(absolutePath);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> getResult(Future<List<String>> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SearchException("Search interrupted", ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof SearchException) {
+                throw (SearchException) ee.getCause();
+            }
+            throw new SearchException("Unknown error: " + ee.getCause().getMessage(), ee.getCause());
+        }
+    }
+
+    /**
+     * Searches single index file (or segment).
+     *
+     * @param output receives absolute paths of matching documents
+     */
+    private void searchIndex(IndexWalker walker, SearchTerms terms, SearchMatcher matcher, Consumer<String> output) {
+        SearchContext context = newSearchContext();
         matcher.prepare(terms, context);
 
-        try (IndexWalker walker = indexWalkerFactory.newWalker(indexFile)) {
+        try {
             FoundDocument entry;
 
             String[] sourcePath = walker.nextMeta();
@@ -58,11 +179,20 @@ public class IndexedDocumentSearcher implements DocumentSearcher {
                 processMeta(sourcePath[0], sourcePath[1]);
             }
 
+            if (walker instanceof TermIndexWalker) {
+                narrowByTerms((TermIndexWalker) walker, terms);
+                prepareContentIndex((TermIndexWalker) walker, context);
+            }
+
+            var threadCount = config.getSearchThreadCount();
+            if (threadCount > 1) {
+                searchEntriesInParallel(walker, terms, matcher, context, output, threadCount);
+                return;
+            }
+
             while ((entry = walker.next()) != null) {
-                processIndexEntry(entry, matcher, consumer, context);
+                processIndexEntry(entry, matcher, output, context);
             }
-        } catch (IOException ioe) {
-            throw new SearchException("IO error: " + ioe.getMessage(), ioe);
         } catch (SearchException se) {
             throw se;
         } catch (Exception e) {
@@ -74,6 +204,43 @@ public class IndexedDocumentSearcher implements DocumentSearcher {
         return new SearchContext();
     }
 
+    /**
+     * Matches entries on worker threads. Search context is not thread-safe,
+     * so each worker prepares its own one; content index is shared.
+     *
+     * @param context context prepared for index, with content index if available
+     */
+    private void searchEntriesInParallel(IndexWalker walker, SearchTerms terms, SearchMatcher matcher, SearchContext context,
+                                         Consumer<String> output, int threadCount) {
+        var contentIndex = context.getValue(SearchConst.CTX_CONTENT_INDEX);
+        var ordered = Boolean.TRUE.equals(config.getValue(SearchConst.CFG_SEARCH_ORDERED));
+
+        try (var pool = new MatchingPool<FoundDocument>("wordhunt-search", threadCount, ordered, () -> {
+            var workerContext = newSearchContext();
+            matcher.prepare(terms, workerContext);
+            if (contentIndex != null) {
+                workerContext.setValue(SearchConst.CTX_CONTENT_INDEX, contentIndex);
+            }
+            return workerContext;
+        }, (entries, workerContext) -> matchBatch(entries, matcher, workerContext), output)) {
+            FoundDocument entry;
+            while ((entry = walker.next()) != null) {
+                // path is decoded by calling thread, so workers do not share lazily decoded state
+                entry.getFilePath();
+                pool.add(entry);
+            }
+            pool.finish();
+        }
+    }
+
+    private List<String> matchBatch(List<FoundDocument> entries, SearchMatcher matcher, SearchContext context) {
+        List<String> found = new ArrayList<>();
+        for (FoundDocument entry : entries) {
+            processIndexEntry(entry, matcher, found::add, context);
+        }
+        return found;
+    }
+
     private void processMeta(String metaName, String metaValue) {
         if (metaName.equals(IndexConst.META_SOURCE_PATH)) {
             validateSourcePathFromMeta(metaValue);
@@ -88,10 +255,47 @@ public class IndexedDocumentSearcher implements DocumentSearcher {
         }
     }
 
-    private void processIndexEntry(FoundDocument entry, SearchMatcher matcher, SearchConsumer consumer, SearchContext context) {
+    /**
+     * Limits scanned entries to ones containing all path and file name words,
+     * using posting lists stored in index. Matchers still verify each entry.
+     */
+    private void narrowByTerms(TermIndexWalker walker, SearchTerms terms) {
+        long[] candidates = intersectPostings(walker, IndexConst.SECTION_PATH_TERMS, terms.getPathWords(), null);
+        candidates = intersectPostings(walker, IndexConst.SECTION_NAME_TERMS, terms.getFileWords(), candidates);
+
+        if (candidates != null) {
+            walker.restrictTo(candidates);
+        }
+    }
+
+    /**
+     * Makes content word postings available for content matcher.
+     */
+    private void prepareContentIndex(TermIndexWalker walker, SearchContext context) {
+        if (walker.hasTermSection(IndexConst.SECTION_CONTENT_TERMS)) {
+            context.setValue(SearchConst.CTX_CONTENT_INDEX, new ContentWordIndex(walker));
+        }
+    }
+
+    private long[] intersectPostings(TermIndexWalker walker, int termSection, String[] words, long[] candidates) {
+        long[] result = candidates;
+
+        // index words are upper case, so case-insensitive form of query words is used
+        for (String word : MatcherUtils.prepareWordsFromTerms(words, false)) {
+            long[] entries = walker.findEntries(termSection, word);
+            if (entries == null) {
+                return result;
+            }
+            result = (result == null) ? entries : ArrayUtils.intersectSorted(result, entries);
+        }
+
+        return result;
+    }
+
+    private void processIndexEntry(FoundDocument entry, SearchMatcher matcher, Consumer<String> output, SearchContext context) {
 
         if (Boolean.TRUE.equals(matcher.isMatching(entry, context, null))) {
-            consumer.handle(
+            output.accept(
                     new File(
                             FilePathUtils.toCanonicalPath(
                                     getSearchRootDir(),
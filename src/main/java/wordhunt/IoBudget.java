@@ -0,0 +1,222 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces file system access, so that indexing does not saturate disk shared
+ * with other processes. Budgets of bytes read per second and files per second
+ * (items listed or opened) are enforced by token buckets: each operation takes
+ * tokens and when a bucket is empty, caller waits until enough tokens are added.
+ * Buckets hold tokens for {@link #BURST_MILLIS} at most, so idle time does not
+ * allow long bursts.
+ * <p>
+ * In adaptive mode latency of reads is tracked. When its moving average rises
+ * well above the lowest average seen (disk is busy with other work), budgets
+ * are halved. They are restored step by step when latency returns to normal.
+ * <p>
+ * Budget is thread-safe, one instance is shared by all walking and indexing threads.
+ *
+ * @author piotr
+ */
+public final class IoBudget {
+
+    private static final IoBudget UNLIMITED = new IoBudget(0, 0, false);
+    private static final long BURST_MILLIS = 100;
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(BURST_MILLIS);
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // adaptive mode: weight of new sample in moving average of latency
+    private static final double LATENCY_SMOOTHING = 0.1;
+    // adaptive mode: how fast baseline follows average when it rises, for long-term changes of disk speed
+    private static final double BASELINE_DRIFT = 0.001;
+    private static final double SLOW_LATENCY_RATIO = 2.0;
+    private static final double NORMAL_LATENCY_RATIO = 1.5;
+    private static final double MIN_RATE_FACTOR = 1.0 / 16;
+    private static final double RATE_FACTOR_STEP = 0.05;
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long bytesPerSecond;
+    private final long filesPerSecond;
+    private final boolean adaptive;
+
+    // time up to which budget is already used, guarded by this
+    private long bytesUsedUntil = Long.MIN_VALUE;
+    private long filesUsedUntil = Long.MIN_VALUE;
+    private long totalWaitNanos;
+
+    // adaptive state, guarded by this
+    private double rateFactor = 1.0;
+    private double averageLatency;
+    private double baselineLatency;
+    private long lastAdjustTime = Long.MIN_VALUE;
+
+    /**
+     * @param bytesPerSecond limit of bytes read per second, 0 for no limit
+     * @param filesPerSecond limit of files listed or opened per second, 0 for no limit
+     * @param adaptive       if true, limits are lowered when read latency rises
+     */
+    public IoBudget(long bytesPerSecond, long filesPerSecond, boolean adaptive) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.filesPerSecond = filesPerSecond;
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * @return budget which never waits
+     */
+    public static IoBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    public static IoBudget fromConfig(SearchConfig config) {
+        var bytesPerSecond = (Long) config.getValue(SearchConst.CFG_IO_BYTES_PER_SECOND);
+        var filesPerSecond = (Integer) config.getValue(SearchConst.CFG_IO_FILES_PER_SECOND);
+        var budget = new IoBudget((bytesPerSecond != null) ? bytesPerSecond : 0,
+                (filesPerSecond != null) ? filesPerSecond : 0,
+                Boolean.TRUE.equals(config.getValue(SearchConst.CFG_IO_ADAPTIVE)));
+        return budget.isLimited() ? budget : UNLIMITED;
+    }
+
+    public boolean isLimited() {
+        return bytesPerSecond > 0 || filesPerSecond > 0;
+    }
+
+    /**
+     * Takes budget for listing or opening files, waits if it is used up.
+     */
+    public void acquireFiles(int count) {
+        if (filesPerSecond > 0) {
+            pause(reserve(count, 0, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Takes budget for reading bytes, waits if it is used up.
+     */
+    public void acquireBytes(long count) {
+        if (bytesPerSecond > 0) {
+            pause(reserve(0, count, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Takes budget for bytes already read, in adaptive mode uses time of read to adjust limits.
+     *
+     * @param latencyNanos time spent on opening file and reading data
+     */
+    public void recordRead(long bytes, long latencyNanos) {
+        if (!isLimited()) {
+            return;
+        }
+        if (adaptive) {
+            adapt(latencyNanos, System.nanoTime());
+        }
+        acquireBytes(bytes);
+    }
+
+    /**
+     * @return total time spent by all threads waiting for budget
+     */
+    public synchronized long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("bytes/s: %d, files/s: %d, adaptive: %s", bytesPerSecond, filesPerSecond, adaptive);
+    }
+
+    /**
+     * Takes tokens from buckets.
+     *
+     * @param now current time in nanoseconds
+     * @return time to wait until tokens are available, in nanoseconds
+     */
+    synchronized long reserve(long files, long bytes, long now) {
+        long wait = 0;
+        if (files > 0 && filesPerSecond > 0) {
+            filesUsedUntil = Math.max(filesUsedUntil, now - BURST_NANOS) + costNanos(files, filesPerSecond);
+            wait = Math.max(wait, filesUsedUntil - now);
+        }
+        if (bytes > 0 && bytesPerSecond > 0) {
+            bytesUsedUntil = Math.max(bytesUsedUntil, now - BURST_NANOS) + costNanos(bytes, bytesPerSecond);
+            wait = Math.max(wait, bytesUsedUntil - now);
+        }
+        return wait;
+    }
+
+    /**
+     * Updates moving average of read latency and lowers or restores limits (AIMD).
+     *
+     * @param now current time in nanoseconds
+     */
+    synchronized void adapt(long latencyNanos, long now) {
+        if (averageLatency == 0) {
+            averageLatency = latencyNanos;
+            baselineLatency = latencyNanos;
+            return;
+        }
+        averageLatency += (latencyNanos - averageLatency) * LATENCY_SMOOTHING;
+        if (averageLatency < baselineLatency) {
+            baselineLatency = averageLatency;
+        } else {
+            baselineLatency += (averageLatency - baselineLatency) * BASELINE_DRIFT;
+        }
+
+        // limits are changed at most once per interval, so single slow reads do not drop them to minimum
+        if (lastAdjustTime != Long.MIN_VALUE && now - lastAdjustTime < ADJUST_INTERVAL_NANOS) {
+            return;
+        }
+        if (averageLatency > baselineLatency * SLOW_LATENCY_RATIO) {
+            rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor / 2);
+            lastAdjustTime = now;
+        } else if (averageLatency < baselineLatency * NORMAL_LATENCY_RATIO && rateFactor < 1.0) {
+            rateFactor = Math.min(1.0, rateFactor + RATE_FACTOR_STEP);
+            lastAdjustTime = now;
+        }
+    }
+
+    /**
+     * @return current part of configured limits in use, 1.0 unless adaptive mode lowered them
+     */
+    synchronized double getRateFactor() {
+        return rateFactor;
+    }
+
+    private long costNanos(long units, long perSecond) {
+        return (long) (units * NANOS_PER_SECOND / (perSecond * rateFactor));
+    }
+
+    private void pause(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        var start = System.nanoTime();
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            // walk is being cancelled, caller checks the flag
+            Thread.currentThread().interrupt();
+        }
+        addWaitTime(System.nanoTime() - start);
+    }
+
+    private synchronized void addWaitTime(long nanos) {
+        totalWaitNanos += nanos;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Index entry backed by mapped index data. File path is decoded on first use
+ * (from the full path or from directory table and entry name),
+ * MIME type and charset are shared dictionary values.
+ * Entry id (offset of entry record) allows to look the entry up in posting lists.
+ *
+ * @author piotr
+ */
+class MappedFoundDocument extends FoundDocument {
+
+    private final ByteBuffer buffer;
+    private final long entryId;
+    private final boolean contentIndexed;
+    private final IndexDirectoryTable directories;
+    private final int dirId;
+    private final int nameOffset;
+    private final int nameLength;
+
+    private String filePath;
+
+    /**
+     * @param directories directory table or null if name contains full relative path
+     * @param flags       entry flags (see IndexConst.ENTRY_FLAG_*)
+     */
+    MappedFoundDocument(ByteBuffer buffer, long entryId, IndexDirectoryTable directories, int dirId,
+                        int nameOffset, int nameLength, int flags,
+                        String mimeType, String charsetName, long size, long lastModified) {
+        super(null, (flags & IndexConst.ENTRY_FLAG_DIRECTORY) != 0, mimeType, charsetName, size, lastModified);
+        this.buffer = buffer;
+        this.entryId = entryId;
+        this.contentIndexed = (flags & IndexConst.ENTRY_FLAG_CONTENT) != 0;
+        this.directories = directories;
+        this.dirId = dirId;
+        this.nameOffset = nameOffset;
+        this.nameLength = nameLength;
+    }
+
+    @Override
+    public String getFilePath() {
+        if (filePath == null) {
+            var name = IndexBufferUtils.decodeString(buffer, nameOffset, nameLength);
+            filePath = (directories != null) ? directories.getEntryPath(dirId, name, isDirectory()) : name;
+        }
+        return filePath;
+    }
+
+    long getEntryId() {
+        return entryId;
+    }
+
+    /**
+     * Checks if content words of this entry are stored in index.
+     */
+    boolean isContentIndexed() {
+        return contentIndexed;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Random-access sections of mapped binary index: dictionaries, directory
+ * table and term posting lists. Sections are located through the footer.
+ *
+ * @author piotr
+ */
+final class MappedIndexSections {
+
+    private static final long[] NO_ENTRIES = new long[0];
+
+    private final ByteBuffer data;
+    private final Map<Integer, Long> sections;
+
+    private List<String> mimeTypes;
+    private List<String> charsets;
+    private IndexDirectoryTable directories;
+
+    private MappedIndexSections(ByteBuffer data, Map<Integer, Long> sections) {
+        this.data = data;
+        this.sections = sections;
+    }
+
+    /**
+     * Reads footer of index.
+     *
+     * @return sections or null if index has no footer
+     */
+    static MappedIndexSections load(ByteBuffer data) {
+        var limit = data.limit();
+        if (limit < IndexConst.BINARY_MAGIC.length() + IndexConst.TRAILER_LENGTH) {
+            return null;
+        }
+
+        var magic = IndexConst.TRAILER_MAGIC.getBytes(StandardCharsets.US_ASCII);
+        var magicOffset = limit - magic.length;
+        for (int i = 0; i < magic.length; i++) {
+            if (data.get(magicOffset + i) != magic[i]) {
+                return null;
+            }
+        }
+
+        try {
+            var cursor = data.duplicate();
+            cursor.position(payloadOffset(data, data.getLong(limit - IndexConst.TRAILER_LENGTH), IndexConst.RECORD_FOOTER));
+            var count = IndexBufferUtils.readVarInt(cursor);
+            var sections = new HashMap<Integer, Long>();
+            for (int i = 0; i < count; i++) {
+                sections.put(IndexBufferUtils.readVarInt(cursor), IndexBufferUtils.readVarLong(cursor));
+            }
+            return new MappedIndexSections(data, sections);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IndexAccessException("Index file is corrupted", e);
+        }
+    }
+
+    boolean hasSection(int sectionId) {
+        return sections.containsKey(sectionId);
+    }
+
+    List<String> getMimeTypes() {
+        loadDictionaries();
+        return mimeTypes;
+    }
+
+    List<String> getCharsets() {
+        loadDictionaries();
+        return charsets;
+    }
+
+    IndexDirectoryTable getDirectories() {
+        if (directories == null) {
+            var cursor = sectionCursor(IndexConst.SECTION_DIRECTORIES, IndexConst.RECORD_DIRECTORIES);
+            var table = new IndexDirectoryTable();
+            var count = IndexBufferUtils.readVarInt(cursor);
+            // root directory is implicit in table
+            IndexBufferUtils.readVarInt(cursor);
+            IndexBufferUtils.readString(cursor);
+            for (int i = 1; i < count; i++) {
+                table.add(IndexBufferUtils.readVarInt(cursor), IndexBufferUtils.readString(cursor));
+            }
+            directories = table;
+        }
+        return directories;
+    }
+
+    /**
+     * @return summary of indexed tree or null if index has no such section
+     */
+    IndexSummary getSummary() {
+        if (!hasSection(IndexConst.SECTION_SUMMARY)) {
+            return null;
+        }
+        return IndexSummary.read(sectionCursor(IndexConst.SECTION_SUMMARY, IndexConst.RECORD_SUMMARY));
+    }
+
+    /**
+     * Finds posting list of a term.
+     *
+     * @return ascending entry ids, empty array if term not found or null if
+     * index has no such section
+     */
+    long[] findEntries(int sectionId, String term) {
+        if (!hasSection(sectionId)) {
+            return null;
+        }
+
+        var table = data.duplicate();
+        table.position(payloadOffset(data, sections.get(sectionId), IndexConst.RECORD_TERM_TABLE));
+        var count = IndexBufferUtils.readVarInt(table);
+        var tableStart = table.position();
+
+        var cursor = data.duplicate();
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            cursor.position(payloadOffset(data, data.getLong(tableStart + mid * Long.BYTES), IndexConst.RECORD_TERM));
+            int cmp = IndexBufferUtils.readString(cursor).compareTo(term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return readPostings(cursor);
+            }
+        }
+
+        return NO_ENTRIES;
+    }
+
+    /**
+     * Opens cursor returning terms of entries stored in posting lists of a section.
+     */
+    EntryTermsCursor openEntryTerms(int sectionId) {
+        var table = sectionCursor(sectionId, IndexConst.RECORD_TERM_TABLE);
+        var count = IndexBufferUtils.readVarInt(table);
+        var result = new EntryTermsCursor(data);
+        var cursor = data.duplicate();
+        for (int i = 0; i < count; i++) {
+            cursor.position(payloadOffset(data, table.getLong(), IndexConst.RECORD_TERM));
+            var termLength = IndexBufferUtils.readVarInt(cursor);
+            result.addTerm(cursor.position(), termLength, cursor.position() + termLength);
+        }
+        return result;
+    }
+
+    private static long[] readPostings(ByteBuffer cursor) {
+        var result = new long[IndexBufferUtils.readVarInt(cursor)];
+        long entryId = 0;
+        for (int i = 0; i < result.length; i++) {
+            entryId += IndexBufferUtils.readVarLong(cursor);
+            result[i] = entryId;
+        }
+        return result;
+    }
+
+    private void loadDictionaries() {
+        if (mimeTypes == null) {
+            var cursor = sectionCursor(IndexConst.SECTION_DICTIONARIES, IndexConst.RECORD_DICTIONARIES);
+            mimeTypes = readDictionary(cursor);
+            charsets = readDictionary(cursor);
+        }
+    }
+
+    private static List<String> readDictionary(ByteBuffer cursor) {
+        var count = IndexBufferUtils.readVarInt(cursor);
+        var result = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(IndexBufferUtils.readString(cursor));
+        }
+        return result;
+    }
+
+    private ByteBuffer sectionCursor(int sectionId, int recordTag) {
+        var offset = sections.get(sectionId);
+        if (offset == null) {
+            throw new IndexAccessException("Index section not found: " + sectionId, null);
+        }
+
+        var cursor = data.duplicate();
+        cursor.position(payloadOffset(data, offset, recordTag));
+        return cursor;
+    }
+
+    /**
+     * Verifies record tag at given offset and returns offset of its payload.
+     */
+    private static int payloadOffset(ByteBuffer data, long recordOffset, int expectedTag) {
+        var cursor = data.duplicate();
+        cursor.position(Math.toIntExact(recordOffset));
+        if (cursor.get() != expectedTag) {
+            throw new IndexAccessException("Index file is corrupted, unexpected record at: " + recordOffset, null);
+        }
+        IndexBufferUtils.readVarInt(cursor);
+        return cursor.position();
+    }
+}
@@ -0,0 +1,258 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scans binary index file mapped into memory. Entries are parsed in place,
+ * without copying index data into intermediate buffers.
+ * When scan is restricted to selected entries, they are read directly
+ * using dictionaries and directory table from index sections.
+ *
+ * @author piotr
+ */
+public class MappedIndexWalker implements TermIndexWalker {
+
+    private final ByteBuffer data;
+    private final ByteBuffer cursor;
+    private final List<String> mimeTypes = new ArrayList<>();
+    private final List<String> charsets = new ArrayList<>();
+    private final IndexDirectoryTable directories = new IndexDirectoryTable();
+
+    private String[] bufferedMeta;
+    private FoundDocument bufferedEntry;
+    private boolean endReached;
+    private MappedIndexSections sections;
+    private boolean sectionsLoaded;
+    private long[] restriction;
+    private int restrictionIndex;
+
+    public MappedIndexWalker(ByteBuffer data) {
+        this.data = data.asReadOnlyBuffer();
+        this.cursor = this.data.duplicate();
+        readHeader();
+    }
+
+    /**
+     * Checks if buffer starts with binary index header.
+     */
+    public static boolean isBinaryIndex(ByteBuffer data) {
+        var magic = IndexConst.BINARY_MAGIC.getBytes(StandardCharsets.US_ASCII);
+        if (data.limit() < magic.length) {
+            return false;
+        }
+
+        for (int i = 0; i < magic.length; i++) {
+            if (data.get(i) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // mapping is released by GC
+    }
+
+    @Override
+    public boolean hasTermSection(int termSection) {
+        var indexSections = getSections();
+        return indexSections != null && indexSections.hasSection(termSection);
+    }
+
+    @Override
+    public long[] findEntries(int termSection, String term) {
+        var indexSections = getSections();
+        return (indexSections != null) ? indexSections.findEntries(termSection, term) : null;
+    }
+
+    @Override
+    public EntryTermsCursor openEntryTerms(int termSection) {
+        if (!hasTermSection(termSection)) {
+            throw new IndexAccessException("Index section not found: " + termSection, null);
+        }
+        return sections.openEntryTerms(termSection);
+    }
+
+    @Override
+    public void restrictTo(long[] entryIds) {
+        if (getSections() == null) {
+            throw new IndexAccessException("Index does not support direct entry access", null);
+        }
+        restriction = entryIds.clone();
+        restrictionIndex = 0;
+    }
+
+    @Override
+    public FoundDocument next() {
+        if (restriction != null) {
+            return nextRestricted();
+        }
+
+        bufferedMeta = null;
+
+        while (bufferedEntry != null || readRecord()) {
+            if (bufferedEntry != null) {
+                var entry = bufferedEntry;
+                bufferedEntry = null;
+                return entry;
+            }
+            bufferedMeta = null;
+        }
+
+        return null;
+    }
+
+    @Override
+    public String[] nextMeta() {
+        if (bufferedEntry == null && readRecord() && bufferedMeta != null) {
+            var meta = bufferedMeta;
+            bufferedMeta = null;
+            return meta;
+        }
+
+        return null;
+    }
+
+    private MappedIndexSections getSections() {
+        if (!sectionsLoaded) {
+            sections = MappedIndexSections.load(data);
+            sectionsLoaded = true;
+        }
+        return sections;
+    }
+
+    private FoundDocument nextRestricted() {
+        if (restrictionIndex >= restriction.length) {
+            return null;
+        }
+
+        try {
+            var offset = Math.toIntExact(restriction[restrictionIndex++]);
+            cursor.position(offset);
+            if (cursor.get() != IndexConst.RECORD_DIR_ENTRY) {
+                throw new IndexAccessException("Index file is corrupted, entry expected at: " + offset, null);
+            }
+            IndexBufferUtils.readVarInt(cursor);
+            return readDirEntry(offset, sections.getDirectories(), sections.getMimeTypes(), sections.getCharsets());
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IndexAccessException("Index file is corrupted", e);
+        }
+    }
+
+    private void readHeader() {
+        if (!isBinaryIndex(cursor)) {
+            throw new IndexAccessException("Not a binary index file", null);
+        }
+
+        cursor.position(IndexConst.BINARY_MAGIC.length());
+        var version = IndexBufferUtils.readVarInt(cursor);
+        if (version > IndexConst.BINARY_FORMAT_VERSION) {
+            throw new IndexAccessException("Unsupported index format version: " + version, null);
+        }
+    }
+
+    /**
+     * Reads records until a meta or entry record is found.
+     *
+     * @return false on end of data
+     */
+    private boolean readRecord() {
+        try {
+            while (!endReached && cursor.hasRemaining()) {
+                var recordOffset = cursor.position();
+                var tag = cursor.get();
+                var length = IndexBufferUtils.readVarInt(cursor);
+                var payloadEnd = cursor.position() + length;
+
+                switch (tag) {
+                    case IndexConst.RECORD_END:
+                        endReached = true;
+                        break;
+                    case IndexConst.RECORD_META:
+                        bufferedMeta = new String[]{IndexBufferUtils.readString(cursor), IndexBufferUtils.readString(cursor)};
+                        cursor.position(payloadEnd);
+                        return true;
+                    case IndexConst.RECORD_MIME_TYPE:
+                        mimeTypes.add(IndexBufferUtils.readString(cursor));
+                        break;
+                    case IndexConst.RECORD_CHARSET:
+                        charsets.add(IndexBufferUtils.readString(cursor));
+                        break;
+                    case IndexConst.RECORD_DIRECTORY:
+                        directories.add(IndexBufferUtils.readVarInt(cursor), IndexBufferUtils.readString(cursor));
+                        break;
+                    case IndexConst.RECORD_ENTRY:
+                        bufferedEntry = readEntry(recordOffset);
+                        cursor.position(payloadEnd);
+                        return true;
+                    case IndexConst.RECORD_DIR_ENTRY:
+                        bufferedEntry = readDirEntry(recordOffset, directories, mimeTypes, charsets);
+                        cursor.position(payloadEnd);
+                        return true;
+                    default:
+                        break;
+                }
+
+                cursor.position(payloadEnd);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IndexAccessException("Index file is corrupted", e);
+        }
+
+        endReached = true;
+        return false;
+    }
+
+    private FoundDocument readEntry(long entryId) {
+        var flags = cursor.get();
+        var pathLength = IndexBufferUtils.readVarInt(cursor);
+        var pathOffset = cursor.position();
+        cursor.position(pathOffset + pathLength);
+        var mimeType = mimeTypes.get(IndexBufferUtils.readVarInt(cursor));
+        var charsetName = charsets.get(IndexBufferUtils.readVarInt(cursor));
+
+        return new MappedFoundDocument(data, entryId, null, 0, pathOffset, pathLength,
+                flags & IndexConst.ENTRY_FLAG_DIRECTORY, mimeType, charsetName,
+                FoundDocument.UNKNOWN_STAMP, FoundDocument.UNKNOWN_STAMP);
+    }
+
+    private FoundDocument readDirEntry(long entryId, IndexDirectoryTable dirTable, List<String> mimeTypeList, List<String> charsetList) {
+        var flags = cursor.get();
+        var dirId = IndexBufferUtils.readVarInt(cursor);
+        var nameLength = IndexBufferUtils.readVarInt(cursor);
+        var nameOffset = cursor.position();
+        cursor.position(nameOffset + nameLength);
+        var mimeType = mimeTypeList.get(IndexBufferUtils.readVarInt(cursor));
+        var charsetName = charsetList.get(IndexBufferUtils.readVarInt(cursor));
+
+        long size = FoundDocument.UNKNOWN_STAMP;
+        long lastModified = FoundDocument.UNKNOWN_STAMP;
+        if ((flags & IndexConst.ENTRY_FLAG_STAMP) != 0) {
+            size = IndexBufferUtils.readVarLong(cursor);
+            lastModified = IndexBufferUtils.readVarLong(cursor);
+        }
+
+        return new MappedFoundDocument(data, entryId, dirTable, dirId, nameOffset, nameLength,
+                flags, mimeType, charsetName, size, lastModified);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+/**
+ * Creates index walker working on memory-mapped index file.
+ * Falls back to stream-based walkers for text indexes and for files
+ * which cannot be mapped.
+ *
+ * @author piotr
+ */
+public class MappedIndexWalkerFactory implements IndexWalkerFactory {
+
+    private final IndexStorage indexStorage;
+    private final IndexWalkerFactory fallbackFactory;
+
+    public MappedIndexWalkerFactory(IndexStorage indexStorage) {
+        this.indexStorage = indexStorage;
+        this.fallbackFactory = new BasicIndexWalkerFactory(indexStorage);
+    }
+
+    /**
+     * @throws IndexAccessException if file is a manifest of segmented index
+     */
+    @Override
+    public IndexWalker newWalker(String indexFilePath) {
+        var data = indexStorage.mapIndexFile(indexFilePath);
+        if (data != null && MappedIndexWalker.isBinaryIndex(data)) {
+            return new MappedIndexWalker(data);
+        }
+
+        if (data != null && IndexManifest.isManifest(data)) {
+            throw new IndexAccessException("Index file is a manifest of segmented index: " + indexFilePath, null);
+        }
+
+        return fallbackFactory.newWalker(indexFilePath);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Matches search items (index entries or walked files) on a pool of worker
+ * threads. Items are added by a single thread and passed to workers in
+ * batches. Search context is not thread-safe, so each worker prepares its
+ * own one on first use.
+ * <p>
+ * Found paths are passed to output in order of completion, by the thread
+ * adding items, or - in ordered mode - in order of items, through reorder
+ * buffer (see {@link OrderedPipeline}). Number of batches in flight is
+ * bounded, adding thread is blocked when workers fall behind.
+ *
+ * @author piotr
+ */
+final class MatchingPool<T> implements AutoCloseable {
+
+    // number of items matched by worker in a single task
+    private static final int BATCH_SIZE = 64;
+    // number of batches in flight, per worker
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /**
+     * Matches batch of items using context of worker.
+     */
+    interface BatchMatcher<T> {
+        /**
+         * @return paths of matching items
+         */
+        List<String> match(List<T> items, SearchContext context);
+    }
+
+    private final BatchMatcher<T> batchMatcher;
+    private final ThreadLocal<SearchContext> contexts;
+    private final Consumer<String> output;
+    private final int capacity;
+    // ordered mode
+    private final OrderedPipeline<List<String>> pipeline;
+    // unordered mode
+    private final ExecutorService executor;
+    private final ExecutorCompletionService<List<String>> completion;
+    private int inFlight;
+    private List<T> batch = new ArrayList<>(BATCH_SIZE);
+
+    /**
+     * @param contextFactory creates prepared context for a worker
+     */
+    MatchingPool(String name, int threadCount, boolean ordered, Supplier<SearchContext> contextFactory,
+                 BatchMatcher<T> batchMatcher, Consumer<String> output) {
+        this.batchMatcher = batchMatcher;
+        this.contexts = ThreadLocal.withInitial(contextFactory);
+        this.output = output;
+        this.capacity = threadCount * BATCHES_PER_THREAD;
+
+        if (ordered) {
+            this.pipeline = new OrderedPipeline<>(name, threadCount, capacity, found -> found.forEach(output));
+            this.executor = null;
+            this.completion = null;
+        } else {
+            this.pipeline = null;
+            this.executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+                var thread = new Thread(runnable, name + "-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.completion = new ExecutorCompletionService<>(executor);
+        }
+    }
+
+    void add(T item) {
+        batch.add(item);
+        if (batch.size() == BATCH_SIZE) {
+            submitBatch();
+        }
+    }
+
+    /**
+     * Matches remaining items and waits until all results are passed to output.
+     */
+    void finish() {
+        if (!batch.isEmpty()) {
+            submitBatch();
+        }
+
+        if (pipeline != null) {
+            pipeline.finish();
+            return;
+        }
+        while (inFlight > 0) {
+            outputResult(take());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pipeline != null) {
+            pipeline.close();
+        } else {
+            executor.shutdownNow();
+        }
+    }
+
+    private void submitBatch() {
+        var items = batch;
+        batch = new ArrayList<>(BATCH_SIZE);
+
+        if (pipeline != null) {
+            pipeline.submit(() -> batchMatcher.match(items, contexts.get()));
+            return;
+        }
+
+        if (inFlight == capacity) {
+            outputResult(take());
+        }
+        completion.submit(() -> batchMatcher.match(items, contexts.get()));
+        inFlight++;
+
+        // results which are ready are passed without waiting
+        Future<List<String>> done;
+        while ((done = completion.poll()) != null) {
+            outputResult(done);
+        }
+    }
+
+    private Future<List<String>> take() {
+        try {
+            return completion.take();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SearchException("Search interrupted", ie);
+        }
+    }
+
+    private void outputResult(Future<List<String>> result) {
+        inFlight--;
+        try {
+            result.get().forEach(output);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SearchException("Search interrupted", ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof SearchException) {
+                throw (SearchException) ee.getCause();
+            }
+            throw new SearchException("Unknown error: " + ee.getCause().getMessage(), ee.getCause());
+        }
+    }
+}
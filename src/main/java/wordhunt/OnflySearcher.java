@@ -1,5 +1,8 @@
 package wordhunt;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class OnflySearcher implements DocumentSearcher {
 
     private final SearchConfig config;
@@ -10,10 +13,44 @@ public class OnflySearcher implements DocumentSearcher {
 
     @Override
     public void search(SearchTerms terms, SearchMatcher matcher, SearchConsumer consumer) {
+        String dirName = (String) config.getValue(SearchConst.CFG_SEARCH_ROOT_DIR);
+
+        var threadCount = config.getSearchThreadCount();
+        if (threadCount > 1) {
+            searchInParallel(dirName, terms, matcher, consumer, threadCount);
+            return;
+        }
+
         SearchContext context = newSearchContext();
         matcher.prepare(terms, context);
-        String dirName = (String) config.getValue(SearchConst.CFG_SEARCH_ROOT_DIR);
-        new FileWalker().walk(dirName, (String absolutePath, boolean isDirectory) -> processEntry(absolutePath, isDirectory, context, matcher, consumer));
+        FileWalker.newWalker(config).walk(dirName, (String absolutePath, boolean isDirectory) -> processEntry(absolutePath, isDirectory, context, matcher, consumer));
+    }
+
+    /**
+     * Walked files are matched (type detection, content scanning) on worker threads,
+     * while walker lists next directories. Each worker has its own search context.
+     */
+    private void searchInParallel(String dirName, SearchTerms terms, SearchMatcher matcher, SearchConsumer consumer, int threadCount) {
+        var ordered = Boolean.TRUE.equals(config.getValue(SearchConst.CFG_SEARCH_ORDERED));
+
+        try (var pool = new MatchingPool<WalkedItem>("wordhunt-onfly", threadCount, ordered, () -> {
+            var workerContext = newSearchContext();
+            matcher.prepare(terms, workerContext);
+            return workerContext;
+        }, (items, workerContext) -> matchBatch(items, matcher, workerContext), consumer::handle)) {
+            FileWalker.newWalker(config).walk(dirName, (String absolutePath, boolean isDirectory) -> pool.add(new WalkedItem(absolutePath, isDirectory)));
+            pool.finish();
+        }
+    }
+
+    private List<String> matchBatch(List<WalkedItem> items, SearchMatcher matcher, SearchContext context) {
+        List<String> found = new ArrayList<>();
+        for (WalkedItem item : items) {
+            if (Boolean.TRUE.equals(matcher.isMatching(item.absolutePath, item.isDirectory, context, null))) {
+                found.add(item.absolutePath);
+            }
+        }
+        return found;
     }
 
     private void processEntry(String absolutePath, boolean isDirectory, SearchContext context, SearchMatcher matcher, SearchConsumer consumer) {
@@ -25,4 +62,14 @@ public class OnflySearcher implements DocumentSearcher {
     protected SearchContext newSearchContext() {
         return new SearchContext();
     }
+
+    private static final class WalkedItem {
+        private final String absolutePath;
+        private final boolean isDirectory;
+
+        WalkedItem(String absolutePath, boolean isDirectory) {
+            this.absolutePath = absolutePath;
+            this.isDirectory = isDirectory;
+        }
+    }
 }
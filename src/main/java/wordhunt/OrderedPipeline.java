@@ -0,0 +1,158 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks on a pool of workers and passes their results to a single
+ * consumer thread in submission order. Number of tasks in flight is bounded:
+ * producer is blocked when workers or consumer fall behind.
+ * <p>
+ * After first failure remaining results are discarded and the failure is
+ * rethrown to producer on next submit or on finish.
+ *
+ * @author piotr
+ */
+final class OrderedPipeline<T> implements AutoCloseable {
+
+    private final Future<T> endMarker = CompletableFuture.completedFuture(null);
+    private final ExecutorService workers;
+    private final BlockingQueue<Future<T>> pending;
+    private final Consumer<T> consumer;
+    private final Thread consumerThread;
+    private volatile Throwable failure;
+    private boolean finished;
+
+    /**
+     * @param capacity maximum number of results waiting for consumer
+     */
+    OrderedPipeline(String name, int workerCount, int capacity, Consumer<T> consumer) {
+        this(name, Executors.newFixedThreadPool(workerCount, runnable -> {
+            var thread = new Thread(runnable, name + "-worker");
+            thread.setDaemon(true);
+            return thread;
+        }), capacity, consumer);
+    }
+
+    /**
+     * @param workers  executor running tasks, it is shut down when pipeline is closed
+     * @param capacity maximum number of results waiting for consumer
+     */
+    OrderedPipeline(String name, ExecutorService workers, int capacity, Consumer<T> consumer) {
+        this.workers = workers;
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.consumer = consumer;
+        this.consumerThread = new Thread(this::consumeAll, name + "-consumer");
+        this.consumerThread.setDaemon(true);
+        this.consumerThread.start();
+    }
+
+    /**
+     * Schedules task, blocks if too many results are waiting for consumer.
+     */
+    void submit(Callable<T> task) {
+        rethrowFailure();
+        put(workers.submit(task));
+    }
+
+    /**
+     * Waits until all results are consumed.
+     */
+    void finish() {
+        put(endMarker);
+        try {
+            consumerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SearchException("Interrupted while waiting for pipeline", e);
+        }
+        finished = true;
+        rethrowFailure();
+    }
+
+    @Override
+    public void close() {
+        if (finished) {
+            workers.shutdown();
+            return;
+        }
+
+        // producer failed or was interrupted, drop pending work
+        workers.shutdownNow();
+        pending.clear();
+        consumerThread.interrupt();
+        try {
+            consumerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void put(Future<T> future) {
+        try {
+            pending.put(future);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SearchException("Interrupted while waiting for pipeline", e);
+        }
+    }
+
+    private void consumeAll() {
+        try {
+            Future<T> future;
+            while ((future = pending.take()) != endMarker) {
+                if (failure != null) {
+                    future.cancel(true);
+                    continue;
+                }
+
+                try {
+                    consumer.accept(future.get());
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                } catch (RuntimeException | Error e) {
+                    failure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            // pipeline closed before finish
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrowFailure() {
+        var error = failure;
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error != null) {
+            throw new SearchException("Unknown error: " + error.getMessage(), error);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Directory walker which lists directories concurrently using work-stealing
+ * pool. Each listed directory forks listing of its subdirectories, so
+ * listing runs ahead of the visitor. Number of listings waiting for visitor
+ * is limited, subdirectories found above the limit are listed when visitor
+ * reaches them.
+ * <p>
+ * Visitor is called only from the calling thread, in the same order as by
+ * {@link FileWalker}: items in directory listing order, subdirectory
+ * contents before the subdirectory itself. Symbolic links are not followed.
+ * Walk filter is applied while listing, so excluded directories are not
+ * forked.
+ *
+ * @author piotr
+ */
+public class ParallelFileWalker extends FileWalker {
+
+    private static final int PENDING_LISTINGS_PER_THREAD = 64;
+
+    private final int parallelism;
+
+    public ParallelFileWalker(int parallelism) {
+        this(parallelism, WalkFilter.none());
+    }
+
+    public ParallelFileWalker(int parallelism, WalkFilter filter) {
+        this(parallelism, filter, IoBudget.unlimited());
+    }
+
+    /**
+     * @param ioBudget paces listing, it is shared by all listing threads
+     */
+    public ParallelFileWalker(int parallelism, WalkFilter filter, IoBudget ioBudget) {
+        super(filter, ioBudget);
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void walk(String dirName, FileVisitor visitor) {
+        var root = Paths.get(dirName).toAbsolutePath();
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            var attrs = Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attrs.isDirectory()) {
+                visitor.handleItem(root.toString(), false, attrs);
+                return;
+            }
+
+            var pendingListings = new Semaphore(parallelism * PENDING_LISTINGS_PER_THREAD);
+            var rootListing = new ListingTask(root, attrs, getFilter().rootScope(root), getIoBudget(), pendingListings);
+            visitDirectory(pool, rootListing, visitor);
+        } catch (IOException e) {
+            throw new SearchException("Error walking directory: " + dirName, e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void visitDirectory(ForkJoinPool pool, ListingTask listing, FileVisitor visitor) throws IOException {
+        if (!listing.forked) {
+            // listing was not started ahead of visitor
+            pool.execute(listing);
+        }
+        listing.join();
+        if (listing.error != null) {
+            throw listing.error;
+        }
+
+        for (Item item : listing.items) {
+            if (item.subdirListing != null) {
+                visitDirectory(pool, item.subdirListing, visitor);
+            } else {
+                // directory not listed due to depth limit is visited as directory
+                visitor.handleItem(item.path.toString(), item.attributes.isDirectory(), item.attributes);
+            }
+        }
+        visitor.handleItem(listing.dir.toString(), true, listing.attributes);
+        // listing is no longer needed, release it before rest of the tree is visited
+        listing.items = null;
+        if (listing.forked) {
+            listing.pendingListings.release();
+        }
+    }
+
+    private static final class Item {
+        private final Path path;
+        private final BasicFileAttributes attributes;
+        // null for files
+        private final ListingTask subdirListing;
+
+        Item(Path path, BasicFileAttributes attributes, ListingTask subdirListing) {
+            this.path = path;
+            this.attributes = attributes;
+            this.subdirListing = subdirListing;
+        }
+    }
+
+    /**
+     * Lists a single directory and forks listing of its subdirectories.
+     * Task is not serialized.
+     */
+    @SuppressWarnings("serial")
+    private static final class ListingTask extends RecursiveAction {
+        private final Path dir;
+        private final BasicFileAttributes attributes;
+        private final WalkFilter.Scope scope;
+        private final IoBudget ioBudget;
+        // one permit for each forked listing which was not visited yet
+        private final Semaphore pendingListings;
+        private boolean forked;
+        private List<Item> items;
+        private IOException error;
+
+        ListingTask(Path dir, BasicFileAttributes attributes, WalkFilter.Scope scope, IoBudget ioBudget,
+                    Semaphore pendingListings) {
+            this.dir = dir;
+            this.attributes = attributes;
+            this.scope = scope;
+            this.ioBudget = ioBudget;
+            this.pendingListings = pendingListings;
+        }
+
+        /**
+         * Starts listing ahead of visitor, unless too many listings wait for visitor already.
+         */
+        void forkIfAllowed() {
+            if (pendingListings.tryAcquire()) {
+                forked = true;
+                fork();
+            }
+        }
+
+        @Override
+        protected void compute() {
+            var result = new ArrayList<Item>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path path : stream) {
+                    ioBudget.acquireFiles(1);
+                    var attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    var name = path.getFileName().toString();
+                    if (!scope.accepts(name, attrs.isDirectory())) {
+                        continue;
+                    }
+
+                    ListingTask subdirListing = null;
+                    if (attrs.isDirectory()) {
+                        var subdirScope = scope.enter(path, name);
+                        if (subdirScope.isListed()) {
+                            subdirListing = new ListingTask(path, attrs, subdirScope, ioBudget, pendingListings);
+                            subdirListing.forkIfAllowed();
+                        }
+                    }
+                    result.add(new Item(path, attrs, subdirListing));
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            items = result;
+        }
+    }
+}
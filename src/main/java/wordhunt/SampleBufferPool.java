@@ -0,0 +1,57 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of direct buffers for reading file samples and contents. Buffers are shared
+ * between threads (including virtual threads, for which thread-local
+ * buffers would be created per task). Taking and returning a buffer does
+ * not allocate.
+ *
+ * @author piotr
+ */
+final class SampleBufferPool {
+
+    private static final int MAX_POOLED_BUFFERS = 1024;
+
+    private final BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+    private final int bufferSize;
+
+    SampleBufferPool(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @return cleared buffer, to be returned with {@link #release(ByteBuffer)}
+     */
+    ByteBuffer acquire() {
+        var buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        // pool is full when more buffers were used at the same time, extra ones are dropped
+        buffers.offer(buffer);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+/**
+ * Entry checked by stages of search plan. Holds data found by earlier stages,
+ * so later stages do not compute it again.
+ *
+ * @author piotr
+ */
+final class SearchCandidate {
+
+    private final String filePath;
+    private final boolean isDirectory;
+    private final String rootDir;
+    private String absolutePath;
+    private FoundDocument document;
+    private String[] wordsLeftForContent;
+    private DocumentInfo documentInfo;
+
+    private SearchCandidate(String filePath, boolean isDirectory, String rootDir, String absolutePath,
+                            FoundDocument document) {
+        this.filePath = filePath;
+        this.isDirectory = isDirectory;
+        this.rootDir = rootDir;
+        this.absolutePath = absolutePath;
+        this.document = document;
+    }
+
+    /**
+     * Creates candidate for entry from index, its file type is known.
+     */
+    static SearchCandidate ofEntry(FoundDocument entry, String rootDir) {
+        return new SearchCandidate(entry.getFilePath(), entry.isDirectory(), rootDir, null, entry);
+    }
+
+    /**
+     * Creates candidate for walked file, its file type is detected when needed.
+     */
+    static SearchCandidate ofWalkedFile(String absolutePath, boolean isDirectory, String rootDir) {
+        return new SearchCandidate(FilePathUtils.absoluteToRelativePath(absolutePath, rootDir), isDirectory,
+                rootDir, absolutePath, null);
+    }
+
+    /**
+     * @return path relative to search root
+     */
+    String getFilePath() {
+        return filePath;
+    }
+
+    boolean isDirectory() {
+        return isDirectory;
+    }
+
+    String getAbsolutePath() {
+        if (absolutePath == null) {
+            absolutePath = FilePathUtils.toAbsolutePath(rootDir, filePath);
+        }
+        return absolutePath;
+    }
+
+    /**
+     * @return document with file type, null if type of walked file was not detected yet
+     */
+    FoundDocument getDocument() {
+        return document;
+    }
+
+    void setDocument(FoundDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * @return content words not found in path, null if there are no content conditions
+     */
+    String[] getWordsLeftForContent() {
+        return wordsLeftForContent;
+    }
+
+    void setWordsLeftForContent(String[] wordsLeftForContent) {
+        this.wordsLeftForContent = wordsLeftForContent;
+    }
+
+    /**
+     * @return attributes of document, null if they were not read
+     */
+    DocumentInfo getDocumentInfo() {
+        return documentInfo;
+    }
+
+    void setDocumentInfo(DocumentInfo documentInfo) {
+        this.documentInfo = documentInfo;
+    }
+}
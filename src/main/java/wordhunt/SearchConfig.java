@@ -21,4 +21,39 @@ package wordhunt;
  * @author piotr
  */
 public class SearchConfig extends KeyValueStorage {
+
+    private IoBudget ioBudget;
+
+    /**
+     * @return number of threads configured for walking and indexing, by default one per processor
+     */
+    public int getThreadCount() {
+        var threads = (Integer) getValue(SearchConst.CFG_THREADS);
+        return (threads != null) ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return number of threads configured for matching of documents, by default one
+     */
+    public int getSearchThreadCount() {
+        var threads = (Integer) getValue(SearchConst.CFG_SEARCH_THREADS);
+        return (threads != null) ? threads : 1;
+    }
+
+    /**
+     * @return path of file type cache, null if cache is not used
+     */
+    public String getTypeCachePath() {
+        return (String) getValue(SearchConst.CFG_TYPE_CACHE_PATH);
+    }
+
+    /**
+     * @return I/O budget configured for this run, the same instance for all walkers and detectors
+     */
+    public synchronized IoBudget getIoBudget() {
+        if (ioBudget == null) {
+            ioBudget = IoBudget.fromConfig(this);
+        }
+        return ioBudget;
+    }
 }
@@ -37,6 +37,24 @@ public final class SearchConst {
     public static final String CFG_SEARCH_CASE_SENSITIVE = "case_sensitive";
     public static final String CFG_SEARCH_NO_CASE_SPLIT = "no_case_split";
     public static final String CFG_SEARCH_BRIEF = "list";
+    public static final String CFG_SEARCH_THREADS = "search_threads";
+    public static final String CFG_SEARCH_ORDERED = "search_ordered";
+    public static final String CFG_INDEX_WITH_CONTENT = "index_with_content";
+    public static final String CFG_INDEX_SEGMENTS = "index_segments";
+    public static final String CFG_THREADS = "threads";
+    public static final String CFG_INDEX_VIRTUAL_THREADS = "index_virtual_threads";
+    public static final String CFG_INDEX_RESUME = "index_resume";
+    public static final String CFG_TYPE_CACHE_PATH = "type_cache_path";
+    public static final String CFG_WALK_EXCLUDE = "walk_exclude";
+    public static final String CFG_WALK_SKIP_HIDDEN = "walk_skip_hidden";
+    public static final String CFG_WALK_MAX_DEPTH = "walk_max_depth";
+    public static final String CFG_WALK_IGNORE_FILES = "walk_ignore_files";
+    public static final String CFG_IO_BYTES_PER_SECOND = "io_bytes_per_second";
+    public static final String CFG_IO_FILES_PER_SECOND = "io_files_per_second";
+    public static final String CFG_IO_ADAPTIVE = "io_adaptive";
+
+    // search context value with content word index (ContentWordIndex)
+    public static final String CTX_CONTENT_INDEX = "content_index";
 
     private SearchConst() {
     }
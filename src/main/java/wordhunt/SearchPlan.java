@@ -0,0 +1,108 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matcher running ordered checks (stages) prepared by SearchPlanner.
+ * Entry is rejected by the first stage which returns FALSE, so later
+ * (more expensive) stages are not executed for it.
+ *
+ * @author piotr
+ */
+final class SearchPlan implements SearchMatcher {
+
+    /**
+     * Kinds of stages, in order of their cost.
+     */
+    enum StageKind {
+        FLAGS, PATH, FILE_TYPE, DOCUMENT_INFO, CONTENT
+    }
+
+    /**
+     * Single check of candidate, with result like in SearchMatcher.
+     */
+    interface StageCheck {
+        Boolean check(SearchCandidate candidate, SearchContext context, Boolean acceptedStatus);
+    }
+
+    static final class Stage {
+        private final StageKind kind;
+        private final StageCheck check;
+
+        Stage(StageKind kind, StageCheck check) {
+            this.kind = kind;
+            this.check = check;
+        }
+
+        StageKind getKind() {
+            return kind;
+        }
+    }
+
+    private final String rootDir;
+    private final List<SearchMatcher> matchers;
+    private final List<Stage> stages;
+
+    /**
+     * @param rootDir search root directory
+     * @param matchers matchers providing stages, they are prepared before search
+     * @param stages stages in order of execution
+     */
+    SearchPlan(String rootDir, List<SearchMatcher> matchers, List<Stage> stages) {
+        this.rootDir = rootDir;
+        this.matchers = new ArrayList<>(matchers);
+        this.stages = new ArrayList<>(stages);
+    }
+
+    List<StageKind> getStageKinds() {
+        var result = new ArrayList<StageKind>();
+        for (var stage : stages) {
+            result.add(stage.getKind());
+        }
+        return result;
+    }
+
+    @Override
+    public void prepare(SearchTerms terms, SearchContext context) {
+        for (var matcher : matchers) {
+            matcher.prepare(terms, context);
+        }
+    }
+
+    @Override
+    public Boolean isMatching(FoundDocument entry, SearchContext context, Boolean acceptedStatus) {
+        return isMatching(SearchCandidate.ofEntry(entry, rootDir), context, acceptedStatus);
+    }
+
+    @Override
+    public Boolean isMatching(String absolutePath, boolean isDirectory, SearchContext context, Boolean acceptedStatus) {
+        return isMatching(SearchCandidate.ofWalkedFile(absolutePath, isDirectory, rootDir), context, acceptedStatus);
+    }
+
+    private Boolean isMatching(SearchCandidate candidate, SearchContext context, Boolean acceptedStatus) {
+        Boolean matchedStatus = acceptedStatus;
+        for (var stage : stages) {
+            matchedStatus = stage.check.check(candidate, context, matchedStatus);
+            if (Boolean.FALSE.equals(matchedStatus)) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE.equals(matchedStatus);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import wordhunt.SearchPlan.Stage;
+import wordhunt.SearchPlan.StageKind;
+
+/**
+ * Builds search plan for search terms. Stages of plan are ordered by their cost,
+ * so entries are rejected as early as possible:
+ * <ol>
+ * <li>flags - ignored files and directories, entry data only</li>
+ * <li>path - path and file name words, entry data only</li>
+ * <li>file type - mime type and charset from index entry, without file system access</li>
+ * <li>document info - existence, readability and size, single read of document attributes</li>
+ * <li>content - file type of walked file (read of file sample), then content words
+ * (content index or read of whole file)</li>
+ * </ol>
+ * Stages without terms are not included in plan, e.g. search by file name
+ * does not read attributes or type of files.
+ *
+ * @author piotr
+ */
+final class SearchPlanner {
+
+    private SearchPlanner() {
+    }
+
+    static SearchPlan plan(SearchConfig config, SearchTerms terms, FileTypeDetector fileTypeDetector,
+                           DocumentStorage documentStorage) {
+        var matchers = new ArrayList<SearchMatcher>();
+        var stages = new ArrayList<Stage>();
+
+        var pathMatcher = new FilePathMatcher(config, null);
+        matchers.add(pathMatcher);
+        stages.add(new Stage(StageKind.FLAGS, pathMatcher::checkFlags));
+        if (hasPathTerms(terms)) {
+            stages.add(new Stage(StageKind.PATH, pathMatcher::checkPathWords));
+        }
+
+        if (hasContentTerms(terms)) {
+            var contentMatcher = new FileContentMatcher(config, fileTypeDetector, documentStorage);
+            matchers.add(contentMatcher);
+            stages.add(new Stage(StageKind.FILE_TYPE, contentMatcher::checkFileType));
+            stages.add(new Stage(StageKind.DOCUMENT_INFO, contentMatcher::checkDocumentInfo));
+            stages.add(new Stage(StageKind.CONTENT, contentMatcher::checkContent));
+        }
+
+        return new SearchPlan((String) config.getValue(SearchConst.CFG_SEARCH_ROOT_DIR), matchers, stages);
+    }
+
+    /**
+     * @return true if terms contain words which are matched with path or name of documents
+     */
+    static boolean hasPathTerms(SearchTerms terms) {
+        return MatcherUtils.prepareWordsFromTerms(terms.getPathWords()).length > 0
+                || MatcherUtils.prepareWordsFromTerms(terms.getFileWords()).length > 0;
+    }
+
+    /**
+     * @return true if terms contain words which can be found in content of documents
+     */
+    static boolean hasContentTerms(SearchTerms terms) {
+        return MatcherUtils.prepareWordsFromTerms(terms.getAnyWords()).length > 0
+                || MatcherUtils.prepareWordsFromTerms(terms.getContentWords()).length > 0;
+    }
+}
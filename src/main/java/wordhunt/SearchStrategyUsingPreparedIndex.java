@@ -13,10 +13,12 @@ final class SearchStrategyUsingPreparedIndex {
     public void invoke(SearchTerms searchTerms) {
         DocumentStorage documentStorage = new DocumentStorageViaFiles();
         IndexStorage indexStorage = new IndexStorageViaFiles();
-        DocumentSearcher searcher = new IndexedDocumentSearcher(config, new BasicIndexWalkerFactory(indexStorage),
-                documentStorage, processLog::writeLine);
+        DocumentSearcher searcher = new IndexedDocumentSearcher(config, new MappedIndexWalkerFactory(indexStorage),
+                indexStorage, documentStorage, processLog::writeLine);
         SearchConsumer consumer = new BasicSearchConsumer(config, documentStorage, processLog::writeLine);
-        SearchMatcher matcher = new FilePathMatcher(config, new FileContentMatcher(config, new TextFileTypeDetector(), documentStorage), documentStorage);
-        searcher.search(searchTerms, matcher, consumer);
+        try (var detector = CachingFileTypeDetector.forConfig(config)) {
+            SearchMatcher matcher = SearchPlanner.plan(config, searchTerms, detector, documentStorage);
+            searcher.search(searchTerms, matcher, consumer);
+        }
     }
 }
@@ -14,7 +14,9 @@ class SearchStrategyWithoutIndex {
         DocumentStorage documentStorage = new DocumentStorageViaFiles();
         OnflySearcher searcher = new OnflySearcher(config);
         SearchConsumer consumer = new BasicSearchConsumer(config, documentStorage, processLog::writeLine);
-        SearchMatcher matcher = new FilePathMatcher(config, new FileContentMatcher(config, new TextFileTypeDetector(), documentStorage), documentStorage);
-        searcher.search(searchTerms, matcher, consumer);
+        try (var detector = CachingFileTypeDetector.forConfig(config)) {
+            SearchMatcher matcher = SearchPlanner.plan(config, searchTerms, detector, documentStorage);
+            searcher.search(searchTerms, matcher, consumer);
+        }
     }
 }
@@ -0,0 +1,118 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes index split into segments. Entries are assigned to segments by
+ * their parent directory, so all files of a directory are stored in the same
+ * segment. Each segment is a complete binary index. When all segments are
+ * written, manifest listing them (together with summary of the whole tree)
+ * is written to output path.
+ * <p>
+ * Segment file names contain generation id, so segments of a new index never
+ * overwrite ones used by an existing manifest.
+ *
+ * @author piotr
+ */
+public class SegmentedIndexEntryWriter implements IndexEntryWriter {
+
+    private final IndexStorage indexStorage;
+    private final String outputPath;
+    private final List<BinaryIndexEntryWriter> segments = new ArrayList<>();
+    private final List<String> segmentPaths = new ArrayList<>();
+    private final List<String> segmentNames = new ArrayList<>();
+    private String sourcePath;
+
+    /**
+     * @param indexPath  path under which manifest will be published, segment names are based on it
+     * @param outputPath path to which manifest is written
+     */
+    public SegmentedIndexEntryWriter(IndexStorage indexStorage, String indexPath, String outputPath, String rootDir,
+                                     int segmentCount) {
+        this.indexStorage = indexStorage;
+        this.outputPath = outputPath;
+
+        var generation = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+        for (int i = 0; i < segmentCount; i++) {
+            var segmentPath = IndexManifest.segmentPath(indexPath, generation, i);
+            segments.add(new BinaryIndexEntryWriter(indexStorage.getOutputStreamForIndexFile(segmentPath), rootDir, segmentPath));
+            segmentPaths.add(segmentPath);
+            segmentNames.add(Paths.get(segmentPath).getFileName().toString());
+        }
+    }
+
+    @Override
+    public void writeMeta(String name, String value) {
+        if (IndexConst.META_SOURCE_PATH.equals(name)) {
+            sourcePath = value;
+        }
+
+        for (BinaryIndexEntryWriter segment : segments) {
+            segment.writeMeta(name, value);
+        }
+    }
+
+    @Override
+    public void writeEntry(FoundDocument entry, Collection<String> contentWords) {
+        var parentDir = new File(entry.getFilePath()).getParent();
+        var segmentIndex = Math.floorMod(Objects.hashCode(parentDir), segments.size());
+        segments.get(segmentIndex).writeEntry(entry, contentWords);
+    }
+
+    @Override
+    public Map<String, Long> checkpoint() {
+        var result = new LinkedHashMap<String, Long>();
+        for (BinaryIndexEntryWriter segment : segments) {
+            result.putAll(segment.checkpoint());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        SearchException error = null;
+        var summary = new IndexSummary();
+        for (BinaryIndexEntryWriter segment : segments) {
+            summary.addAll(segment.getSummary());
+            try {
+                segment.close();
+            } catch (SearchException se) {
+                error = (error == null) ? se : error;
+            }
+        }
+
+        if (error != null) {
+            // manifest is not written, so segments would not be reachable
+            for (String segmentPath : segmentPaths) {
+                if (indexStorage.indexExists(segmentPath)) {
+                    indexStorage.removeIndex(segmentPath);
+                }
+            }
+            throw error;
+        }
+
+        IndexManifest.write(indexStorage, outputPath, sourcePath, summary, segmentNames);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+/**
+ * Index walker which can look up words in posting lists stored in index
+ * and limit scanning to selected entries.
+ *
+ * @author piotr
+ */
+public interface TermIndexWalker extends IndexWalker {
+
+    /**
+     * Checks if index contains a given term section.
+     *
+     * @param termSection id of term section (see IndexConst.SECTION_*)
+     */
+    boolean hasTermSection(int termSection);
+
+    /**
+     * Finds entries containing a given word.
+     *
+     * @param termSection id of term section (see IndexConst.SECTION_*)
+     * @param term word in form used by index (upper case)
+     * @return ascending entry ids or null if index does not contain such section
+     */
+    long[] findEntries(int termSection, String term);
+
+    /**
+     * Opens cursor returning terms of entries, which reads posting lists of
+     * a section in a single pass.
+     *
+     * @param termSection id of existing term section (see IndexConst.SECTION_*)
+     */
+    EntryTermsCursor openEntryTerms(int termSection);
+
+    /**
+     * Limits scanning to entries with given ids. Must be called before first
+     * call to next().
+     *
+     * @param entryIds ascending entry ids
+     */
+    void restrictTo(long[] entryIds);
+}
@@ -0,0 +1,95 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects term to posting list mapping in memory. Entry ids must be added
+ * in ascending order, posting lists are kept delta-coded as varints.
+ *
+ * @author piotr
+ */
+final class TermPostingsBuilder {
+
+    private final Map<String, Postings> terms = new HashMap<>();
+
+    void add(String term, long entryId) {
+        terms.computeIfAbsent(term, t -> new Postings()).add(entryId);
+    }
+
+    void addAll(Collection<String> termList, long entryId) {
+        for (String term : termList) {
+            add(term, entryId);
+        }
+    }
+
+    int size() {
+        return terms.size();
+    }
+
+    List<String> sortedTerms() {
+        var result = new ArrayList<>(terms.keySet());
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Writes posting list of a term: entry count followed by delta-coded entry ids.
+     */
+    void writePostings(String term, IndexRecordBuffer target) {
+        var postings = terms.get(term);
+        target.writeVarLong(postings.count);
+        target.writeRaw(postings.data, 0, postings.length);
+    }
+
+    private static final class Postings {
+        private static final int INITIAL_CAPACITY = 4;
+
+        private byte[] data = new byte[INITIAL_CAPACITY];
+        private int length;
+        private int count;
+        private long lastId;
+
+        void add(long entryId) {
+            if (count > 0 && entryId <= lastId) {
+                if (entryId == lastId) {
+                    return;
+                }
+                throw new IllegalArgumentException("Entry ids must be added in ascending order: " + entryId);
+            }
+
+            long delta = entryId - lastId;
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            }
+            while ((delta & ~0x7FL) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+
+            lastId = entryId;
+            count++;
+        }
+    }
+}
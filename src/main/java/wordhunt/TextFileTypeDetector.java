@@ -15,6 +15,8 @@ limitations under the License.
  */
 package wordhunt;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.Files;
 import java.io.File;
@@ -26,16 +28,36 @@ import java.io.File;
  */
 public class TextFileTypeDetector implements FileTypeDetector {
 
+    /**
+     * Version of detection rules, to be increased when they change - types
+     * detected by older rules are then not taken from cache.
+     */
+    public static final int DETECTION_VERSION = 1;
+
     private static final int ASCII_CODE_TAB = 9;
     private static final int ASCII_CODE_NL = 10;
     private static final int ASCII_CODE_CR = 13;
     private final FileTypeDetector nextDetector;
     private static final int DEFAULT_SAMPLE_LEN = 5000;
+    // sample of empty file is empty, which is valid text
+    private static final FileType EMPTY_FILE_TYPE = new FileType(MimeConst.PLAIN_TEXT,
+            CharsetUtils.detectCharsetName(new byte[0]));
     private final int maxSampleLength;
+    private final SampleBufferPool samplePool;
+    private final IoBudget ioBudget;
 
     public TextFileTypeDetector(FileTypeDetector nextDetector) {
+        this(nextDetector, IoBudget.unlimited());
+    }
+
+    /**
+     * @param ioBudget paces reading of file samples
+     */
+    public TextFileTypeDetector(FileTypeDetector nextDetector, IoBudget ioBudget) {
         this.nextDetector = nextDetector;
         this.maxSampleLength = DEFAULT_SAMPLE_LEN;
+        this.samplePool = new SampleBufferPool(this.maxSampleLength);
+        this.ioBudget = ioBudget;
     }
 
     public TextFileTypeDetector() {
@@ -52,20 +74,95 @@ public class TextFileTypeDetector implements FileTypeDetector {
         var file = new File(absolutePath);
 
         if (!file.isDirectory()) {
-            var data = FileUtils.readFileSampleIntoByteArray(file, this.maxSampleLength);
-
-            if (isPlainTextData(data)) {
-                var mimeType = MimeConst.PLAIN_TEXT;
-                var charsetName = CharsetUtils.detectCharsetName(data);
-                return new FileType(mimeType, charsetName);
+            var fileType = detectInSample(path, maxSampleLength);
+            if (fileType != null && !FileType.UNKNOWN_FILE_TYPE.equals(fileType)) {
+                return fileType;
             }
         }
 
         return detectByNext(absolutePath);
     }
 
+    /**
+     * Detects file type using attributes known from walk. No attributes
+     * are read, file which cannot be opened is passed to next detector.
+     * Known size limits the sample, empty file is not read at all.
+     */
+    @Override
+    public FileType detectFileType(String absolutePath, DocumentInfo info) {
+        var fileType = detectCacheableFileType(absolutePath, info);
+        return FileType.UNKNOWN_FILE_TYPE.equals(fileType) ? null : fileType;
+    }
+
+    /**
+     * Detects file type using attributes known from walk. File which sample
+     * cannot be read is reported as null, unless next detector recognizes it.
+     */
+    @Override
+    public FileType detectCacheableFileType(String absolutePath, DocumentInfo info) {
+        var fileType = FileType.UNKNOWN_FILE_TYPE;
+        if (!info.isDirectory() && info.isReadable()) {
+            if (info.getSize() == 0) {
+                return EMPTY_FILE_TYPE;
+            }
+            fileType = detectInSample(Paths.get(absolutePath), sampleLength(info.getSize()));
+            if (fileType != null && !FileType.UNKNOWN_FILE_TYPE.equals(fileType)) {
+                return fileType;
+            }
+        }
+
+        if (nextDetector != null) {
+            var nextType = nextDetector.detectCacheableFileType(absolutePath, info);
+            if (nextType == null || !FileType.UNKNOWN_FILE_TYPE.equals(nextType)) {
+                return nextType;
+            }
+        }
+
+        return fileType;
+    }
+
+    /**
+     * Reads sample of file into pooled buffer and checks its contents.
+     *
+     * @param sampleLength number of bytes to be read, at most maximum sample length
+     *
+     * @return text file type, {@link FileType#UNKNOWN_FILE_TYPE} if file is not
+     * a text file or null if file cannot be read
+     */
+    private FileType detectInSample(Path path, int sampleLength) {
+        var sample = samplePool.acquire();
+        sample.limit(sampleLength);
+        try {
+            if (!FileUtils.readFileSample(path, sample, ioBudget)) {
+                return null;
+            }
+            if (!isPlainTextData(sample)) {
+                return FileType.UNKNOWN_FILE_TYPE;
+            }
+            return new FileType(MimeConst.PLAIN_TEXT, CharsetUtils.detectCharsetName(sample));
+        } finally {
+            samplePool.release(sample);
+        }
+    }
+
+    /**
+     * @param size size of file or UNKNOWN_STAMP
+     * @return length of sample, so that reading stops at end of file
+     */
+    private int sampleLength(long size) {
+        return (size == FoundDocument.UNKNOWN_STAMP || size > maxSampleLength) ? maxSampleLength : (int) size;
+    }
+
     boolean isPlainTextData(byte[] data) {
-        for (byte a: data) {
+        return isPlainTextData(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Checks data between position and limit of buffer, position is not changed.
+     */
+    boolean isPlainTextData(ByteBuffer data) {
+        for (int i = data.position(); i < data.limit(); i++) {
+            byte a = data.get(i);
             if (a >= 0 && a < ' ') {
                 switch (a) {
                     case ASCII_CODE_TAB:
@@ -0,0 +1,246 @@
+/*
+Copyright 2017 Piotr Likus
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package wordhunt;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rules selecting items visited by directory walk: exclude patterns, hidden
+ * (dot) files, maximum depth and .gitignore / .ignore files. Excluded
+ * directories are not listed at all.
+ * <p>
+ * Rules are stored in index meta information, so index updates and searches
+ * without index (when index is stale) visit the same items as the index build.
+ *
+ * @author piotr
+ */
+public final class WalkFilter {
+
+    private static final WalkFilter NONE = new WalkFilter(Collections.emptyList(), false, 0, false);
+    private static final String[] IGNORE_FILE_NAMES = {".gitignore", ".ignore"};
+    private static final String GIT_DIR_NAME = ".git";
+
+    private final List<String> excludes;
+    private final boolean skipHidden;
+    private final int maxDepth;
+    private final boolean useIgnoreFiles;
+    private final IgnoreRules excludeRules;
+
+    /**
+     * @param excludes       patterns of excluded items, in .gitignore syntax, relative to root dir
+     * @param maxDepth       maximum depth of visited items (root children have depth 1), 0 for no limit
+     * @param useIgnoreFiles if true, patterns from .gitignore and .ignore files are used and .git directories are skipped
+     */
+    public WalkFilter(List<String> excludes, boolean skipHidden, int maxDepth, boolean useIgnoreFiles) {
+        this.excludes = List.copyOf(excludes);
+        this.skipHidden = skipHidden;
+        this.maxDepth = maxDepth;
+        this.useIgnoreFiles = useIgnoreFiles;
+        this.excludeRules = IgnoreRules.parse(this.excludes);
+    }
+
+    /**
+     * @return filter which accepts all items
+     */
+    public static WalkFilter none() {
+        return NONE;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static WalkFilter fromConfig(SearchConfig config) {
+        var excludes = (List<String>) config.getValue(SearchConst.CFG_WALK_EXCLUDE);
+        var maxDepth = (Integer) config.getValue(SearchConst.CFG_WALK_MAX_DEPTH);
+        var filter = new WalkFilter((excludes != null) ? excludes : Collections.emptyList(),
+                Boolean.TRUE.equals(config.getValue(SearchConst.CFG_WALK_SKIP_HIDDEN)),
+                (maxDepth != null) ? maxDepth : 0,
+                Boolean.TRUE.equals(config.getValue(SearchConst.CFG_WALK_IGNORE_FILES)));
+        return filter.isEmpty() ? NONE : filter;
+    }
+
+    /**
+     * Builds filter from index meta information written by {@link #writeMeta(IndexEntryWriter)}.
+     *
+     * @param meta pairs of (name, value)
+     */
+    public static WalkFilter fromMeta(List<String[]> meta) {
+        var excludes = new ArrayList<String>();
+        var skipHidden = false;
+        var maxDepth = 0;
+        var useIgnoreFiles = false;
+
+        for (String[] item : meta) {
+            if (item.length < 2) {
+                continue;
+            }
+            switch (item[0]) {
+                case IndexConst.META_EXCLUDE:
+                    excludes.add(item[1]);
+                    break;
+                case IndexConst.META_SKIP_HIDDEN:
+                    skipHidden = Boolean.parseBoolean(item[1]);
+                    break;
+                case IndexConst.META_MAX_DEPTH:
+                    maxDepth = Integer.parseInt(item[1]);
+                    break;
+                case IndexConst.META_IGNORE_FILES:
+                    useIgnoreFiles = Boolean.parseBoolean(item[1]);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        var filter = new WalkFilter(excludes, skipHidden, maxDepth, useIgnoreFiles);
+        return filter.isEmpty() ? NONE : filter;
+    }
+
+    /**
+     * Stores rules in config, so walkers created from config use them.
+     */
+    public void applyTo(SearchConfig config) {
+        config.setValue(SearchConst.CFG_WALK_EXCLUDE, excludes.isEmpty() ? null : new ArrayList<>(excludes));
+        config.setValue(SearchConst.CFG_WALK_SKIP_HIDDEN, skipHidden ? Boolean.TRUE : null);
+        config.setValue(SearchConst.CFG_WALK_MAX_DEPTH, (maxDepth > 0) ? maxDepth : null);
+        config.setValue(SearchConst.CFG_WALK_IGNORE_FILES, useIgnoreFiles ? Boolean.TRUE : null);
+    }
+
+    public void writeMeta(IndexEntryWriter writer) {
+        for (String exclude : excludes) {
+            writer.writeMeta(IndexConst.META_EXCLUDE, exclude);
+        }
+        if (skipHidden) {
+            writer.writeMeta(IndexConst.META_SKIP_HIDDEN, Boolean.TRUE.toString());
+        }
+        if (maxDepth > 0) {
+            writer.writeMeta(IndexConst.META_MAX_DEPTH, Integer.toString(maxDepth));
+        }
+        if (useIgnoreFiles) {
+            writer.writeMeta(IndexConst.META_IGNORE_FILES, Boolean.TRUE.toString());
+        }
+    }
+
+    /**
+     * @return true if filter accepts all items
+     */
+    public boolean isEmpty() {
+        return excludes.isEmpty() && !skipHidden && maxDepth <= 0 && !useIgnoreFiles;
+    }
+
+    /**
+     * @return names of ignore files read in each directory, empty if they are not used
+     */
+    public List<String> getIgnoreFileNames() {
+        return useIgnoreFiles ? List.of(IGNORE_FILE_NAMES) : List.of();
+    }
+
+    /**
+     * Creates scope of root directory, used for checking its children.
+     */
+    public Scope rootScope(Path rootDir) {
+        return new Scope(null, "", 0, loadIgnoreRules(rootDir));
+    }
+
+    @Override
+    public boolean equals(Object rhs) {
+        if (this == rhs) {
+            return true;
+        }
+        if (!(rhs instanceof WalkFilter)) {
+            return false;
+        }
+        var right = (WalkFilter) rhs;
+        return excludes.equals(right.excludes) && skipHidden == right.skipHidden
+                && maxDepth == right.maxDepth && useIgnoreFiles == right.useIgnoreFiles;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(excludes, skipHidden, maxDepth, useIgnoreFiles);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("exclude: %s, skip hidden: %s, max depth: %d, ignore files: %s",
+                excludes, skipHidden, maxDepth, useIgnoreFiles);
+    }
+
+    private IgnoreRules loadIgnoreRules(Path dir) {
+        return useIgnoreFiles ? IgnoreRules.load(dir, IGNORE_FILE_NAMES) : IgnoreRules.empty();
+    }
+
+    /**
+     * Rules in effect for children of a single directory. Scope is immutable,
+     * it can be used from many threads.
+     */
+    public final class Scope {
+        private final Scope parent;
+        // path relative to root dir, with "/" at end (empty for root)
+        private final String relativePath;
+        private final int depth;
+        private final IgnoreRules ignoreRules;
+
+        private Scope(Scope parent, String relativePath, int depth, IgnoreRules ignoreRules) {
+            this.parent = parent;
+            this.relativePath = relativePath;
+            this.depth = depth;
+            this.ignoreRules = ignoreRules;
+        }
+
+        /**
+         * @return true if children of directory are to be visited
+         */
+        public boolean isListed() {
+            return maxDepth <= 0 || depth < maxDepth;
+        }
+
+        /**
+         * Checks if child of directory is to be visited.
+         */
+        public boolean accepts(String name, boolean isDirectory) {
+            if (skipHidden && name.startsWith(".")) {
+                return false;
+            }
+            if (useIgnoreFiles && isDirectory && name.equals(GIT_DIR_NAME)) {
+                return false;
+            }
+
+            var childPath = relativePath + name;
+            if (Boolean.TRUE.equals(excludeRules.match(childPath, name, isDirectory))) {
+                return false;
+            }
+
+            // patterns of deeper ignore files take precedence
+            for (Scope scope = this; scope != null; scope = scope.parent) {
+                var excluded = scope.ignoreRules.match(childPath.substring(scope.relativePath.length()), name, isDirectory);
+                if (excluded != null) {
+                    return !excluded;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Creates scope of accepted child directory, reads its ignore files.
+         */
+        public Scope enter(Path dir, String name) {
+            return new Scope(this, relativePath + name + "/", depth + 1, loadIgnoreRules(dir));
+        }
+    }
+}
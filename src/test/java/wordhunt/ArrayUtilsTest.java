@@ -72,4 +72,18 @@ class ArrayUtilsTest {
         Integer [] actual = ArrayUtils.merge(null, null);
         assertArrayEquals(expected, actual);
     }    
+
+    @Test
+    void intersectSortedWithCommonValues() {
+        long[] arr1 = new long[] {1, 3, 5, 9, 12};
+        long[] arr2 = new long[] {3, 4, 5, 12, 20};
+        long[] expected = new long[] {3, 5, 12};
+        assertArrayEquals(expected, ArrayUtils.intersectSorted(arr1, arr2));
+    }
+
+    @Test
+    void intersectSortedWithEmpty() {
+        long[] arr1 = new long[] {1, 3, 5};
+        assertArrayEquals(new long[0], ArrayUtils.intersectSorted(arr1, new long[0]));
+    }
 }
@@ -0,0 +1,113 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryIndexWalkerTest {
+
+    private static final String ROOT_DIR = "/tmp/wordhunt-root";
+
+    @Test
+    void shouldReadBackWrittenEntries() throws IOException {
+        byte[] data = writeIndex(
+                new FoundDocument(ROOT_DIR + "/docs/Readme.txt", false, MimeConst.PLAIN_TEXT, "UTF-8"),
+                new FoundDocument(ROOT_DIR + "/docs/image.png", false, "", ""),
+                new FoundDocument(ROOT_DIR + "/docs/notes.txt", false, MimeConst.PLAIN_TEXT, "UTF-8")
+        );
+
+        try (var walker = new BinaryIndexWalker(new ByteArrayInputStream(data))) {
+            String[] meta = walker.nextMeta();
+            assertArrayEquals(new String[]{IndexConst.META_SOURCE_PATH, ROOT_DIR}, meta);
+
+            assertEntry(walker.next(), "docs/Readme.txt", MimeConst.PLAIN_TEXT, "UTF-8");
+            assertEntry(walker.next(), "docs/image.png", "", "");
+            assertEntry(walker.next(), "docs/notes.txt", MimeConst.PLAIN_TEXT, "UTF-8");
+            assertNull(walker.next());
+        }
+    }
+
+    @Test
+    void shouldReturnNullMetaWhenEntryFollows() throws IOException {
+        byte[] data = writeIndexWithoutMeta(
+                new FoundDocument(ROOT_DIR + "/a.txt", false, MimeConst.PLAIN_TEXT, "US-ASCII")
+        );
+
+        try (var walker = new BinaryIndexWalker(new ByteArrayInputStream(data))) {
+            assertNull(walker.nextMeta());
+            assertEntry(walker.next(), "a.txt", MimeConst.PLAIN_TEXT, "US-ASCII");
+            assertNull(walker.next());
+        }
+    }
+
+    @Test
+    void shouldRebuildPathsFromDirectoryTable() throws IOException {
+        var root = Files.createTempDirectory("wordhunt");
+        var subDir = Files.createDirectories(root.resolve("books/java"));
+        var file = Files.createFile(subDir.resolve("streams.txt"));
+
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, root.toString())) {
+            writer.writeEntry(new FoundDocument(file.toString(), false, MimeConst.PLAIN_TEXT, "UTF-8"));
+            writer.writeEntry(new FoundDocument(subDir.toString(), true, "", ""));
+            writer.writeEntry(new FoundDocument(subDir.getParent().toString(), true, "", ""));
+            writer.writeEntry(new FoundDocument(root.toString(), true, "", ""));
+        }
+
+        try (var walker = new BinaryIndexWalker(new ByteArrayInputStream(output.toByteArray()))) {
+            assertEquals("books/java/streams.txt", walker.next().getFilePath());
+            assertEquals("books/java/", walker.next().getFilePath());
+            assertEquals("books/", walker.next().getFilePath());
+            var rootEntry = walker.next();
+            assertEquals("", rootEntry.getFilePath());
+            assertTrue(rootEntry.isDirectory());
+            assertNull(walker.next());
+        }
+    }
+
+    @Test
+    void shouldDetectBinaryIndex() throws IOException {
+        InputStream binary = new BufferedInputStream(new ByteArrayInputStream(writeIndexWithoutMeta()));
+        InputStream text = new BufferedInputStream(new ByteArrayInputStream("; source-path=/tmp\n".getBytes()));
+
+        assertTrue(BinaryIndexWalker.isBinaryIndex(binary));
+        assertFalse(BinaryIndexWalker.isBinaryIndex(text));
+        assertEquals(IndexConst.BINARY_MAGIC.charAt(0), binary.read());
+    }
+
+    private static byte[] writeIndex(FoundDocument... entries) {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, ROOT_DIR)) {
+            writer.writeMeta(IndexConst.META_SOURCE_PATH, ROOT_DIR);
+            for (FoundDocument entry : entries) {
+                writer.writeEntry(entry);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] writeIndexWithoutMeta(FoundDocument... entries) {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, ROOT_DIR)) {
+            for (FoundDocument entry : entries) {
+                writer.writeEntry(entry);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static void assertEntry(FoundDocument entry, String path, String mimeType, String charsetName) {
+        assertNotNull(entry);
+        assertEquals(path, entry.getFilePath());
+        assertFalse(entry.isDirectory());
+        assertEquals(mimeType, entry.getMimeType());
+        assertEquals(charsetName, entry.getCharsetName());
+    }
+}
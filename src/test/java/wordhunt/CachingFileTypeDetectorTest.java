@@ -0,0 +1,78 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingFileTypeDetectorTest {
+
+    private static final FileType TEXT_UTF8 = new FileType(MimeConst.PLAIN_TEXT, "UTF-8");
+
+    @Test
+    void shouldNotCacheFileWhichCouldNotBeRead(@TempDir Path dir) {
+        var next = new QueuedDetector(null, TEXT_UTF8);
+        var uut = new CachingFileTypeDetector(next, dir.resolve("types.cache"), new FileTypeCache(16, 1));
+        var info = new DocumentInfo(true, false, true, 10, 20, "(ino=1)");
+
+        assertNull(uut.detectFileType("/tmp/a.txt", info));
+        assertEquals(TEXT_UTF8, uut.detectFileType("/tmp/a.txt", info));
+        assertEquals(TEXT_UTF8, uut.detectFileType("/tmp/a.txt", info));
+        assertEquals(2, next.calls);
+    }
+
+    @Test
+    void shouldCacheFileOfUnknownType(@TempDir Path dir) {
+        var next = new QueuedDetector(FileType.UNKNOWN_FILE_TYPE);
+        var uut = new CachingFileTypeDetector(next, dir.resolve("types.cache"), new FileTypeCache(16, 1));
+        var info = new DocumentInfo(true, false, true, 10, 20, "(ino=1)");
+
+        assertNull(uut.detectFileType("/tmp/a.bin", info));
+        assertEquals(FileType.UNKNOWN_FILE_TYPE, uut.detectFileType("/tmp/a.bin", info));
+        assertEquals(1, next.calls);
+    }
+
+    @Test
+    void shouldKeepEntriesSavedByOtherDetector(@TempDir Path dir) {
+        var cachePath = dir.resolve("types.cache");
+        var first = new CachingFileTypeDetector(new QueuedDetector(TEXT_UTF8), cachePath, new FileTypeCache(16, 1));
+        var second = new CachingFileTypeDetector(new QueuedDetector(FileType.UNKNOWN_FILE_TYPE), cachePath,
+                new FileTypeCache(16, 1));
+        first.detectFileType("/tmp/a.txt", new DocumentInfo(true, false, true, 10, 20, "(ino=1)"));
+        second.detectFileType("/tmp/b.bin", new DocumentInfo(true, false, true, 30, 40, "(ino=2)"));
+
+        first.close();
+        second.close();
+
+        var restored = new CachingFileTypeDetector(new QueuedDetector(), cachePath, new FileTypeCache(16, 1));
+        assertEquals(TEXT_UTF8, restored.detectFileType("/tmp/a.txt", new DocumentInfo(true, false, true, 10, 20, "(ino=1)")));
+        assertEquals(FileType.UNKNOWN_FILE_TYPE,
+                restored.detectFileType("/tmp/b.bin", new DocumentInfo(true, false, true, 30, 40, "(ino=2)")));
+    }
+
+    /**
+     * Returns given cacheable results one by one.
+     */
+    private static class QueuedDetector implements FileTypeDetector {
+        private final List<FileType> results;
+        private int calls;
+
+        QueuedDetector(FileType... results) {
+            this.results = Arrays.asList(results);
+        }
+
+        @Override
+        public FileType detectFileType(String absolutePath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileType detectCacheableFileType(String absolutePath, DocumentInfo info) {
+            return results.get(calls++);
+        }
+    }
+}
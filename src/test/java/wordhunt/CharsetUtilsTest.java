@@ -2,6 +2,12 @@ package wordhunt;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class CharsetUtilsTest {
@@ -38,4 +44,42 @@ class CharsetUtilsTest {
         byte[] input = new byte[] {65, 49, 50, -123, -123, -123, 104};
         assertFalse(isValidUtf8(input));
     }
-}
\ No newline at end of file
+
+    @Test
+    void isValidUtf8SameAsDecoder() {
+        var random = new Random(42);
+        var text = "zażółć gęślą jaźń \u20AC \uD83D\uDE00 \uFFFF".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 20000; i++) {
+            byte[] input;
+            if (i % 2 == 0) {
+                // mostly valid text with random cut and mutation
+                input = Arrays.copyOf(text, random.nextInt(text.length + 1));
+                if (input.length > 0 && random.nextBoolean()) {
+                    input[random.nextInt(input.length)] = (byte) random.nextInt(256);
+                }
+            } else {
+                input = new byte[random.nextInt(8)];
+                random.nextBytes(input);
+            }
+            assertEquals(decodes(input), isValidUtf8(input), Arrays.toString(input));
+        }
+    }
+
+    @Test
+    void isValidUtf8RejectsOverlongAndSurrogates() {
+        assertFalse(isValidUtf8(new byte[] {(byte) 0xC0, (byte) 0xAF}));
+        assertFalse(isValidUtf8(new byte[] {(byte) 0xE0, (byte) 0x80, (byte) 0xAF}));
+        assertFalse(isValidUtf8(new byte[] {(byte) 0xED, (byte) 0xA0, (byte) 0x80}));
+        assertFalse(isValidUtf8(new byte[] {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}));
+        assertTrue(isValidUtf8(new byte[] {(byte) 0xF4, (byte) 0x8F, (byte) 0xBF, (byte) 0xBF}));
+    }
+
+    private static boolean decodes(byte[] input) {
+        try {
+            StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(input));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+}
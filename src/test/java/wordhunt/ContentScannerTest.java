@@ -0,0 +1,107 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentScannerTest {
+
+    private static final String ALPHABET = "abcABC_'1 -.\néŁ";
+
+    @Test
+    void shouldFindWordsLikeTokenizer() {
+        assertTrue(hasAllWords("Stream API", "stream", "api"));
+        assertTrue(hasAllWords("class FileContentMatcher {", "content"));
+        assertTrue(hasAllWords("index_file_path", "file"));
+        assertTrue(hasAllWords("don't panic", "don't"));
+        assertTrue(hasAllWords("zażółć gęślą jaźń", "za", "g", "ja"));
+        assertFalse(hasAllWords("streams", "stream"));
+        assertFalse(hasAllWords("upstream", "stream"));
+        assertFalse(hasAllWords("Stream API", "stream", "missing"));
+        assertFalse(hasAllWords("", "stream"));
+    }
+
+    @Test
+    void shouldMatchTokenizerOnRandomText() {
+        var random = new Random(1234);
+        for (int round = 0; round < 2000; round++) {
+            var text = randomText(random, 1 + random.nextInt(40));
+            var words = randomWords(random, text);
+            var caseSensitive = random.nextBoolean();
+            var caseWordSplit = random.nextBoolean();
+
+            var prepared = MatcherUtils.prepareWordsFromTerms(words, caseSensitive);
+            var expected = MatcherUtils.extractWords(text, caseSensitive, caseWordSplit).containsAll(List.of(prepared));
+            var scanner = ContentScanner.compile(prepared, caseSensitive, caseWordSplit);
+            var actual = scan(scanner, text.getBytes(StandardCharsets.UTF_8), 1 + random.nextInt(8));
+
+            assertEquals(expected, actual, () -> String.format("text: [%s], words: %s, case sensitive: %b, case split: %b",
+                    text, String.join(",", prepared), caseSensitive, caseWordSplit));
+        }
+    }
+
+    @Test
+    void shouldFindWordsAcrossBufferBoundaries() {
+        var text = new StringBuilder();
+        while (text.length() < 200_000) {
+            text.append("lorem ipsum dolor ");
+        }
+        text.append("needleInHaystack");
+
+        assertTrue(hasAllWords(text.toString(), "lorem", "haystack", "needleinhaystack"));
+        assertFalse(hasAllWords(text.toString(), "lorem", "sit"));
+    }
+
+    private static boolean hasAllWords(String text, String... words) {
+        var scanner = ContentScanner.compile(MatcherUtils.prepareWordsFromTerms(words, false), false, true);
+        var content = text.getBytes(StandardCharsets.UTF_8);
+        var result = scan(scanner, content, content.length + 1);
+        assertEquals(result, scan(scanner, content, 7));
+        return result;
+    }
+
+    /**
+     * Passes content to scan in chunks of given size, read from the middle of larger buffers.
+     */
+    private static boolean scan(ContentScanner scanner, byte[] content, int chunkSize) {
+        var scan = scanner.newScan();
+        for (int offset = 0; offset < content.length; offset += chunkSize) {
+            var length = Math.min(chunkSize, content.length - offset);
+            var buffer = ByteBuffer.allocate(length + 2);
+            buffer.put((byte) 'x').put(content, offset, length).put((byte) 'x');
+            buffer.position(1).limit(1 + length);
+            if (scan.scan(buffer)) {
+                return true;
+            }
+        }
+        return scan.finish();
+    }
+
+    private static String randomText(Random random, int length) {
+        var result = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            result.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return fragments of text, so some of them are found
+     */
+    private static String[] randomWords(Random random, String text) {
+        var result = new ArrayList<String>();
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            int start = random.nextInt(text.length());
+            int end = start + 1 + random.nextInt(Math.min(6, text.length() - start));
+            result.add(text.substring(start, end));
+        }
+        return result.toArray(new String[0]);
+    }
+}
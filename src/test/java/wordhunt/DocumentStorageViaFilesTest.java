@@ -0,0 +1,80 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentStorageViaFilesTest {
+
+    @Test
+    void shouldPassWholeContentOfReadAndMappedFiles() throws IOException {
+        var content = new byte[200_000];
+        new Random(1).nextBytes(content);
+        var path = Files.createTempFile("wordhunt", ".txt");
+        Files.write(path, content);
+
+        // read into buffers
+        assertArrayEquals(content, readContent(new DocumentStorageViaFiles(), path.toString()));
+        // mapped in a single region and in many regions
+        assertArrayEquals(content, readContent(new DocumentStorageViaFiles(1, Long.MAX_VALUE), path.toString()));
+        assertArrayEquals(content, readContent(new DocumentStorageViaFiles(1, 4096), path.toString()));
+    }
+
+    @Test
+    void shouldStopWhenHandlerIsDone() throws IOException {
+        var path = Files.createTempFile("wordhunt", ".txt");
+        Files.write(path, new byte[100_000]);
+        var storage = new DocumentStorageViaFiles(1, 4096);
+
+        var chunks = new int[1];
+        storage.readDocumentContent(path.toString(), chunk -> ++chunks[0] == 3);
+
+        assertEquals(3, chunks[0]);
+    }
+
+    @Test
+    void shouldReportDocumentTruncatedWhileMapped() throws IOException {
+        var path = Files.createTempFile("wordhunt", ".txt");
+        Files.write(path, new byte[100_000]);
+        var storage = new DocumentStorageViaFiles(1, Long.MAX_VALUE);
+
+        var completed = storage.readDocumentContent(path.toString(), chunk -> {
+            try (var file = new RandomAccessFile(path.toFile(), "rw")) {
+                file.setLength(0);
+            } catch (IOException e) {
+                fail(e);
+            }
+            long sum = 0;
+            for (int i = chunk.position(); i < chunk.limit(); i++) {
+                sum += chunk.get(i);
+            }
+            return sum != 0;
+        });
+
+        assertFalse(completed);
+        assertTrue(storage.readDocumentContent(path.toString(), chunk -> false));
+    }
+
+    @Test
+    void shouldReportMissingDocument() {
+        var storage = new DocumentStorageViaFiles();
+        assertThrows(DocumentAccessException.class, () -> storage.readDocumentContent("/nonexistent/wordhunt.txt", chunk -> false));
+    }
+
+    private static byte[] readContent(DocumentStorage storage, String absolutePath) {
+        var output = new ByteArrayOutputStream();
+        storage.readDocumentContent(absolutePath, chunk -> {
+            var bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            output.write(bytes, 0, bytes.length);
+            return false;
+        });
+        return output.toByteArray();
+    }
+}
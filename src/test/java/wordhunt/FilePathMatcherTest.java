@@ -0,0 +1,79 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilePathMatcherTest {
+
+    private static final String ROOT_DIR = "/tmp/wordhunt-path-matcher";
+
+    @Test
+    void shouldIgnoreEmptyWords() {
+        var terms = SearchTerms.builder().terms(Map.of(
+                SearchConst.CFG_SEARCH_TERMS_PATH, new String[]{"docs"},
+                SearchConst.CFG_SEARCH_TERMS_FILE, new String[0])).build();
+        var matcher = new FilePathMatcher(newConfig(false), null);
+        var context = prepare(matcher, terms);
+
+        assertTrue(matcher.isMatching(new FoundDocument("docs/notes.txt", false, "", ""), context, null));
+        assertFalse(matcher.isMatching(new FoundDocument("src/notes.txt", false, "", ""), context, null));
+    }
+
+    @Test
+    void shouldPassStatusToNextMatcherWhenThereAreNoWords() {
+        var terms = SearchTerms.builder().terms(Map.of(
+                SearchConst.CFG_SEARCH_TERMS_FILE, new String[0])).build();
+        var matcher = new FilePathMatcher(newConfig(false), new FilePathMatcher(newConfig(false), null) {
+            @Override
+            public Boolean isMatching(FoundDocument entry, SearchContext context, Boolean acceptedStatus) {
+                assertNull(acceptedStatus);
+                return Boolean.TRUE;
+            }
+        });
+        var context = prepare(matcher, terms);
+
+        assertTrue(matcher.isMatching(new FoundDocument("docs/notes.txt", false, "", ""), context, null));
+    }
+
+    @Test
+    void shouldDetectDirectoryFromEntry() {
+        var terms = SearchTerms.builder().terms(Map.of(
+                SearchConst.CFG_SEARCH_TERMS_FILE, new String[]{"notes"})).build();
+        var matcher = new FilePathMatcher(newConfig(false), null);
+        var context = prepare(matcher, terms);
+
+        // paths do not exist, directory flag is taken from entry
+        assertFalse(matcher.isMatching(new FoundDocument("docs/notes", true, "", ""), context, null));
+        assertTrue(matcher.isMatching(new FoundDocument("docs/notes", false, "", ""), context, null));
+        assertFalse(matcher.isMatching(ROOT_DIR + "/docs/notes", true, context, null));
+        assertTrue(matcher.isMatching(ROOT_DIR + "/docs/notes", false, context, null));
+    }
+
+    @Test
+    void shouldAcceptDirectoryWhenEnabled() {
+        var terms = SearchTerms.builder().terms(Map.of(
+                SearchConst.CFG_SEARCH_TERMS_FILE, new String[]{"notes"})).build();
+        var matcher = new FilePathMatcher(newConfig(true), null);
+        var context = prepare(matcher, terms);
+
+        assertTrue(matcher.isMatching(new FoundDocument("docs/notes", true, "", ""), context, null));
+        assertTrue(matcher.isMatching(ROOT_DIR + "/docs/notes", true, context, null));
+    }
+
+    private static SearchConfig newConfig(boolean includeDirs) {
+        var config = new SearchConfig();
+        config.setValue(SearchConst.CFG_SEARCH_ROOT_DIR, ROOT_DIR);
+        config.setValue(SearchConst.CFG_INDEX_FILE_PATH, ROOT_DIR + "/" + SearchConst.DEF_INDEX_FILE_NAME);
+        config.setValue(SearchConst.CFG_SEARCH_INCLUDE_DIRS, includeDirs);
+        return config;
+    }
+
+    private static SearchContext prepare(SearchMatcher matcher, SearchTerms terms) {
+        var context = new SearchContext();
+        matcher.prepare(terms, context);
+        return context;
+    }
+}
@@ -0,0 +1,110 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTypeCacheTest {
+
+    private static final FileType TEXT_UTF8 = new FileType(MimeConst.PLAIN_TEXT, "UTF-8");
+
+    @Test
+    void shouldReturnTypeOfUnchangedFile() {
+        var cache = new FileTypeCache(16, 1);
+        var key = FileTypeCache.buildKey("(dev=801,ino=1234)", "/tmp/a.txt");
+        cache.put(key, 100, 5000, TEXT_UTF8);
+
+        assertEquals(TEXT_UTF8, cache.get(key, 100, 5000));
+    }
+
+    @Test
+    void shouldMissChangedFile() {
+        var cache = new FileTypeCache(16, 1);
+        var key = FileTypeCache.buildKey("(dev=801,ino=1234)", "/tmp/a.txt");
+        cache.put(key, 100, 5000, TEXT_UTF8);
+
+        assertNull(cache.get(key, 101, 5000));
+        assertNull(cache.get(key, 100, 5001));
+        assertNull(cache.get(key + 1, 100, 5000));
+    }
+
+    @Test
+    void shouldUsePathWhenFileKeyIsMissing() {
+        assertEquals(FileTypeCache.buildKey(null, "/tmp/a.txt"), FileTypeCache.buildKey("/tmp/a.txt", "/tmp/b.txt"));
+        assertNotEquals(FileTypeCache.buildKey(null, "/tmp/a.txt"), FileTypeCache.buildKey(null, "/tmp/b.txt"));
+    }
+
+    @Test
+    void shouldNotGrowAboveCapacity() {
+        var cache = new FileTypeCache(16, 1);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(FileTypeCache.buildKey(null, "/tmp/" + i), i, i, TEXT_UTF8);
+        }
+
+        assertTrue(cache.size() <= 16);
+        assertEquals(TEXT_UTF8, cache.get(FileTypeCache.buildKey(null, "/tmp/999"), 999, 999));
+    }
+
+    @Test
+    void shouldRestoreWrittenEntries() throws IOException {
+        var cache = new FileTypeCache(64, 1);
+        var textKey = FileTypeCache.buildKey(null, "/tmp/a.txt");
+        var binaryKey = FileTypeCache.buildKey(null, "/tmp/a.bin");
+        cache.put(textKey, 10, 20, TEXT_UTF8);
+        cache.put(binaryKey, 30, -1, FileType.UNKNOWN_FILE_TYPE);
+        var out = new ByteArrayOutputStream();
+        cache.write(out);
+        assertFalse(cache.isModified());
+
+        var restored = new FileTypeCache(64, 1);
+        restored.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, restored.size());
+        assertEquals(TEXT_UTF8, restored.get(textKey, 10, 20));
+        assertEquals(FileType.UNKNOWN_FILE_TYPE, restored.get(binaryKey, 30, -1));
+        assertFalse(restored.isModified());
+    }
+
+    @Test
+    void shouldIgnoreEntriesOfOtherDetectionVersion() throws IOException {
+        var cache = new FileTypeCache(64, 1);
+        var key = FileTypeCache.buildKey(null, "/tmp/a.txt");
+        cache.put(key, 10, 20, TEXT_UTF8);
+        var out = new ByteArrayOutputStream();
+        cache.write(out);
+
+        var restored = new FileTypeCache(64, 2);
+        restored.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertNull(restored.get(key, 10, 20));
+    }
+
+    @Test
+    void shouldMergeSavedEntriesIntoFreeSlots() throws IOException {
+        var saved = new FileTypeCache(64, 1);
+        var savedKey = FileTypeCache.buildKey(null, "/tmp/a.txt");
+        var sharedKey = FileTypeCache.buildKey(null, "/tmp/b.txt");
+        saved.put(savedKey, 10, 20, TEXT_UTF8);
+        saved.put(sharedKey, 30, 40, TEXT_UTF8);
+        var out = new ByteArrayOutputStream();
+        saved.write(out);
+
+        var cache = new FileTypeCache(64, 1);
+        cache.put(sharedKey, 31, 41, FileType.UNKNOWN_FILE_TYPE);
+        cache.merge(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(TEXT_UTF8, cache.get(savedKey, 10, 20));
+        assertEquals(FileType.UNKNOWN_FILE_TYPE, cache.get(sharedKey, 31, 41));
+        assertTrue(cache.isModified());
+    }
+
+    @Test
+    void shouldRejectForeignData() {
+        var cache = new FileTypeCache(64, 1);
+        assertThrows(IOException.class, () -> cache.read(new ByteArrayInputStream("WHIX1234".getBytes())));
+    }
+}
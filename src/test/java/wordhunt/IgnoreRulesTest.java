@@ -0,0 +1,56 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IgnoreRulesTest {
+
+    @Test
+    void shouldMatchNameOnAnyLevel() {
+        var rules = IgnoreRules.parse(List.of("*.log", "target"));
+
+        assertEquals(Boolean.TRUE, rules.match("a/b/error.log", "error.log", false));
+        assertEquals(Boolean.TRUE, rules.match("module/target", "target", true));
+        assertNull(rules.match("a/b/error.txt", "error.txt", false));
+    }
+
+    @Test
+    void shouldMatchAnchoredPatternWithRelativePath() {
+        var rules = IgnoreRules.parse(List.of("/build", "docs/*.html", "**/generated/**"));
+
+        assertEquals(Boolean.TRUE, rules.match("build", "build", true));
+        assertNull(rules.match("module/build", "build", true));
+        assertEquals(Boolean.TRUE, rules.match("docs/index.html", "index.html", false));
+        assertNull(rules.match("docs/api/index.html", "index.html", false));
+        assertEquals(Boolean.TRUE, rules.match("a/generated/b/c.java", "c.java", false));
+    }
+
+    @Test
+    void shouldMatchDirectoriesOnlyForTrailingSlash() {
+        var rules = IgnoreRules.parse(List.of("out/"));
+
+        assertEquals(Boolean.TRUE, rules.match("out", "out", true));
+        assertNull(rules.match("out", "out", false));
+    }
+
+    @Test
+    void shouldUseLastMatchingPattern() {
+        var rules = IgnoreRules.parse(List.of("# comment", "", "*.txt", "!keep.txt"));
+
+        assertEquals(Boolean.TRUE, rules.match("drop.txt", "drop.txt", false));
+        assertEquals(Boolean.FALSE, rules.match("keep.txt", "keep.txt", false));
+    }
+
+    @Test
+    void shouldTranslateGlobs() {
+        var rules = IgnoreRules.parse(List.of("file?.[ch]", "a+b(1).txt"));
+
+        assertEquals(Boolean.TRUE, rules.match("file1.c", "file1.c", false));
+        assertNull(rules.match("file12.c", "file12.c", false));
+        assertNull(rules.match("file1.o", "file1.o", false));
+        assertEquals(Boolean.TRUE, rules.match("a+b(1).txt", "a+b(1).txt", false));
+    }
+}
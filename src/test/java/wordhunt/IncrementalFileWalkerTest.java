@@ -0,0 +1,222 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalFileWalkerTest {
+
+    @Test
+    void shouldListOnlyChangedDirectories() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        Files.createDirectories(root.resolve("docs"));
+        Files.createDirectories(root.resolve("src"));
+        Files.createFile(root.resolve("docs/a.txt"));
+        Files.createFile(root.resolve("src/b.txt"));
+        var snapshot = loadSnapshot(root, true);
+
+        // changes made after index was written, only "src" is reported as changed
+        Files.write(root.resolve("docs/a.txt"), "unreported".getBytes());
+        Files.createFile(root.resolve("src/new.txt"));
+
+        var visited = walk(root, snapshot, Set.of("src/"));
+
+        assertTrue(visited.containsKey(root.resolve("src/new.txt").toString()));
+        // unchanged items are reused from index, changed directory gets a new entry
+        assertEquals(Boolean.TRUE, visited.get(root.resolve("docs/a.txt").toString()));
+        assertEquals(Boolean.TRUE, visited.get(root.resolve("docs").toString()));
+        assertEquals(Boolean.FALSE, visited.get(root.resolve("src").toString()));
+    }
+
+    @Test
+    void shouldCheckStampsWhenChangesAreUnknown() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        Files.createDirectories(root.resolve("docs"));
+        Files.createFile(root.resolve("docs/a.txt"));
+        var snapshot = loadSnapshot(root, false);
+
+        var visited = walk(root, snapshot, null);
+
+        // stamps in snapshot are not real, so everything is checked again
+        assertEquals(Boolean.FALSE, visited.get(root.resolve("docs/a.txt").toString()));
+        assertEquals(Boolean.FALSE, visited.get(root.resolve("docs").toString()));
+    }
+
+    @Test
+    void shouldCheckStampsOfAllChildrenOfUnchangedDirectory() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        Files.write(root.resolve("a.bin"), new byte[]{1, 2});
+        Files.write(root.resolve("b.bin"), new byte[]{3, 4});
+        var rootDir = root.toString();
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, rootDir)) {
+            writer.writeEntry(fileEntry(root.resolve("a.bin")));
+            writer.writeEntry(fileEntry(root.resolve("b.bin")));
+            writer.writeEntry(dirEntry(root, true));
+        }
+        var snapshot = IndexSnapshot.load(new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray())));
+
+        // file changed in place, directory keeps its stamp
+        Files.write(root.resolve("a.bin"), new byte[]{1, 2, 3});
+
+        var visited = walk(root, snapshot, null);
+
+        assertEquals(Boolean.TRUE, visited.get(rootDir));
+        assertEquals(Boolean.FALSE, visited.get(root.resolve("a.bin").toString()));
+        assertEquals(Boolean.TRUE, visited.get(root.resolve("b.bin").toString()));
+    }
+
+    @Test
+    void shouldListRecreatedDirectoryOfChangedParent() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        Files.createDirectories(root.resolve("docs"));
+        Files.createDirectories(root.resolve("src"));
+        // old time, so directory created again has other stamp
+        Files.setLastModifiedTime(root.resolve("src"), FileTime.fromMillis(1000));
+        var snapshot = loadSnapshot(root, true);
+
+        // "src" removed and created again with other contents, only root is reported as changed
+        Files.delete(root.resolve("src"));
+        Files.createDirectories(root.resolve("src"));
+        Files.createFile(root.resolve("src/new.txt"));
+
+        var visited = walk(root, snapshot, Set.of(""));
+
+        assertTrue(visited.containsKey(root.resolve("src/new.txt").toString()));
+        assertFalse(visited.containsKey(root.resolve("src/b.txt").toString()));
+        assertEquals(Boolean.FALSE, visited.get(root.resolve("src").toString()));
+    }
+
+    @Test
+    void shouldListSubdirectoriesWhenIgnoreFileIsChanged() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        Files.createDirectories(root.resolve("docs"));
+        Files.write(root.resolve(".gitignore"), "*.log\n".getBytes());
+        Files.createFile(root.resolve("docs/a.txt"));
+        Files.createFile(root.resolve("docs/b.log"));
+        var filter = new WalkFilter(List.of(), false, 0, true);
+        var snapshot = loadFilteredSnapshot(root, filter, true);
+
+        // changed in place, directories keep their stamps
+        Files.write(root.resolve(".gitignore"), "*.tmp\n".getBytes());
+
+        var visited = walk(root, snapshot, filter, FoundDocument.UNKNOWN_STAMP);
+
+        assertTrue(visited.containsKey(root.resolve("docs/b.log").toString()));
+        assertEquals(Boolean.TRUE, visited.get(root.resolve("docs/a.txt").toString()));
+    }
+
+    @Test
+    void shouldCompareIgnoreFileMissingInIndexWithIndexTime() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        Files.createDirectories(root.resolve("docs"));
+        Files.write(root.resolve(".gitignore"), "*.log\n".getBytes());
+        Files.createFile(root.resolve("docs/a.txt"));
+        Files.createFile(root.resolve("docs/b.log"));
+        var filter = new WalkFilter(List.of(), false, 0, true);
+        var snapshot = loadFilteredSnapshot(root, filter, false);
+
+        // changed in place, at given time
+        Files.write(root.resolve(".gitignore"), "*.tmp\n".getBytes());
+        var ignoreFileTime = 1_500_000_000_000L;
+        Files.setLastModifiedTime(root.resolve(".gitignore"), FileTime.fromMillis(ignoreFileTime));
+
+        // ignore file older than index is assumed to be unchanged, directories are reused
+        assertFalse(walk(root, snapshot, filter, ignoreFileTime + 1).containsKey(root.resolve("docs/b.log").toString()));
+        assertTrue(walk(root, snapshot, filter, ignoreFileTime).containsKey(root.resolve("docs/b.log").toString()));
+        assertTrue(walk(root, snapshot, filter, FoundDocument.UNKNOWN_STAMP).containsKey(root.resolve("docs/b.log").toString()));
+    }
+
+    @Test
+    void shouldListAllDirectoriesWhenFilterDiffersFromIndex() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        Files.createDirectories(root.resolve("docs"));
+        Files.write(root.resolve(".gitignore"), "*.log\n".getBytes());
+        Files.createFile(root.resolve("docs/a.txt"));
+        Files.createFile(root.resolve("docs/b.log"));
+        var snapshot = loadFilteredSnapshot(root, new WalkFilter(List.of(), false, 0, true), true);
+
+        var visited = new HashMap<String, Boolean>();
+        var walker = new IncrementalFileWalker(snapshot, new DocumentStorageViaFiles(), WalkFilter.none(), true, null);
+        walker.walk(root.toString(), (absolutePath, isDirectory, info, previous) -> visited.put(absolutePath, previous != null));
+
+        assertTrue(visited.containsKey(root.resolve("docs/b.log").toString()));
+        assertEquals(0, walker.getReusedDirCount());
+    }
+
+    /**
+     * @return visited paths, with flag telling if previous entry was reused
+     */
+    private static Map<String, Boolean> walk(Path root, IndexSnapshot snapshot, Set<String> changedDirs) {
+        var visited = new HashMap<String, Boolean>();
+        var walker = new IncrementalFileWalker(snapshot, new DocumentStorageViaFiles(), WalkFilter.none(), true, changedDirs);
+        walker.walk(root.toString(), (absolutePath, isDirectory, info, previous) -> visited.put(absolutePath, previous != null));
+        return visited;
+    }
+
+    private static Map<String, Boolean> walk(Path root, IndexSnapshot snapshot, WalkFilter filter,
+                                             long indexLastModified) {
+        var visited = new HashMap<String, Boolean>();
+        var walker = new IncrementalFileWalker(snapshot, new DocumentStorageViaFiles(), filter, true, null,
+                IoBudget.unlimited(), indexLastModified);
+        walker.walk(root.toString(), (absolutePath, isDirectory, info, previous) -> visited.put(absolutePath, previous != null));
+        return visited;
+    }
+
+    /**
+     * Writes index of "docs/a.txt" with real stamps and walk rules of filter.
+     *
+     * @param withIgnoreFile if true, index contains entry of root ignore file
+     */
+    private static IndexSnapshot loadFilteredSnapshot(Path root, WalkFilter filter, boolean withIgnoreFile)
+            throws IOException {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, root.toString())) {
+            filter.writeMeta(writer);
+            if (withIgnoreFile) {
+                writer.writeEntry(fileEntry(root.resolve(".gitignore")));
+            }
+            writer.writeEntry(fileEntry(root.resolve("docs/a.txt")));
+            writer.writeEntry(dirEntry(root.resolve("docs"), true));
+            writer.writeEntry(dirEntry(root, true));
+        }
+        return IndexSnapshot.load(new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray())));
+    }
+
+    /**
+     * @param realDirStamps if true, entries of directories have their current stamps, otherwise all stamps are not real
+     */
+    private static IndexSnapshot loadSnapshot(Path root, boolean realDirStamps) throws IOException {
+        var rootDir = root.toString();
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, rootDir)) {
+            writer.writeEntry(new FoundDocument(rootDir + "/docs/a.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 0, 1000));
+            writer.writeEntry(dirEntry(root.resolve("docs"), realDirStamps));
+            writer.writeEntry(new FoundDocument(rootDir + "/src/b.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 0, 1000));
+            writer.writeEntry(dirEntry(root.resolve("src"), realDirStamps));
+            writer.writeEntry(dirEntry(root, realDirStamps));
+        }
+        return IndexSnapshot.load(new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray())));
+    }
+
+    private static FoundDocument fileEntry(Path file) throws IOException {
+        return new FoundDocument(file.toString(), false, "", "", Files.size(file), Files.getLastModifiedTime(file).toMillis());
+    }
+
+    private static FoundDocument dirEntry(Path dir, boolean realStamp) throws IOException {
+        var size = realStamp ? Files.size(dir) : 0;
+        var lastModified = realStamp ? Files.getLastModifiedTime(dir).toMillis() : 1000;
+        return new FoundDocument(dir.toString(), true, "", "", size, lastModified);
+    }
+}
@@ -0,0 +1,120 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexCheckpointTest {
+
+    private static final String ROOT_DIR = "/tmp/wordhunt-root";
+    private static final FileType TEXT_UTF8 = new FileType(MimeConst.PLAIN_TEXT, "UTF-8");
+
+    @Test
+    void shouldReadDataUpToCheckpoint() throws IOException {
+        var indexStorage = new IndexStorageViaFiles();
+        var indexPath = Files.createTempDirectory("wordhunt").resolve("index.dat").toString();
+        var tempPath = indexStorage.createTempIndex(indexPath);
+
+        try (var writer = new BinaryIndexEntryWriter(indexStorage.getOutputStreamForIndexFile(tempPath), ROOT_DIR, tempPath)) {
+            writer.writeMeta(IndexConst.META_SOURCE_PATH, ROOT_DIR);
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/a/x.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 10, 1000));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/a", true, "", "", 0, 1000));
+            new IndexCheckpoint(ROOT_DIR, tempPath, writer.checkpoint(), 2, 1).write(indexStorage, indexPath);
+
+            // written after checkpoint, e.g. partially before crash
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/b/y.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 10, 1000));
+            writer.checkpoint();
+        }
+
+        var checkpoint = IndexCheckpoint.read(indexStorage, indexPath);
+        assertNotNull(checkpoint);
+        assertEquals(ROOT_DIR, checkpoint.getSourcePath());
+        assertEquals(tempPath, checkpoint.getOutputPath());
+        assertEquals(2, checkpoint.getEntryCount());
+        assertEquals(1, checkpoint.getDirCount());
+
+        var snapshot = checkpoint.loadSnapshot(indexStorage);
+        assertEquals(2, snapshot.size());
+        assertNotNull(snapshot.get("a/x.txt"));
+        assertNotNull(snapshot.get("a/"));
+        assertNull(snapshot.get("b/y.txt"));
+        assertEquals(ROOT_DIR, snapshot.getSourcePath());
+    }
+
+    @Test
+    void shouldReturnNullWithoutCheckpoint() throws IOException {
+        var indexPath = Files.createTempDirectory("wordhunt").resolve("index.dat").toString();
+
+        assertNull(IndexCheckpoint.read(new IndexStorageViaFiles(), indexPath));
+    }
+
+    @Test
+    void shouldResumeWithoutDetectingCompletedDirectories() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        for (int dir = 0; dir < 5; dir++) {
+            Files.createDirectories(root.resolve("d" + dir));
+            Files.write(root.resolve("d" + dir + "/a.txt"), "a".getBytes());
+            Files.write(root.resolve("d" + dir + "/b.txt"), "b".getBytes());
+        }
+        var indexPath = Files.createTempDirectory("wordhunt").resolve("index.dat").toString();
+
+        // build fails on 8th detection: 2 directories with their files (3 detections each) are complete
+        var detections = new AtomicInteger();
+        var failingIndexer = newIndexer(root, indexPath, path -> {
+            if (detections.incrementAndGet() == 8) {
+                throw new SearchException("Simulated crash", null);
+            }
+            return TEXT_UTF8;
+        });
+        assertThrows(SearchException.class, failingIndexer::rebuildIndex);
+        assertFalse(new IndexStorageViaFiles().indexExists(indexPath));
+        assertNotNull(IndexCheckpoint.read(new IndexStorageViaFiles(), indexPath));
+
+        var resumedDetections = new ArrayList<String>();
+        newIndexer(root, indexPath, path -> {
+            resumedDetections.add(path);
+            return TEXT_UTF8;
+        }).resumeIndex();
+
+        // 3 remaining directories with their files and root directory
+        assertEquals(10, resumedDetections.size());
+        assertNull(IndexCheckpoint.read(new IndexStorageViaFiles(), indexPath));
+        assertEquals(16, readPaths(indexPath).size());
+        try (var files = Files.list(Path.of(indexPath).getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    private static FileIndexer newIndexer(Path root, String indexPath, FileTypeDetector detector) {
+        var config = new SearchConfig();
+        config.setValue(SearchConst.CFG_INDEX_FILE_PATH, indexPath);
+        config.setValue(SearchConst.CFG_THREADS, 1);
+        var indexStorage = new IndexStorageViaFiles();
+        var indexer = new FileIndexer(config, root.toString(), detector,
+                new BasicIndexEntryWriterFactory(config, indexStorage, root.toString()),
+                new MappedIndexWalkerFactory(indexStorage), indexStorage, new DocumentStorageViaFiles(), message -> {
+        });
+        indexer.setCheckpointInterval(0);
+        return indexer;
+    }
+
+    private static List<String> readPaths(String indexPath) {
+        var result = new ArrayList<String>();
+        try (var walker = new MappedIndexWalkerFactory(new IndexStorageViaFiles()).newWalker(indexPath)) {
+            FoundDocument entry;
+            while ((entry = walker.next()) != null) {
+                result.add(entry.getFilePath());
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+        return result;
+    }
+}
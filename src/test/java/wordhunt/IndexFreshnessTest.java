@@ -0,0 +1,74 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexFreshnessTest {
+
+    private final DocumentStorage storage = new DocumentStorageViaFiles();
+
+    @Test
+    void shouldStoreSummaryOfRootItems() throws IOException {
+        var root = createTree();
+        var summary = writeSummary(root);
+
+        assertEquals(4, summary.getEntryCount());
+        assertEquals(2, summary.getItems().size());
+        assertTrue(summary.getItem("docs").isDirectory());
+        assertEquals(2, summary.getItem("docs").getEntryCount());
+        assertEquals(Files.getLastModifiedTime(root.resolve("readme.txt")).toMillis(),
+                summary.getItem("readme.txt").getLastModified());
+    }
+
+    @Test
+    void shouldSelectStrategyByChangedItems() throws IOException {
+        var root = createTree();
+        var summary = writeSummary(root);
+        var rootDir = root.toString();
+
+        var fresh = IndexFreshness.check(summary, rootDir, Set.of("docs", "readme.txt"), storage);
+        assertEquals(IndexFreshness.Strategy.INDEX, fresh.getStrategy());
+
+        Files.createFile(root.resolve("new.txt"));
+        var added = IndexFreshness.check(summary, rootDir, Set.of("docs", "readme.txt", "new.txt"), storage);
+        assertEquals(IndexFreshness.Strategy.REFRESH, added.getStrategy());
+        assertEquals(List.of("new.txt"), added.getChangedItems());
+        assertEquals(1, added.getExpectedCost());
+
+        Files.setLastModifiedTime(root.resolve("docs"), FileTime.fromMillis(5000));
+        var modified = IndexFreshness.check(summary, rootDir, Set.of("docs", "new.txt"), storage);
+        assertEquals(IndexFreshness.Strategy.ONFLY, modified.getStrategy());
+        assertEquals(Set.of("docs", "readme.txt", "new.txt"), Set.copyOf(modified.getChangedItems()));
+    }
+
+    private static Path createTree() throws IOException {
+        var root = Files.createTempDirectory("wordhunt");
+        var docs = Files.createDirectories(root.resolve("docs"));
+        Files.createFile(docs.resolve("a.txt"));
+        Files.createFile(root.resolve("readme.txt"));
+        Files.setLastModifiedTime(docs, FileTime.fromMillis(1000));
+        return root;
+    }
+
+    private IndexSummary writeSummary(Path root) {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, root.toString())) {
+            for (Path path : List.of(root.resolve("docs/a.txt"), root.resolve("docs"), root.resolve("readme.txt"), root)) {
+                var info = storage.getDocumentInfo(path.toString());
+                writer.writeEntry(new FoundDocument(path.toString(), info.isDirectory(), "", "",
+                        info.getSize(), info.getLastModified()));
+            }
+        }
+        return MappedIndexSections.load(ByteBuffer.wrap(output.toByteArray())).getSummary();
+    }
+}
@@ -0,0 +1,71 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexManifestTest {
+
+    private static final String ROOT_DIR = "/tmp/wordhunt-root";
+
+    @Test
+    void shouldSplitEntriesIntoSegmentsByDirectory() throws IOException {
+        var indexStorage = new IndexStorageViaFiles();
+        var indexPath = Files.createTempDirectory("wordhunt").resolve("index.dat").toString();
+
+        try (var writer = new SegmentedIndexEntryWriter(indexStorage, indexPath, indexPath, ROOT_DIR, 3)) {
+            writer.writeMeta(IndexConst.META_SOURCE_PATH, ROOT_DIR);
+            for (int dir = 0; dir < 10; dir++) {
+                writer.writeEntry(new FoundDocument(ROOT_DIR + "/dir" + dir + "/a.txt", false, "", ""));
+                writer.writeEntry(new FoundDocument(ROOT_DIR + "/dir" + dir + "/b.txt", false, "", ""));
+            }
+        }
+
+        var manifest = IndexManifest.read(indexStorage, indexPath);
+        assertNotNull(manifest);
+        assertEquals(ROOT_DIR, manifest.getSourcePath());
+        assertEquals(3, manifest.getSegmentPaths().size());
+
+        var allPaths = new HashSet<String>();
+        for (String segmentPath : manifest.getSegmentPaths()) {
+            var segmentDirs = new HashSet<String>();
+            for (String path : readPaths(indexStorage, segmentPath)) {
+                allPaths.add(path);
+                segmentDirs.add(path.substring(0, path.indexOf('/')));
+            }
+            for (String dir : segmentDirs) {
+                assertTrue(readPaths(indexStorage, segmentPath).containsAll(Set.of(dir + "/a.txt", dir + "/b.txt")));
+            }
+        }
+        assertEquals(20, allPaths.size());
+    }
+
+    @Test
+    void shouldNotReadSingleIndexAsManifest() throws IOException {
+        var indexStorage = new IndexStorageViaFiles();
+        var indexPath = Files.createTempDirectory("wordhunt").resolve("index.dat").toString();
+
+        try (var writer = new BinaryIndexEntryWriter(indexStorage.getOutputStreamForIndexFile(indexPath), ROOT_DIR)) {
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/a.txt", false, "", ""));
+        }
+
+        assertNull(IndexManifest.read(indexStorage, indexPath));
+    }
+
+    private static List<String> readPaths(IndexStorage indexStorage, String indexPath) {
+        var result = new ArrayList<String>();
+        var walker = new MappedIndexWalker(indexStorage.mapIndexFile(indexPath));
+        FoundDocument entry;
+        while ((entry = walker.next()) != null) {
+            result.add(entry.getFilePath());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexSnapshotTest {
+
+    private static final String ROOT_DIR = "/tmp/wordhunt-root";
+
+    @Test
+    void shouldFindOnlyUnchangedEntries() {
+        var snapshot = loadSnapshot();
+
+        assertEquals(ROOT_DIR, snapshot.getSourcePath());
+        assertEquals(2, snapshot.size());
+        assertNotNull(snapshot.findUnchanged("docs/a.txt", new DocumentInfo(true, false, true, 10, 1000)));
+        assertNull(snapshot.findUnchanged("docs/a.txt", new DocumentInfo(true, false, true, 11, 1000)));
+        assertNull(snapshot.findUnchanged("docs/a.txt", new DocumentInfo(true, false, true, 10, 1001)));
+        assertNull(snapshot.findUnchanged("docs/new.txt", new DocumentInfo(true, false, true, 10, 1000)));
+    }
+
+    @Test
+    void shouldRestoreContentWordsOfEntries() {
+        var snapshot = loadSnapshot();
+
+        assertTrue(snapshot.isWithContent());
+        var text = snapshot.findUnchanged("docs/a.txt", new DocumentInfo(true, false, true, 10, 1000));
+        assertEquals(Set.of("BASIC", "SEARCH"), new HashSet<>(snapshot.getContentWords(text)));
+        var binary = snapshot.findUnchanged("docs/b.bin", new DocumentInfo(true, false, true, 20, 2000));
+        assertNull(snapshot.getContentWords(binary));
+    }
+
+    @Test
+    void shouldReturnContentWordsOnlyInIndexOrder() {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, ROOT_DIR)) {
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/a.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 1, 1), Set.of("ONE"));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/b.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 1, 1), Set.of());
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/c.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 1, 1),
+                    Set.of("ONE", "TWO"));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/d.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 1, 1), Set.of("TWO"));
+        }
+        var snapshot = IndexSnapshot.load(new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray())));
+
+        assertEquals(List.of(), snapshot.getContentWords(snapshot.get("b.txt")));
+        assertEquals(Set.of("ONE", "TWO"), new HashSet<>(snapshot.getContentWords(snapshot.get("c.txt"))));
+        assertNull(snapshot.getContentWords(snapshot.get("a.txt")));
+        assertNull(snapshot.getContentWords(snapshot.get("c.txt")));
+        assertEquals(List.of("TWO"), snapshot.getContentWords(snapshot.get("d.txt")));
+    }
+
+    @Test
+    void shouldGroupEntriesByDirectory() {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, ROOT_DIR)) {
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/docs/java/a.txt", false, "", ""));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/docs/b.txt", false, "", ""));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/docs/java", true, "", ""));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/docs", true, "", ""));
+            writer.writeEntry(new FoundDocument(ROOT_DIR, true, "", ""));
+        }
+        var snapshot = IndexSnapshot.load(new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray())));
+
+        assertEquals(List.of("docs/"), paths(snapshot.getChildren("")));
+        assertEquals(List.of("docs/b.txt", "docs/java/"), paths(snapshot.getChildren("docs/")));
+        assertEquals(List.of("docs/java/a.txt"), paths(snapshot.getChildren("docs/java/")));
+        assertTrue(snapshot.getChildren("other/").isEmpty());
+    }
+
+    private static List<String> paths(List<FoundDocument> entries) {
+        return entries.stream().map(FoundDocument::getFilePath).collect(Collectors.toList());
+    }
+
+    private static IndexSnapshot loadSnapshot() {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, ROOT_DIR)) {
+            writer.writeMeta(IndexConst.META_SOURCE_PATH, ROOT_DIR);
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/docs/a.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 10, 1000),
+                    Set.of("BASIC", "SEARCH"));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/docs/b.bin", false, "", "", 20, 2000));
+        }
+
+        return IndexSnapshot.load(new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray())));
+    }
+}
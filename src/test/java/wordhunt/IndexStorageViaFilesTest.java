@@ -0,0 +1,63 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexStorageViaFilesTest {
+
+    @Test
+    void shouldPublishTempIndexInPlaceOfExistingOne() throws IOException {
+        var storage = new IndexStorageViaFiles();
+        var indexPath = Files.createTempDirectory("wordhunt").resolve("index.dat");
+        Files.write(indexPath, new byte[]{1, 2, 3});
+
+        try (var previous = storage.getInputStreamForIndexFile(indexPath.toString())) {
+            var tempPath = storage.createTempIndex(indexPath.toString());
+            assertTrue(Paths.get(tempPath).getFileName().toString().startsWith("index.dat."));
+            Files.write(Paths.get(tempPath), new byte[]{4, 5});
+
+            storage.publishIndex(tempPath, indexPath.toString());
+
+            assertFalse(storage.indexExists(tempPath));
+            assertArrayEquals(new byte[]{4, 5}, Files.readAllBytes(indexPath));
+            // reader of replaced index still sees its data
+            assertArrayEquals(new byte[]{1, 2, 3}, previous.readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldPublishIndexWithPermissionsOfNewFiles(@TempDir Path dir) throws IOException {
+        Assumptions.assumeTrue(Files.getFileAttributeView(dir, PosixFileAttributeView.class) != null);
+        var storage = new IndexStorageViaFiles();
+        var indexPath = dir.resolve("index.dat");
+        // permissions given to new files by umask
+        var plainFile = Files.createFile(dir.resolve("plain.dat"));
+
+        storage.publishIndex(storage.createTempIndex(indexPath.toString()), indexPath.toString());
+
+        assertEquals(Files.getPosixFilePermissions(plainFile), Files.getPosixFilePermissions(indexPath));
+    }
+
+    @Test
+    void shouldKeepPermissionsOfReplacedIndex(@TempDir Path dir) throws IOException {
+        Assumptions.assumeTrue(Files.getFileAttributeView(dir, PosixFileAttributeView.class) != null);
+        var storage = new IndexStorageViaFiles();
+        var indexPath = Files.createFile(dir.resolve("index.dat"));
+        var permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(indexPath, permissions);
+
+        storage.publishIndex(storage.createTempIndex(indexPath.toString()), indexPath.toString());
+
+        assertEquals(permissions, Files.getPosixFilePermissions(indexPath));
+    }
+}
@@ -0,0 +1,105 @@
+package wordhunt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(30)
+class IndexWatcherTest {
+
+    private IndexWatcher watcher;
+
+    @AfterEach
+    void tearDown() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    void shouldReportDirectoryOfCreatedFile(@TempDir Path root) throws Exception {
+        Files.createDirectories(root.resolve("docs"));
+        startWatching(root);
+
+        Files.writeString(root.resolve("docs/a.txt"), "new");
+
+        assertEquals(Set.of("docs/"), watcher.collectChanges());
+    }
+
+    @Test
+    void shouldReportDirectoryOfDeletedFile(@TempDir Path root) throws Exception {
+        Files.createDirectories(root.resolve("docs"));
+        Files.writeString(root.resolve("docs/a.txt"), "old");
+        startWatching(root);
+
+        Files.delete(root.resolve("docs/a.txt"));
+
+        assertEquals(Set.of("docs/"), watcher.collectChanges());
+    }
+
+    @Test
+    void shouldWatchNewSubdirectories(@TempDir Path root) throws Exception {
+        startWatching(root);
+
+        Files.createDirectories(root.resolve("docs/java"));
+        var changedDirs = watcher.collectChanges();
+
+        assertTrue(changedDirs.contains(""));
+        assertEquals(3, watcher.getWatchedDirCount());
+
+        Files.writeString(root.resolve("docs/java/a.txt"), "new");
+
+        assertEquals(Set.of("docs/java/"), watcher.collectChanges());
+    }
+
+    @Test
+    void shouldWatchSubdirectoriesCreatedWhileEventsWereLost(@TempDir Path root) throws Exception {
+        Files.createDirectories(root.resolve("docs"));
+        startWatching(root);
+
+        Files.createDirectories(root.resolve("src/main"));
+        var changedDirs = new HashSet<String>();
+        watcher.handleOverflow(root.toRealPath(), changedDirs);
+
+        assertEquals(Set.of("", "src/", "src/main/"), changedDirs);
+        assertEquals(4, watcher.getWatchedDirCount());
+
+        // event of "src" creation is still queued, its directory is already watched
+        watcher.collectChanges();
+        Files.writeString(root.resolve("src/main/a.txt"), "new");
+
+        assertEquals(Set.of("src/main/"), watcher.collectChanges());
+    }
+
+    @Test
+    void shouldIgnoreIndexFile(@TempDir Path root) throws Exception {
+        Files.createDirectories(root.resolve("docs"));
+        startWatching(root);
+
+        Files.writeString(root.resolve("index.dat"), "index");
+        Files.writeString(root.resolve("docs/a.txt"), "new");
+
+        assertEquals(Set.of("docs/"), watcher.collectChanges());
+    }
+
+    private void startWatching(Path root) throws IOException {
+        var realRoot = root.toRealPath();
+        var config = new SearchConfig();
+        config.setValue(SearchConst.CFG_SEARCH_ROOT_DIR, realRoot.toString());
+        config.setValue(SearchConst.CFG_INDEX_FILE_PATH, realRoot.resolve("index.dat").toString());
+        watcher = new IndexWatcher(config, () -> {
+            throw new UnsupportedOperationException();
+        }, msg -> {
+        });
+        watcher.registerTree();
+    }
+}
@@ -0,0 +1,95 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedDocumentSearcherTest {
+
+    @Test
+    void shouldFindSameDocumentsUsingManyThreads() throws IOException {
+        var root = createTree();
+
+        var expected = search(root, 1, false);
+        assertEquals(100, expected.size());
+
+        assertEquals(expected, search(root, 4, true));
+        var unordered = search(root, 4, false);
+        assertEquals(expected.size(), unordered.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(unordered));
+    }
+
+    @Test
+    void shouldPassMatcherErrorToCaller() throws IOException {
+        var root = createTree();
+        var config = newConfig(root, 4, false);
+        var searcher = newSearcher(config);
+        SearchMatcher failingMatcher = new FilePathMatcher(config, null) {
+            @Override
+            public Boolean isMatching(FoundDocument entry, SearchContext context, Boolean acceptedStatus) {
+                throw new SearchException("Simulated failure", null);
+            }
+        };
+
+        var terms = SearchTerms.builder().terms(Map.of(SearchConst.CFG_SEARCH_TERMS_CONTENT, new String[]{"needle"})).build();
+        assertThrows(SearchException.class, () -> searcher.search(terms, failingMatcher, absolutePath -> {
+        }));
+    }
+
+    private static Path createTree() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        for (int dir = 0; dir < 10; dir++) {
+            Files.createDirectories(root.resolve("d" + dir));
+            for (int file = 0; file < 20; file++) {
+                var content = (file % 2 == 0) ? "hay needle hay" : "hay hay";
+                Files.write(root.resolve("d" + dir + "/f" + file + ".txt"), content.getBytes());
+            }
+        }
+
+        var config = newConfig(root, 1, false);
+        var indexStorage = new IndexStorageViaFiles();
+        new FileIndexer(config, root.toString(), new TextFileTypeDetector(),
+                new BasicIndexEntryWriterFactory(config, indexStorage, root.toString()),
+                new MappedIndexWalkerFactory(indexStorage), indexStorage, new DocumentStorageViaFiles(), message -> {
+        }).buildIndex();
+        return root;
+    }
+
+    private static List<String> search(Path root, int threadCount, boolean ordered) {
+        var config = newConfig(root, threadCount, ordered);
+        var documentStorage = new DocumentStorageViaFiles();
+        var terms = SearchTerms.builder().terms(Map.of(SearchConst.CFG_SEARCH_TERMS_CONTENT, new String[]{"needle"})).build();
+        var matcher = SearchPlanner.plan(config, terms, new TextFileTypeDetector(), documentStorage);
+
+        var result = new ArrayList<String>();
+        newSearcher(config).search(terms, matcher, result::add);
+        return result;
+    }
+
+    private static IndexedDocumentSearcher newSearcher(SearchConfig config) {
+        var indexStorage = new IndexStorageViaFiles();
+        return new IndexedDocumentSearcher(config, new MappedIndexWalkerFactory(indexStorage), indexStorage,
+                new DocumentStorageViaFiles(), message -> {
+        });
+    }
+
+    private static SearchConfig newConfig(Path root, int threadCount, boolean ordered) {
+        var config = new SearchConfig();
+        config.setValue(SearchConst.CFG_SEARCH_ROOT_DIR, root.toString());
+        config.setValue(SearchConst.CFG_INDEX_FILE_PATH, root.resolve(SearchConst.DEF_INDEX_FILE_NAME).toString());
+        config.setValue(SearchConst.CFG_SEARCH_BRIEF, Boolean.TRUE);
+        config.setValue(SearchConst.CFG_SEARCH_THREADS, threadCount);
+        if (ordered) {
+            config.setValue(SearchConst.CFG_SEARCH_ORDERED, Boolean.TRUE);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,88 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IoBudgetTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void shouldAllowShortBurst() {
+        var budget = new IoBudget(0, 1000, false);
+
+        // bucket holds 100 ms of budget
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, budget.reserve(1, 0, SECOND));
+        }
+        assertEquals(MILLIS, budget.reserve(1, 0, SECOND));
+    }
+
+    @Test
+    void shouldPaceToConfiguredRate() {
+        var budget = new IoBudget(1000, 0, false);
+        budget.reserve(0, 100, SECOND);
+
+        // 500 bytes take 500 ms of budget
+        assertEquals(500 * MILLIS, budget.reserve(0, 500, SECOND));
+        assertEquals(1500 * MILLIS, budget.reserve(0, 1000, SECOND));
+        // budget is not used up after waiting
+        assertEquals(0, budget.reserve(0, 100, 3 * SECOND));
+    }
+
+    @Test
+    void shouldWaitForSlowerBucket() {
+        var budget = new IoBudget(1000, 10, false);
+        budget.reserve(1, 100, SECOND);
+
+        assertEquals(100 * MILLIS, budget.reserve(1, 100, SECOND));
+    }
+
+    @Test
+    void shouldNotWaitWithoutLimits() {
+        var budget = IoBudget.unlimited();
+
+        assertFalse(budget.isLimited());
+        assertEquals(0, budget.reserve(1000, 1000000, SECOND));
+    }
+
+    @Test
+    void shouldLowerRateWhenLatencyRises() {
+        var budget = new IoBudget(1000, 0, true);
+        var now = SECOND;
+        for (int i = 0; i < 10; i++) {
+            budget.adapt(MILLIS, now += 10 * MILLIS);
+        }
+        assertEquals(1.0, budget.getRateFactor());
+
+        for (int i = 0; i < 100; i++) {
+            budget.adapt(20 * MILLIS, now += 10 * MILLIS);
+        }
+        assertTrue(budget.getRateFactor() < 0.5);
+
+        // used budget costs more when rate is lowered
+        budget.reserve(0, 100, now);
+        assertTrue(budget.reserve(0, 100, now) > 200 * MILLIS);
+    }
+
+    @Test
+    void shouldRestoreRateWhenLatencyDrops() {
+        var budget = new IoBudget(1000, 0, true);
+        var now = SECOND;
+        budget.adapt(MILLIS, now);
+        for (int i = 0; i < 100; i++) {
+            budget.adapt(20 * MILLIS, now += 10 * MILLIS);
+        }
+        var loweredFactor = budget.getRateFactor();
+
+        for (int i = 0; i < 1000; i++) {
+            budget.adapt(MILLIS, now += 10 * MILLIS);
+        }
+        assertTrue(budget.getRateFactor() > loweredFactor);
+        assertEquals(1.0, budget.getRateFactor());
+    }
+}
@@ -0,0 +1,90 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedIndexWalkerTest {
+
+    private static final String ROOT_DIR = "/tmp/wordhunt-root";
+
+    @Test
+    void shouldReadEntriesFromBuffer() {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, ROOT_DIR)) {
+            writer.writeMeta(IndexConst.META_SOURCE_PATH, ROOT_DIR);
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/src/Main.java", false, MimeConst.PLAIN_TEXT, "UTF-8"));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/zażółć.bin", false, "", ""));
+        }
+
+        var walker = new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray()));
+        assertArrayEquals(new String[]{IndexConst.META_SOURCE_PATH, ROOT_DIR}, walker.nextMeta());
+
+        var first = walker.next();
+        assertEquals("src/Main.java", first.getFilePath());
+        assertEquals(MimeConst.PLAIN_TEXT, first.getMimeType());
+        assertEquals("UTF-8", first.getCharsetName());
+
+        var second = walker.next();
+        assertEquals("zażółć.bin", second.getFilePath());
+        assertEquals("", second.getMimeType());
+
+        assertNull(walker.next());
+    }
+
+    @Test
+    void shouldScanOnlyEntriesFoundInPostings() {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, ROOT_DIR)) {
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/Java/Streams.txt", false, MimeConst.PLAIN_TEXT, "UTF-8"));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/Python/MachineLearning.pdf", false, "", ""));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/Java/MachineLearning.txt", false, MimeConst.PLAIN_TEXT, "UTF-8"));
+        }
+
+        var walker = new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray()));
+        var javaEntries = walker.findEntries(IndexConst.SECTION_PATH_TERMS, "JAVA");
+        var learningEntries = walker.findEntries(IndexConst.SECTION_NAME_TERMS, "LEARNING");
+        assertEquals(2, javaEntries.length);
+        assertEquals(2, learningEntries.length);
+        assertEquals(0, walker.findEntries(IndexConst.SECTION_PATH_TERMS, "RUST").length);
+
+        walker.restrictTo(ArrayUtils.intersectSorted(javaEntries, learningEntries));
+        assertEquals("Java/MachineLearning.txt", walker.next().getFilePath());
+        assertNull(walker.next());
+    }
+
+    @Test
+    void shouldAnswerContentWordsFromIndex() {
+        var output = new ByteArrayOutputStream();
+        try (var writer = new BinaryIndexEntryWriter(output, ROOT_DIR)) {
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/a.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 10, 1000),
+                    Set.of("BASIC", "SEARCH"));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/b.txt", false, MimeConst.PLAIN_TEXT, "UTF-8", 20, 2000),
+                    Set.of("SEARCH", "JAVA"));
+            writer.writeEntry(new FoundDocument(ROOT_DIR + "/c.bin", false, "", "", 30, 3000));
+        }
+
+        var walker = new MappedIndexWalker(ByteBuffer.wrap(output.toByteArray()));
+        assertTrue(walker.hasTermSection(IndexConst.SECTION_CONTENT_TERMS));
+        var contentIndex = new ContentWordIndex(walker);
+
+        var first = walker.next();
+        assertEquals(10, first.getSize());
+        assertEquals(1000, first.getLastModified());
+        assertEquals(Boolean.TRUE, contentIndex.hasAllWords(first, new String[]{"search", "Basic"}));
+        assertEquals(Boolean.FALSE, contentIndex.hasAllWords(first, new String[]{"search", "java"}));
+        assertEquals(Boolean.TRUE, contentIndex.hasAllWords(walker.next(), new String[]{"java"}));
+        assertNull(contentIndex.hasAllWords(walker.next(), new String[]{"java"}));
+    }
+
+    @Test
+    void shouldRejectTextIndex() {
+        var data = ByteBuffer.wrap("; source-path=/tmp\n".getBytes());
+        assertFalse(MappedIndexWalker.isBinaryIndex(data));
+        assertThrows(IndexAccessException.class, () -> new MappedIndexWalker(data));
+    }
+}
@@ -0,0 +1,83 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OnflySearcherTest {
+
+    @Test
+    void shouldFindSameDocumentsUsingManyThreads() throws IOException {
+        var root = createTree();
+
+        var expected = search(root, 1, false);
+        assertEquals(100, expected.size());
+
+        assertEquals(expected, search(root, 4, true));
+        var unordered = search(root, 4, false);
+        assertEquals(expected.size(), unordered.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(unordered));
+    }
+
+    @Test
+    void shouldPassMatcherErrorToCaller() throws IOException {
+        var root = createTree();
+        var config = newConfig(root, 4, false);
+        SearchMatcher failingMatcher = new FilePathMatcher(config, null) {
+            @Override
+            public Boolean isMatching(String absolutePath, boolean isDirectory, SearchContext context, Boolean acceptedStatus) {
+                throw new SearchException("Simulated failure", null);
+            }
+        };
+
+        assertThrows(SearchException.class, () -> new OnflySearcher(config).search(newTerms(), failingMatcher, absolutePath -> {
+        }));
+    }
+
+    private static Path createTree() throws IOException {
+        var root = Files.createTempDirectory("wordhunt").toRealPath();
+        for (int dir = 0; dir < 10; dir++) {
+            Files.createDirectories(root.resolve("d" + dir));
+            for (int file = 0; file < 20; file++) {
+                var content = (file % 2 == 0) ? "hay needle hay" : "hay hay";
+                Files.write(root.resolve("d" + dir + "/f" + file + ".txt"), content.getBytes());
+            }
+        }
+        return root;
+    }
+
+    private static List<String> search(Path root, int threadCount, boolean ordered) {
+        var config = newConfig(root, threadCount, ordered);
+        var documentStorage = new DocumentStorageViaFiles();
+        var terms = newTerms();
+        var matcher = SearchPlanner.plan(config, terms, new TextFileTypeDetector(), documentStorage);
+
+        var result = new ArrayList<String>();
+        new OnflySearcher(config).search(terms, matcher, result::add);
+        return result;
+    }
+
+    private static SearchTerms newTerms() {
+        return SearchTerms.builder().terms(Map.of(SearchConst.CFG_SEARCH_TERMS_CONTENT, new String[]{"needle"})).build();
+    }
+
+    private static SearchConfig newConfig(Path root, int threadCount, boolean ordered) {
+        var config = new SearchConfig();
+        config.setValue(SearchConst.CFG_SEARCH_ROOT_DIR, root.toString());
+        // single walker thread, so walk order is the same in all searches
+        config.setValue(SearchConst.CFG_THREADS, 1);
+        config.setValue(SearchConst.CFG_SEARCH_THREADS, threadCount);
+        if (ordered) {
+            config.setValue(SearchConst.CFG_SEARCH_ORDERED, Boolean.TRUE);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,52 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderedPipelineTest {
+
+    @Test
+    void shouldConsumeResultsInSubmissionOrder() {
+        var result = new ArrayList<Integer>();
+        try (var pipeline = new OrderedPipeline<Integer>("test", 4, 8, result::add)) {
+            for (int i = 0; i < 200; i++) {
+                final int value = i;
+                pipeline.submit(() -> {
+                    // later tasks finish first
+                    Thread.sleep(value % 3);
+                    return value;
+                });
+            }
+            pipeline.finish();
+        }
+
+        List<Integer> expected = IntStream.range(0, 200).boxed().collect(Collectors.toList());
+        assertEquals(expected, result);
+    }
+
+    @Test
+    void shouldRethrowTaskFailure() {
+        var result = new ArrayList<Integer>();
+        try (var pipeline = new OrderedPipeline<Integer>("test", 2, 4, result::add)) {
+            pipeline.submit(() -> 1);
+            pipeline.submit(() -> {
+                throw new SearchException("detection failed");
+            });
+
+            // failure is reported by next submit or by finish, depending on timing
+            var error = assertThrows(SearchException.class, () -> {
+                pipeline.submit(() -> 3);
+                pipeline.finish();
+            });
+            assertEquals("detection failed", error.getMessage());
+        }
+
+        assertEquals(List.of(1), result);
+    }
+}
@@ -0,0 +1,75 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelFileWalkerTest {
+
+    @Test
+    void shouldVisitItemsInSameOrderAsFileWalker() throws IOException {
+        var root = Files.createTempDirectory("wordhunt");
+        for (String dir : List.of("a/b/c", "a/d", "e", "f/g")) {
+            var path = Files.createDirectories(root.resolve(dir));
+            Files.createFile(path.resolve("file1.txt"));
+            Files.createFile(path.resolve("file2.txt"));
+        }
+        Files.createFile(root.resolve("top.txt"));
+
+        var expected = walk(new FileWalker(), root.toString());
+        var actual = walk(new ParallelFileWalker(4), root.toString());
+
+        assertEquals(expected, actual);
+        assertEquals("D:" + root.toAbsolutePath(), actual.get(actual.size() - 1));
+    }
+
+    @Test
+    void shouldSkipExcludedItemsLikeFileWalker() throws IOException {
+        var root = Files.createTempDirectory("wordhunt");
+        for (String dir : List.of("src/main", "node_modules/lib", ".git/objects", "build/out", "docs/a/b")) {
+            var path = Files.createDirectories(root.resolve(dir));
+            Files.createFile(path.resolve("file.txt"));
+            Files.createFile(path.resolve("file.log"));
+        }
+        Files.writeString(root.resolve(".gitignore"), "build/\n*.log\n");
+        var filter = new WalkFilter(List.of("node_modules"), false, 3, true);
+
+        var expected = walk(new FileWalker(filter), root.toString());
+        var actual = walk(new ParallelFileWalker(4, filter), root.toString());
+
+        assertEquals(expected, actual);
+        assertTrue(actual.contains("F:" + root.resolve("src/main/file.txt")));
+        assertTrue(actual.contains("D:" + root.resolve("docs/a/b")));
+        assertFalse(actual.contains("F:" + root.resolve("docs/a/b/file.txt")));
+        assertTrue(actual.stream().noneMatch(item -> item.contains("node_modules") || item.contains(".git/")
+                || item.contains("build") || item.endsWith(".log")));
+    }
+
+    @Test
+    void shouldVisitAllItemsWhenListingsAboveLimitAreDeferred(@TempDir Path root) throws IOException {
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 3; j++) {
+                Files.createFile(Files.createDirectories(root.resolve("d" + i + "/s" + j)).resolve("file.txt"));
+            }
+        }
+
+        var expected = walk(new FileWalker(), root.toString());
+        var actual = walk(new ParallelFileWalker(1), root.toString());
+
+        assertEquals(expected, actual);
+        assertEquals(100 * 7 + 1, actual.size());
+    }
+
+    private static List<String> walk(FileWalker walker, String dirName) {
+        var result = new ArrayList<String>();
+        walker.walk(dirName, (absolutePath, isDirectory) -> result.add((isDirectory ? "D:" : "F:") + absolutePath));
+        return result;
+    }
+}
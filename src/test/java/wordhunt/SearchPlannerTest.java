@@ -0,0 +1,186 @@
+package wordhunt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static wordhunt.SearchPlan.StageKind.*;
+
+class SearchPlannerTest {
+
+    private static final String ROOT_DIR = "/tmp/wordhunt-planner";
+
+    @Test
+    void shouldNotAccessFilesWhenSearchingByName() {
+        var terms = newTerms(SearchConst.CFG_SEARCH_TERMS_FILE, "notes");
+        var matcher = plan(terms);
+        var context = prepare(matcher, terms);
+
+        assertTrue(matcher.isMatching(ROOT_DIR + "/docs/notes.txt", false, context, null));
+        assertFalse(matcher.isMatching(ROOT_DIR + "/docs/readme.txt", false, context, null));
+        assertTrue(matcher.isMatching(new FoundDocument("docs/notes.txt", false, "", ""), context, null));
+        assertFalse(matcher.isMatching(new FoundDocument("notes", true, "", ""), context, null));
+    }
+
+    @Test
+    void shouldRejectEntriesUsingIndexDataBeforeFileAccess() {
+        var terms = newTerms(SearchConst.CFG_SEARCH_TERMS_CONTENT, "needle");
+        var matcher = plan(terms);
+        var context = prepare(matcher, terms);
+
+        assertFalse(matcher.isMatching(new FoundDocument("docs/a.bin", false, "application/octet-stream", ""), context, null));
+        assertFalse(matcher.isMatching(new FoundDocument("docs/a.txt", false, MimeConst.PLAIN_TEXT, ""), context, null));
+        assertFalse(matcher.isMatching(new FoundDocument("docs", true, "", ""), context, null));
+        assertFalse(matcher.isMatching(ROOT_DIR + "/docs", true, context, null));
+    }
+
+    @Test
+    void shouldIncludeContentMatcherOnlyForContentTerms() {
+        assertFalse(SearchPlanner.hasContentTerms(newTerms(SearchConst.CFG_SEARCH_TERMS_PATH, "docs")));
+        assertTrue(SearchPlanner.hasContentTerms(newTerms(SearchConst.CFG_SEARCH_TERMS_CONTENT, "needle")));
+        assertTrue(SearchPlanner.hasContentTerms(newTerms(SearchConst.CFG_SEARCH_TERMS_ANY, "needle")));
+    }
+
+    @Test
+    void shouldOrderStagesByCost() {
+        var terms = SearchTerms.builder().terms(Map.of(
+                SearchConst.CFG_SEARCH_TERMS_CONTENT, new String[]{"needle"},
+                SearchConst.CFG_SEARCH_TERMS_FILE, new String[]{"notes"})).build();
+
+        assertEquals(List.of(FLAGS, PATH, FILE_TYPE, DOCUMENT_INFO, CONTENT), plan(terms).getStageKinds());
+    }
+
+    @Test
+    void shouldSkipStagesWithoutTerms() {
+        assertEquals(List.of(FLAGS, PATH),
+                plan(newTerms(SearchConst.CFG_SEARCH_TERMS_PATH, "docs")).getStageKinds());
+        assertEquals(List.of(FLAGS, FILE_TYPE, DOCUMENT_INFO, CONTENT),
+                plan(newTerms(SearchConst.CFG_SEARCH_TERMS_ANY, "needle")).getStageKinds());
+    }
+
+    @Test
+    void shouldReadAttributesBeforeFileTypeAndContent() {
+        var terms = newTerms(SearchConst.CFG_SEARCH_TERMS_CONTENT, "needle");
+        var events = new ArrayList<String>();
+        var config = newConfig();
+        var matcher = SearchPlanner.plan(config, terms, absolutePath -> {
+            events.add("type");
+            return new FileType(MimeConst.PLAIN_TEXT, StandardCharsets.UTF_8.name());
+        }, new RecordingStorage(events, "needle in content"));
+        var context = prepare(matcher, terms);
+
+        assertTrue(matcher.isMatching(ROOT_DIR + "/docs/a.txt", false, context, null));
+        assertEquals(List.of("info", "type", "content"), events);
+    }
+
+    private static SearchPlan plan(SearchTerms terms) {
+        return SearchPlanner.plan(newConfig(), terms, absolutePath -> fail("File type detected: " + absolutePath),
+                new NoAccessStorage());
+    }
+
+    private static SearchConfig newConfig() {
+        var config = new SearchConfig();
+        config.setValue(SearchConst.CFG_SEARCH_ROOT_DIR, ROOT_DIR);
+        config.setValue(SearchConst.CFG_INDEX_FILE_PATH, ROOT_DIR + "/" + SearchConst.DEF_INDEX_FILE_NAME);
+        return config;
+    }
+
+    private static SearchContext prepare(SearchMatcher matcher, SearchTerms terms) {
+        var context = new SearchContext();
+        matcher.prepare(terms, context);
+        return context;
+    }
+
+    private static SearchTerms newTerms(String kind, String word) {
+        return SearchTerms.builder().terms(Map.of(kind, new String[]{word})).build();
+    }
+
+    /**
+     * Storage failing on each access, checks that matching is done without I/O.
+     */
+    private static final class NoAccessStorage implements DocumentStorage {
+        @Override
+        public DocumentInfo getDocumentInfo(String absolutePath) {
+            return fail("Attributes read: " + absolutePath);
+        }
+
+        @Override
+        public BufferedReader getDocumentReader(String absolutePath, Charset charset) {
+            return fail("Document read: " + absolutePath);
+        }
+
+        @Override
+        public boolean readDocumentContent(String absolutePath, Predicate<ByteBuffer> handler) {
+            return fail("Document read: " + absolutePath);
+        }
+
+        @Override
+        public boolean isSameDocumentPath(String path1, String path2) {
+            return fail("Paths compared");
+        }
+
+        @Override
+        public boolean isDirectory(String filePath) {
+            return fail("Directory checked: " + filePath);
+        }
+
+        @Override
+        public boolean documentExists(String absolutePath) {
+            return fail("Existence checked: " + absolutePath);
+        }
+    }
+
+    /**
+     * Storage with single text document, records order of access.
+     */
+    private static final class RecordingStorage implements DocumentStorage {
+        private final List<String> events;
+        private final byte[] content;
+
+        RecordingStorage(List<String> events, String content) {
+            this.events = events;
+            this.content = content.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public DocumentInfo getDocumentInfo(String absolutePath) {
+            events.add("info");
+            return new DocumentInfo(true, false, true, content.length, 0);
+        }
+
+        @Override
+        public BufferedReader getDocumentReader(String absolutePath, Charset charset) {
+            return fail("Document read by reader: " + absolutePath);
+        }
+
+        @Override
+        public boolean readDocumentContent(String absolutePath, Predicate<ByteBuffer> handler) {
+            events.add("content");
+            handler.test(ByteBuffer.wrap(content));
+            return true;
+        }
+
+        @Override
+        public boolean isSameDocumentPath(String path1, String path2) {
+            return fail("Paths compared");
+        }
+
+        @Override
+        public boolean isDirectory(String filePath) {
+            return fail("Directory checked: " + filePath);
+        }
+
+        @Override
+        public boolean documentExists(String absolutePath) {
+            return fail("Existence checked: " + absolutePath);
+        }
+    }
+}
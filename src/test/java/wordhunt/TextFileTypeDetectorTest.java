@@ -2,6 +2,11 @@ package wordhunt;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -84,4 +89,42 @@ class TextFileTypeDetectorTest {
         boolean actualResult = uut.isPlainTextData(testValue.getBytes());
         assertTrue(actualResult);
     }
+
+    @Test
+    void shouldDetectTypeUsingKnownAttributes(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("a.txt");
+        Files.writeString(file, "plain text");
+        var info = new DocumentInfo(true, false, true, Files.size(file), 0);
+
+        var fileType = uut.detectFileType(file.toString(), info);
+
+        assertNotNull(fileType);
+        assertEquals(MimeConst.PLAIN_TEXT, fileType.getMimeType());
+        assertNull(uut.detectFileType(file.getParent().toString(), new DocumentInfo(true, true, true, 0, 0)));
+        assertNull(uut.detectFileType(file.toString() + ".missing", info));
+    }
+
+    @Test
+    void shouldTellUnknownTypeFromUnreadableFile(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("a.bin");
+        Files.write(file, new byte[]{1, 2, 3});
+        var info = new DocumentInfo(true, false, true, Files.size(file), 0);
+
+        assertEquals(FileType.UNKNOWN_FILE_TYPE, uut.detectCacheableFileType(file.toString(), info));
+        assertNull(uut.detectFileType(file.toString(), info));
+        assertNull(uut.detectCacheableFileType(dir.resolve("missing.bin").toString(), info));
+    }
+
+    @Test
+    void shouldLimitSampleToKnownSize(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("a.txt");
+        Files.write(file, new byte[]{'a', 'b', 'c', 1, 2});
+
+        assertNull(uut.detectFileType(file.toString(), new DocumentInfo(true, false, true, 5, 0)));
+        // bytes written after file size was read are not sampled
+        assertNotNull(uut.detectFileType(file.toString(), new DocumentInfo(true, false, true, 3, 0)));
+        // empty file is not read
+        var emptyType = uut.detectFileType(dir.resolve("missing.txt").toString(), new DocumentInfo(true, false, true, 0, 0));
+        assertEquals(MimeConst.PLAIN_TEXT, emptyType.getMimeType());
+    }
 }